@@ -0,0 +1,300 @@
+package org.jboss.windup.maven.nexusindexer.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parses the artifact lines of the text metadata files, "SHA1 GROUP_ID:ARTIFACT_ID:PACKAGING:CLASSIFIER:VERSION",
+ * from the file memory mapped: the bytes of each line are scanned for the delimiters, and only the values are decoded, as UTF-8.
+ * The empty lines and the lines starting with '#' are skipped. The fields after the fifth one are ignored.
+ *
+ * The group ids, packagings and classifiers, repeated across the lines, are decoded once and shared.
+ *
+ * A file can be parsed in chunks of whole lines, see {@link #split(File, long)}, e.g. by several parsers in parallel.
+ *
+ * Not thread-safe.
+ */
+final class ArtifactLineParser
+{
+    /**
+     * The default size of the mapped windows of the files; a line must fit in one.
+     */
+    static final int DEFAULT_WINDOW_SIZE = 64 << 20;
+    private static final int FIELDS = 5;
+    private static final int CACHE_SIZE = 4096;
+
+    private final Handler handler;
+    private final int windowSize;
+    private final int[] fieldStarts = new int[FIELDS];
+    private final int[] fieldEnds = new int[FIELDS];
+    private byte[] line = new byte[256];
+    private final byte[][] cachedBytes = new byte[CACHE_SIZE][];
+    private final String[] cachedStrings = new String[CACHE_SIZE];
+
+
+    /**
+     * Receives the parsed artifacts.
+     */
+    interface Handler
+    {
+        /**
+         * @param offset The offset of the line in the file, or -1 if unknown.
+         */
+        void artifact(long offset, String sha1, String group, String artifactId, String version, String packaging, String classifier);
+    }
+
+
+    ArtifactLineParser(Handler handler)
+    {
+        this(handler, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param windowSize The size of the mapped windows of the files, see {@link #DEFAULT_WINDOW_SIZE}.
+     */
+    ArtifactLineParser(Handler handler, int windowSize)
+    {
+        this.handler = handler;
+        this.windowSize = windowSize;
+    }
+
+
+    /**
+     * Splits a file in chunks of whole lines, of about the given size.
+     *
+     * @return The offsets of the chunks, followed by the size of the file.
+     */
+    static long[] split(File file, long chunkSize) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            List<Long> offsets = new ArrayList<>();
+            offsets.add(0L);
+            ByteBuffer bytes = ByteBuffer.allocate(4096);
+            long offset = chunkSize;
+            while (offset < size)
+            {
+                // Moves to the start of the next line.
+                long lineStart = -1;
+                for (long position = offset; lineStart < 0 && position < size; position += bytes.limit())
+                {
+                    bytes.clear();
+                    channel.read(bytes, position);
+                    bytes.flip();
+                    for (int i = 0; i < bytes.limit(); i++)
+                    {
+                        if (bytes.get(i) == '\n')
+                        {
+                            lineStart = position + i + 1;
+                            break;
+                        }
+                    }
+                }
+                if (lineStart < 0 || lineStart >= size)
+                    break;
+                offsets.add(lineStart);
+                offset = lineStart + chunkSize;
+            }
+            offsets.add(size);
+
+            long[] chunks = new long[offsets.size()];
+            for (int i = 0; i < chunks.length; i++)
+                chunks[i] = offsets.get(i);
+            return chunks;
+        }
+    }
+
+    void parse(File file) throws IOException
+    {
+        parse(file, 0, file.length());
+    }
+
+    /**
+     * Parses the lines between the given offsets, which must be the start of a line and the end of a line or of the file.
+     */
+    void parse(File file, long start, long end) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            long position = start;
+            int lineNumber = 0;
+            while (position < end)
+            {
+                int length = (int) Math.min(windowSize, end - position);
+                boolean last = position + length == end;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+                int lineStart = 0;
+                for (int i = 0; i < length; i++)
+                {
+                    if (buffer.get(i) != '\n')
+                        continue;
+                    parseLine(buffer, position, lineStart, i, ++lineNumber, file, start);
+                    lineStart = i + 1;
+                }
+                if (last)
+                {
+                    if (lineStart < length)
+                        parseLine(buffer, position, lineStart, length, ++lineNumber, file, start);
+                    lineStart = length;
+                }
+                else if (lineStart == 0)
+                    throw new IOException("Line longer than " + windowSize + " bytes in [" + file + "] at line [" + (lineNumber + 1) + "]" + describeChunk(start));
+                position += lineStart;
+            }
+        }
+    }
+
+    /**
+     * Parses a single line, e.g. read by a {@link SortedLineDiff}. The handler gets -1 as the offset of the line.
+     */
+    void parse(String text, int lineNumber, File file)
+    {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, line, 0, bytes.length);
+        parseLine(bytes.length, -1, lineNumber, file, 0);
+    }
+
+    private void parseLine(MappedByteBuffer buffer, long bufferOffset, int start, int end, int lineNumber, File file, long chunkStart)
+    {
+        // A single bulk copy of the line, parsed from there.
+        int length = end - start;
+        ensureCapacity(length);
+        buffer.position(start);
+        buffer.get(line, 0, length);
+        parseLine(length, bufferOffset + start, lineNumber, file, chunkStart);
+    }
+
+    private void ensureCapacity(int length)
+    {
+        if (line.length < length)
+            line = new byte[Math.max(length, 2 * line.length)];
+    }
+
+    /**
+     * Parses the line copied to {@link #line}.
+     */
+    private void parseLine(int length, long offset, int lineNumber, File file, long chunkStart)
+    {
+        if (length > 0 && line[length - 1] == '\r')
+            length--;
+        if (length == 0 || line[0] == '#' || isBlank(line, 0, length))
+            return;
+
+        int space = indexOf(line, (byte) ' ', 0, length);
+        if (space < 0 || isBlank(line, space, length))
+            throw invalidLine(length, lineNumber, file, chunkStart);
+
+        int fields = 0;
+        int fieldStart = space + 1;
+        for (int i = fieldStart; i <= length && fields < FIELDS; i++)
+        {
+            if (i == length || line[i] == ':')
+            {
+                fieldStarts[fields] = fieldStart;
+                fieldEnds[fields] = i;
+                fields++;
+                fieldStart = i + 1;
+            }
+        }
+        if (fields < FIELDS)
+            throw invalidLine(length, lineNumber, file, chunkStart);
+
+        handler.artifact(
+                    offset,
+                    decode(0, space, false),
+                    decode(fieldStarts[0], fieldEnds[0], true),
+                    decode(fieldStarts[1], fieldEnds[1], false),
+                    decode(fieldStarts[4], fieldEnds[4], false),
+                    decode(fieldStarts[2], fieldEnds[2], true),
+                    decode(fieldStarts[3], fieldEnds[3], true));
+    }
+
+    private IllegalArgumentException invalidLine(int length, int lineNumber, File file, long chunkStart)
+    {
+        return new IllegalArgumentException("Expected 'SHA1 GROUP_ID:ARTIFACT_ID:[PACKAGING:[COORDINATE:]]VERSION', but was: ["
+                    + decode(0, length, false) + "] in [" + file + "] at line [" + lineNumber + "]" + describeChunk(chunkStart));
+    }
+
+    private static String describeChunk(long chunkStart)
+    {
+        return chunkStart == 0 ? "" : " of the chunk starting at byte [" + chunkStart + "]";
+    }
+
+    /**
+     * Decodes a slice of the current line.
+     *
+     * @param shared Whether to look the value up in, and add it to, the cache of repeated values.
+     */
+    private String decode(int start, int end, boolean shared)
+    {
+        int length = end - start;
+        if (length == 0)
+            return "";
+        if (!shared)
+            return new String(line, start, length, StandardCharsets.UTF_8);
+
+        int slot = cacheSlot(line, start, end);
+        byte[] cached = cachedBytes[slot];
+        if (cached != null && equals(cached, line, start, length))
+            return cachedStrings[slot];
+
+        String value = new String(line, start, length, StandardCharsets.UTF_8);
+        cachedBytes[slot] = Arrays.copyOfRange(line, start, end);
+        cachedStrings[slot] = value;
+        return value;
+    }
+
+    /**
+     * @return The slot of the cache of the given value; different values may share a slot, the last one decoded replacing the other.
+     */
+    static int cacheSlot(byte[] bytes, int start, int end)
+    {
+        int hash = 1;
+        for (int i = start; i < end; i++)
+            hash = 31 * hash + bytes[i];
+        return (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+    }
+
+    private static boolean equals(byte[] cached, byte[] bytes, int start, int length)
+    {
+        if (cached.length != length)
+            return false;
+        for (int i = 0; i < length; i++)
+        {
+            if (cached[i] != bytes[start + i])
+                return false;
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] bytes, byte value, int start, int end)
+    {
+        for (int i = start; i < end; i++)
+        {
+            if (bytes[i] == value)
+                return i;
+        }
+        return -1;
+    }
+
+    private static boolean isBlank(byte[] bytes, int start, int end)
+    {
+        for (int i = start; i < end; i++)
+        {
+            if ((bytes[i] & 0xff) > ' ')
+                return false;
+        }
+        return true;
+    }
+}
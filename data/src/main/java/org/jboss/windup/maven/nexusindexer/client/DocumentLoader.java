@@ -0,0 +1,89 @@
+package org.jboss.windup.maven.nexusindexer.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.SortedDocValues;
+
+/**
+ * Loads the documents of an {@link IndexSnapshot}: from their stored fields, or, if the {@link IndexLayout} has the
+ * coordinates in doc values, as documents with the same fields, read from the doc values. The {@link DocTo}s
+ * and the visitors get the same documents either way. The documents may be limited to some fields.
+ *
+ * Not thread-safe. The doc values are read forward, so the documents are loaded fastest in increasing order.
+ */
+final class DocumentLoader
+{
+    private static final String[] COORDINATE_FIELDS = {
+                DocTo.Fields.GROUP_ID, DocTo.Fields.ARTIFACT_ID, DocTo.Fields.PACKAGING, DocTo.Fields.CLASSIFIER, DocTo.Fields.VERSION};
+
+    private final IndexReader reader;
+    private final boolean docValues;
+    private final Set<String> fields;
+    private final String[] coordinateFields;
+    private final List<LeafReaderContext> leaves;
+    private int leafIndex = -1;
+    private SortedDocValues[] values;
+
+
+    DocumentLoader(IndexSnapshot snapshot)
+    {
+        this(snapshot, null);
+    }
+
+    /**
+     * @param fields The fields to load, or null for all.
+     */
+    DocumentLoader(IndexSnapshot snapshot, Set<String> fields)
+    {
+        this.reader = snapshot.getReader();
+        this.docValues = snapshot.getLayout().hasCoordinateDocValues();
+        this.fields = fields;
+        this.leaves = reader.leaves();
+
+        List<String> coordinateFields = new ArrayList<>(COORDINATE_FIELDS.length);
+        for (String field : COORDINATE_FIELDS)
+        {
+            if (fields == null || fields.contains(field))
+                coordinateFields.add(field);
+        }
+        this.coordinateFields = coordinateFields.toArray(new String[coordinateFields.size()]);
+    }
+
+
+    Document load(int docId) throws IOException
+    {
+        if (!docValues)
+            return fields == null ? reader.document(docId) : reader.document(docId, fields);
+        if (coordinateFields.length == 0)
+            return new Document();
+
+        int index = ReaderUtil.subIndex(docId, leaves);
+        LeafReaderContext leaf = leaves.get(index);
+        int doc = docId - leaf.docBase;
+        if (index != leafIndex || values[0].docID() >= doc)
+        {
+            // The iterators can't go back.
+            values = new SortedDocValues[coordinateFields.length];
+            for (int i = 0; i < coordinateFields.length; i++)
+                values[i] = DocValues.getSorted(leaf.reader(), coordinateFields[i]);
+            leafIndex = index;
+        }
+
+        Document document = new Document();
+        for (int i = 0; i < coordinateFields.length; i++)
+        {
+            if (values[i].advanceExact(doc))
+                document.add(new StoredField(coordinateFields[i], values[i].lookupOrd(values[i].ordValue()).utf8ToString()));
+        }
+        return document;
+    }
+}
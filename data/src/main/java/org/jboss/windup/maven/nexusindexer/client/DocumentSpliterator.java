@@ -0,0 +1,135 @@
+package org.jboss.windup.maven.nexusindexer.client;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.util.Bits;
+
+/**
+ * Splits the live documents of an {@link IndexSnapshot} by range of document ids, at the boundaries of the segments
+ * when possible, and converts them with a {@link DocTo}. Each split has its own {@link DocumentLoader},
+ * so the splits can be traversed in parallel.
+ */
+final class DocumentSpliterator<T> implements Spliterator<T>
+{
+    private static final Logger LOG = Logger.getLogger(DocumentSpliterator.class.getName());
+
+    /**
+     * The smallest range worth splitting.
+     */
+    static final int MIN_SPLIT_SIZE = 1024;
+
+    private final IndexSnapshot snapshot;
+    private final DocTo<T> converter;
+    private final Set<String> fields;
+    private final List<LeafReaderContext> leaves;
+    private int next;
+    private final int end;
+
+    private DocumentLoader loader;
+    private LeafReaderContext leaf;
+    private Bits liveDocs;
+
+
+    /**
+     * @param fields The fields to load, or null for all.
+     */
+    DocumentSpliterator(IndexSnapshot snapshot, DocTo<T> converter, Set<String> fields)
+    {
+        this(snapshot, converter, fields, 0, snapshot.getReader().maxDoc());
+    }
+
+    private DocumentSpliterator(IndexSnapshot snapshot, DocTo<T> converter, Set<String> fields, int start, int end)
+    {
+        this.snapshot = snapshot;
+        this.converter = converter;
+        this.fields = fields;
+        this.leaves = snapshot.getReader().leaves();
+        this.next = start;
+        this.end = end;
+    }
+
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action)
+    {
+        while (next < end)
+        {
+            int docId = next++;
+            if (!isLive(docId))
+                continue;
+            try
+            {
+                if (loader == null)
+                    loader = new DocumentLoader(snapshot, fields);
+                Document doc = loader.load(docId);
+                action.accept(converter.convert(doc));
+                return true;
+            }
+            catch (IOException ex)
+            {
+                LOG.log(Level.WARNING, "Error reading Lucene document #" + docId + ": " + ex.getMessage(), ex);
+            }
+        }
+        return false;
+    }
+
+    private boolean isLive(int docId)
+    {
+        if (leaf == null || docId >= leaf.docBase + leaf.reader().maxDoc())
+        {
+            leaf = leaves.get(ReaderUtil.subIndex(docId, leaves));
+            liveDocs = leaf.reader().getLiveDocs();
+        }
+        return liveDocs == null || liveDocs.get(docId - leaf.docBase);
+    }
+
+    /**
+     * Splits the remaining range in two: at the segment boundary closest to its middle, if any, otherwise at the middle.
+     */
+    @Override
+    public Spliterator<T> trySplit()
+    {
+        if (end - next < 2 * MIN_SPLIT_SIZE)
+            return null;
+
+        int middle = (next + end) >>> 1;
+        int split = -1;
+        for (LeafReaderContext context : leaves)
+        {
+            int boundary = context.docBase;
+            if (boundary - next >= MIN_SPLIT_SIZE && end - boundary >= MIN_SPLIT_SIZE
+                        && (split < 0 || Math.abs(boundary - middle) < Math.abs(split - middle)))
+                split = boundary;
+        }
+        if (split < 0)
+            split = middle;
+
+        Spliterator<T> prefix = new DocumentSpliterator<>(snapshot, converter, fields, next, split);
+        next = split;
+        return prefix;
+    }
+
+    /**
+     * @return The number of remaining documents, including the deleted ones.
+     */
+    @Override
+    public long estimateSize()
+    {
+        return end - next;
+    }
+
+    @Override
+    public int characteristics()
+    {
+        return ORDERED | IMMUTABLE;
+    }
+}
@@ -0,0 +1,66 @@
+package org.jboss.windup.maven.nexusindexer.client;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.SimpleFSDirectory;
+
+/**
+ * The Lucene {@link Directory} implementation {@link LuceneIndexServiceBase} reads the index with.
+ * {@link SimpleFSDirectory} serializes the concurrent reads of a file, {@link NIOFSDirectory} reads with positional reads,
+ * and {@link MMapDirectory} maps the files in memory, so that the lookups need no system call once the pages are cached.
+ */
+public enum IndexDirectoryType
+{
+    /**
+     * Memory mapped on 64-bit JVMs, see {@link FSDirectory#open(Path)}.
+     */
+    AUTO,
+    MMAP,
+    NIO,
+    SIMPLE;
+
+    /**
+     * System property with the directory type of the read indexes.
+     */
+    public static final String DIRECTORY_TYPE_PROPERTY = "nexus-indexer.lucene.directory";
+
+
+    /**
+     * @return The type set by the {@value #DIRECTORY_TYPE_PROPERTY} system property, in any case, {@link #AUTO} by default.
+     */
+    public static IndexDirectoryType fromSystemProperties()
+    {
+        final String value = System.getProperty(DIRECTORY_TYPE_PROPERTY, AUTO.name());
+        try
+        {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+        catch (IllegalArgumentException ex)
+        {
+            throw new IllegalArgumentException("Unsupported directory type '" + value + "' in the " + DIRECTORY_TYPE_PROPERTY + " system property, expected one of: "
+                        + Arrays.toString(values()));
+        }
+    }
+
+    public Directory open(Path path) throws IOException
+    {
+        switch (this)
+        {
+            case MMAP:
+                return new MMapDirectory(path);
+            case NIO:
+                return new NIOFSDirectory(path);
+            case SIMPLE:
+                return new SimpleFSDirectory(path);
+            default:
+                return FSDirectory.open(path);
+        }
+    }
+}
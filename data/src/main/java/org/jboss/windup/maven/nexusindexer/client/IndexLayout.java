@@ -0,0 +1,140 @@
+package org.jboss.windup.maven.nexusindexer.client;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.SimpleFSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.jboss.windup.maven.nexusindexer.ArtifactRecord;
+
+/**
+ * How the SHA1s are stored in the Lucene indexes created by {@link TextFileToLucene7Converter}:
+ * as 40-character hex terms, or as 20-byte binary terms, which halve the term dictionary of the SHA1 field
+ * and compare faster. The layout is recorded in the user data of the index commit, see {@link #COMMIT_DATA_KEY},
+ * so that it always goes with the index; the indexes committed without it have the layout of their {@value #LAYOUT_FILE} file,
+ * or else the hex layout.
+ *
+ * The layouts also tell how the coordinates of the artifacts are stored: as stored fields, or as sorted doc values,
+ * which share a dictionary of the values of each field, and are read without decompressing a block of stored documents.
+ */
+public enum IndexLayout
+{
+    HEX_SHA1,
+    BINARY_SHA1,
+    /**
+     * Binary SHA1 terms, and the coordinates in sorted doc values instead of stored fields.
+     */
+    BINARY_SHA1_DOC_VALUES;
+
+    /**
+     * The key of the layout in the user data of the index commit.
+     */
+    public static final String COMMIT_DATA_KEY = "layout";
+
+    /**
+     * The file, next to the index marker file, with the layout of the indexes committed without it.
+     */
+    public static final String LAYOUT_FILE = "archive-metadata.lucene.layout";
+
+    /**
+     * System property with the layout of the created indexes.
+     */
+    public static final String LAYOUT_PROPERTY = "nexus-indexer.lucene.layout";
+
+    private static final String LAYOUT_KEY = "layout";
+
+
+    /**
+     * @return The layout set by the {@value #LAYOUT_PROPERTY} system property, in any case, {@link #HEX_SHA1} by default.
+     */
+    public static IndexLayout fromSystemProperties()
+    {
+        final String value = System.getProperty(LAYOUT_PROPERTY, HEX_SHA1.name());
+        try
+        {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+        catch (IllegalArgumentException ex)
+        {
+            throw new IllegalArgumentException("Unsupported layout '" + value + "' in the " + LAYOUT_PROPERTY + " system property, expected one of: "
+                        + Arrays.toString(values()));
+        }
+    }
+
+    /**
+     * @return The layout of the latest commit of the index in the given directory.
+     */
+    public static IndexLayout read(File indexDir) throws IOException
+    {
+        if (indexDir.isDirectory())
+        {
+            try (Directory directory = new SimpleFSDirectory(indexDir.toPath()))
+            {
+                if (DirectoryReader.indexExists(directory))
+                    return read(SegmentInfos.readLatestCommit(directory).getUserData(), indexDir);
+            }
+        }
+        return read(Collections.<String, String>emptyMap(), indexDir);
+    }
+
+    /**
+     * @return The layout recorded in the given user data of a commit of the index in the given directory.
+     */
+    public static IndexLayout read(Map<String, String> commitData, File indexDir) throws IOException
+    {
+        if (commitData.containsKey(COMMIT_DATA_KEY))
+            return valueOf(commitData.get(COMMIT_DATA_KEY), indexDir);
+
+        final File layoutFile = new File(indexDir, LAYOUT_FILE);
+        if (!layoutFile.exists())
+            return HEX_SHA1;
+
+        final Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(layoutFile))
+        {
+            properties.load(in);
+        }
+        return valueOf(properties.getProperty(LAYOUT_KEY), indexDir);
+    }
+
+    private static IndexLayout valueOf(String layout, File indexDir) throws IOException
+    {
+        try
+        {
+            return valueOf(layout);
+        }
+        catch (IllegalArgumentException | NullPointerException ex)
+        {
+            throw new IOException("Unsupported layout '" + layout + "' of the Lucene index in: " + indexDir);
+        }
+    }
+
+    /**
+     * @return Whether the coordinates are stored as doc values rather than as stored fields.
+     */
+    public boolean hasCoordinateDocValues()
+    {
+        return this == BINARY_SHA1_DOC_VALUES;
+    }
+
+    /**
+     * @return The term of the given hex SHA1 in this layout, or null if it can't be in the index.
+     */
+    public BytesRef sha1Term(String sha1)
+    {
+        if (this == HEX_SHA1)
+            return new BytesRef(sha1);
+        final byte[] bytes = ArtifactRecord.parseSha1(sha1);
+        return bytes == null ? null : new BytesRef(bytes);
+    }
+}
@@ -0,0 +1,72 @@
+package org.jboss.windup.maven.nexusindexer.client;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.jboss.windup.maven.nexusindexer.Sha1BloomFilter;
+
+/**
+ * A point-in-time view of the Lucene index with repository metadata: its searcher, with the layout and the SHA1 filter
+ * of that same index, so that a lookup never mixes the files of an index with the ones of the index replacing it.
+ *
+ * The snapshots are acquired from and released to the {@link LuceneIndexServiceBase}; the searcher of a released snapshot
+ * may be closed once the index has been reopened.
+ */
+public final class IndexSnapshot
+{
+    private final IndexSearcher searcher;
+    private final IndexLayout layout;
+    private final Sha1BloomFilter sha1Filter;
+    private final byte[] commitId;
+    private final long generation;
+
+
+    IndexSnapshot(DirectoryReader reader, IndexLayout layout, Sha1BloomFilter sha1Filter, byte[] commitId, long generation)
+    {
+        this.searcher = new IndexSearcher(reader);
+        this.layout = layout;
+        this.sha1Filter = sha1Filter;
+        this.commitId = commitId;
+        this.generation = generation;
+    }
+
+
+    public IndexSearcher getSearcher()
+    {
+        return searcher;
+    }
+
+    public DirectoryReader getReader()
+    {
+        return (DirectoryReader) searcher.getIndexReader();
+    }
+
+    public IndexLayout getLayout()
+    {
+        return layout;
+    }
+
+    /**
+     * @return The SHA1 filter of the index, or null if it has none.
+     */
+    public Sha1BloomFilter getSha1Filter()
+    {
+        return sha1Filter;
+    }
+
+    /**
+     * @return The unique id of the commit of the index, which changes when the index is replaced, even by an index
+     *         with the same version.
+     */
+    byte[] getCommitId()
+    {
+        return commitId;
+    }
+
+    /**
+     * @return The number of this snapshot, increasing each time the index is reopened.
+     */
+    public long getGeneration()
+    {
+        return generation;
+    }
+}
@@ -0,0 +1,122 @@
+package org.jboss.windup.maven.nexusindexer.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.StandardDirectoryReader;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.store.Directory;
+import org.jboss.windup.maven.nexusindexer.Sha1BloomFilter;
+
+/**
+ * Manages the {@link IndexSnapshot}s of an index directory, as a {@link org.apache.lucene.search.SearcherManager} does
+ * for the searchers: the lookups acquire the current snapshot, and a refresh swaps in a new one when the index has changed,
+ * the previous one being closed once its last lookup has released it.
+ *
+ * The index is considered changed when the id of its latest commit differs: an index replaced as a whole,
+ * e.g. extracted from a new bundle, may well have the same version and segment names as the previous one.
+ *
+ * The layout and the SHA1 filter of a snapshot are the ones recorded in the user data of its commit: the filter file,
+ * which is not part of the commit, is only used if it is the one committed, and is looked for again by the next refreshes
+ * while it is not, e.g. while the files of an index are being replaced.
+ */
+final class IndexSnapshotManager extends ReferenceManager<IndexSnapshot>
+{
+    private static final Logger LOG = Logger.getLogger(IndexSnapshotManager.class.getName());
+
+    private final File directory;
+    private final Directory index;
+    private long generation;
+
+
+    IndexSnapshotManager(File directory, Directory index) throws IOException
+    {
+        this.directory = directory;
+        this.index = index;
+        this.current = open();
+    }
+
+
+    @Override
+    protected IndexSnapshot refreshIfNeeded(IndexSnapshot referenceToRefresh) throws IOException
+    {
+        if (!Arrays.equals(SegmentInfos.readLatestCommit(index).getId(), referenceToRefresh.getCommitId()))
+            return open();
+
+        // The same commit, whose filter may have been missing.
+        DirectoryReader reader = referenceToRefresh.getReader();
+        if (referenceToRefresh.getSha1Filter() != null || !reader.getIndexCommit().getUserData().containsKey(Sha1BloomFilter.COMMIT_DATA_KEY))
+            return null;
+        Sha1BloomFilter sha1Filter = mapSha1Filter(reader.getIndexCommit().getUserData());
+        if (sha1Filter == null)
+            return null;
+        // The lookups of the same index give the same results, the cached ones are kept.
+        reader.incRef();
+        return new IndexSnapshot(reader, referenceToRefresh.getLayout(), sha1Filter, referenceToRefresh.getCommitId(), referenceToRefresh.getGeneration());
+    }
+
+    /**
+     * Opens the latest commit of the index, with the layout and the SHA1 filter recorded in it.
+     */
+    private IndexSnapshot open() throws IOException
+    {
+        DirectoryReader reader = DirectoryReader.open(index);
+        try
+        {
+            byte[] commitId = ((StandardDirectoryReader) reader).getSegmentInfos().getId();
+            Map<String, String> commitData = reader.getIndexCommit().getUserData();
+            return new IndexSnapshot(reader, IndexLayout.read(commitData, directory), mapSha1Filter(commitData), commitId, ++generation);
+        }
+        catch (IOException | RuntimeException ex)
+        {
+            reader.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * @return The SHA1 filter recorded in the given user data of a commit, or null if the filter file is not that one:
+     *         the lookups then search the index only.
+     */
+    private Sha1BloomFilter mapSha1Filter(Map<String, String> commitData)
+    {
+        String identity = commitData.get(Sha1BloomFilter.COMMIT_DATA_KEY);
+        if (identity == null)
+            return null;
+        try
+        {
+            Sha1BloomFilter sha1Filter = Sha1BloomFilter.map(directory);
+            if (sha1Filter != null && identity.equals(sha1Filter.getIdentity()))
+                return sha1Filter;
+            LOG.warning("Not using the SHA1 filter of the Lucene index, it is not the one committed with the index (" + identity + "): " + directory);
+        }
+        catch (IOException ex)
+        {
+            LOG.warning("Not using the SHA1 filter of the Lucene index, it can't be read: " + directory + "\n    " + ex.getMessage());
+        }
+        return null;
+    }
+
+    @Override
+    protected boolean tryIncRef(IndexSnapshot reference)
+    {
+        return reference.getReader().tryIncRef();
+    }
+
+    @Override
+    protected void decRef(IndexSnapshot reference) throws IOException
+    {
+        reference.getReader().decRef();
+    }
+
+    @Override
+    protected int getRefCount(IndexSnapshot reference)
+    {
+        return reference.getReader().getRefCount();
+    }
+}
@@ -0,0 +1,290 @@
+package org.jboss.windup.maven.nexusindexer.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of lookup results, evicting the least recently used entry, with the statistics of its use.
+ * The "not found" results are cached too, as negative entries. The cached values must be immutable, as they are
+ * shared by all the lookups.
+ *
+ * The entries are split by the hash of their key into segments, each with its own lock, so that the concurrent lookups
+ * rarely wait for each other: each segment holds its share of the maximum size, and evicts its own least recently used entry.
+ *
+ * The entries are tied to a generation of the index: they are dropped by the first use of the cache with a newer generation,
+ * or by {@link #invalidate(long)}, and the lookups done on an older generation neither read nor fill the cache.
+ */
+public final class LookupCache
+{
+    private static final int MAX_SEGMENTS = 64;
+
+    private final int maxSize;
+    private final Segment[] segments;
+    private final AtomicLong generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+
+    /**
+     * @param maxSize The maximum number of entries; 0 disables the cache.
+     */
+    public LookupCache(int maxSize, long generation)
+    {
+        this(maxSize, generation, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * @param concurrency The expected number of concurrent lookups: the number of segments, at most {@value #MAX_SEGMENTS}.
+     */
+    LookupCache(int maxSize, long generation, int concurrency)
+    {
+        if (maxSize < 0)
+            throw new IllegalArgumentException("The cache size must not be negative: " + maxSize);
+        this.maxSize = maxSize;
+        this.generation = new AtomicLong(generation);
+
+        // A power of two, with at least one entry per segment.
+        int count = 1;
+        while (count < Math.min(concurrency, MAX_SEGMENTS) && count * 2 <= maxSize)
+            count *= 2;
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++)
+            segments[i] = new Segment(maxSize / count + (i < maxSize % count ? 1 : 0), generation);
+    }
+
+
+    /**
+     * @param generation The generation of the index the lookup is done on.
+     * @return The cached value, which may be the negative entry of a "not found", or null if not cached.
+     */
+    public Object get(Object key, long generation)
+    {
+        advance(generation);
+        if (maxSize == 0 || generation != this.generation.get())
+        {
+            misses.increment();
+            return null;
+        }
+        Object value;
+        Segment segment = segmentFor(key);
+        synchronized (segment)
+        {
+            value = segment.use(generation) ? segment.get(key) : null;
+        }
+        if (value == null)
+            misses.increment();
+        else
+            hits.increment();
+        return value;
+    }
+
+    /**
+     * Counts a hit on a negative entry, as found by {@link #get(Object, long)}.
+     */
+    public void countNegativeHit()
+    {
+        negativeHits.increment();
+    }
+
+    /**
+     * Caches a result, unless it was looked up in an older generation of the index.
+     *
+     * @param value The immutable result, or a marker value for "not found".
+     */
+    public void put(Object key, Object value, long generation)
+    {
+        advance(generation);
+        if (maxSize == 0 || generation != this.generation.get())
+            return;
+        Segment segment = segmentFor(key);
+        synchronized (segment)
+        {
+            if (segment.use(generation))
+                segment.put(key, value);
+        }
+    }
+
+    /**
+     * Drops all the entries, when the index changed to the given generation.
+     */
+    public void invalidate(long generation)
+    {
+        this.generation.set(generation);
+        invalidations.increment();
+        for (Segment segment : segments)
+        {
+            synchronized (segment)
+            {
+                segment.clear();
+                segment.generation = generation;
+            }
+        }
+    }
+
+    /**
+     * Counts the invalidation of the entries by the first use with a newer generation; the segments drop theirs
+     * when used with it, see {@link Segment#use(long)}.
+     */
+    private void advance(long generation)
+    {
+        long current = this.generation.get();
+        while (generation > current)
+        {
+            if (this.generation.compareAndSet(current, generation))
+            {
+                invalidations.increment();
+                return;
+            }
+            current = this.generation.get();
+        }
+    }
+
+    private Segment segmentFor(Object key)
+    {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return segments[hash & (segments.length - 1)];
+    }
+
+    public Stats getStats()
+    {
+        long current = generation.get();
+        int size = 0;
+        for (Segment segment : segments)
+        {
+            synchronized (segment)
+            {
+                if (segment.generation == current)
+                    size += segment.size();
+            }
+        }
+        return new Stats(size, maxSize, hits.sum(), negativeHits.sum(), misses.sum(), evictions.sum(), invalidations.sum());
+    }
+
+
+    /**
+     * The entries of some of the keys, in access order. Guarded by itself.
+     */
+    private final class Segment extends LinkedHashMap<Object, Object>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+        private long generation;
+
+        Segment(int maxSize, long generation)
+        {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+            this.generation = generation;
+        }
+
+        /**
+         * @return Whether the entries of this segment are of the given generation, dropping them if they are older.
+         */
+        boolean use(long generation)
+        {
+            if (generation > this.generation)
+            {
+                clear();
+                this.generation = generation;
+            }
+            return generation == this.generation;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest)
+        {
+            if (size() <= maxSize)
+                return false;
+            evictions.increment();
+            return true;
+        }
+    }
+
+
+    /**
+     * A snapshot of the statistics of a {@link LookupCache}.
+     */
+    public static final class Stats
+    {
+        private final int size;
+        private final int maxSize;
+        private final long hits;
+        private final long negativeHits;
+        private final long misses;
+        private final long evictions;
+        private final long invalidations;
+
+        Stats(int size, int maxSize, long hits, long negativeHits, long misses, long evictions, long invalidations)
+        {
+            this.size = size;
+            this.maxSize = maxSize;
+            this.hits = hits;
+            this.negativeHits = negativeHits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+        }
+
+        public int getSize()
+        {
+            return size;
+        }
+
+        public int getMaxSize()
+        {
+            return maxSize;
+        }
+
+        /**
+         * @return The lookups answered by the cache, including the {@link #getNegativeHits()}.
+         */
+        public long getHits()
+        {
+            return hits;
+        }
+
+        /**
+         * @return The lookups answered by the cache with "not found".
+         */
+        public long getNegativeHits()
+        {
+            return negativeHits;
+        }
+
+        public long getMisses()
+        {
+            return misses;
+        }
+
+        public long getEvictions()
+        {
+            return evictions;
+        }
+
+        public long getInvalidations()
+        {
+            return invalidations;
+        }
+
+        public double getHitRate()
+        {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%d/%d entries, %d hits (%d negative), %d misses, hit rate %.1f%%, %d evictions, %d invalidations",
+                        size, maxSize, hits, negativeHits, misses, 100 * getHitRate(), evictions, invalidations);
+        }
+    }
+}
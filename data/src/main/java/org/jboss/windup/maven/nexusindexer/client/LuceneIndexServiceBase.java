@@ -3,24 +3,62 @@ package org.jboss.windup.maven.nexusindexer.client;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
-import java.util.logging.Level;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.apache.lucene.document.Document;
-import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.IndexNotFoundException;
 import org.apache.lucene.index.IndexReader;
-import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.IndexSearcher;
-import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.SimpleFSDirectory;
 import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.jboss.windup.maven.nexusindexer.Sha1BloomFilter;
 import org.jboss.windup.maven.nexusindexer.ZipUtil;
 
 /**
+ * Searches the Lucene index with repository metadata.
+ *
+ * The lookups search the current {@link IndexSnapshot} of the index. Every {@value #CHANGE_CHECK_PROPERTY} milliseconds,
+ * a background thread checks whether the index directory has changed, e.g. replaced by a new bundle, and if so reopens it:
+ * the lookups then search the new snapshot, while the ones in flight finish with the previous one, so the service
+ * picks up the new data without being restarted or blocking the lookups.
+ *
+ * The results of the lookups are cached in a bounded {@link LookupCache}, of {@value #CACHE_SIZE_PROPERTY} entries,
+ * dropped when the index is reopened.
+ *
+ * The SHA1 lookups are first checked against the {@link Sha1BloomFilter} of the index, if it has one, memory mapped:
+ * the SHA1s certainly not in the index are rejected without a Lucene lookup.
  *
  *  @author <a href="http://ondra.zizka.cz/">Ondrej Zizka, zizka@seznam.cz</a>
  */
@@ -28,13 +66,46 @@ public class LuceneIndexServiceBase implements Closeable
 {
     private static final Logger LOG = Logger.getLogger(LuceneIndexServiceBase.class.getName());
 
+    /**
+     * System property with the maximum number of cached lookup results; 0 disables the cache.
+     */
+    public static final String CACHE_SIZE_PROPERTY = "nexus-indexer.lucene.lookupCacheSize";
+    public static final int DEFAULT_CACHE_SIZE = 10_000;
+
+    /**
+     * System property with the interval, in milliseconds, between two checks for changes of the index directory;
+     * 0 disables them, leaving it to {@link #maybeRefresh()}.
+     */
+    public static final String CHANGE_CHECK_PROPERTY = "nexus-indexer.lucene.changeCheckMs";
+    public static final long DEFAULT_CHANGE_CHECK_MS = 5000;
+
     protected File directory;
     protected Directory index;
-    protected IndexReader reader;
-    protected IndexSearcher searcher;
+    private IndexSnapshotManager snapshotManager;
+    /**
+     * The reader and searcher of the current snapshot; the lookups acquire theirs with {@link #acquireSnapshot()},
+     * as these are closed once the index is reopened.
+     *
+     * @deprecated Closed under the code using them when the index is reopened, see {@link #getSearcher()}.
+     */
+    @Deprecated
+    protected volatile IndexReader reader;
+    /**
+     * @deprecated Closed under the code using it when the index is reopened, see {@link #getSearcher()}.
+     */
+    @Deprecated
+    protected volatile IndexSearcher searcher;
+    private final AtomicLong sha1FilterRejections = new AtomicLong();
+    private LookupCache cache;
+    private ScheduledExecutorService refresher;
 
 
     public LuceneIndexServiceBase(File directory)
+    {
+        this(directory, IndexDirectoryType.fromSystemProperties());
+    }
+
+    public LuceneIndexServiceBase(File directory, IndexDirectoryType directoryType)
     {
         if (directory == null || !directory.exists() || !directory.isDirectory())
             throw new IllegalArgumentException("Directory does not exist: " + directory);
@@ -42,7 +113,7 @@ public class LuceneIndexServiceBase implements Closeable
         this.directory = directory;
         try
         {
-            initialize();
+            initialize(directoryType);
         }
         catch (IOException e)
         {
@@ -51,11 +122,114 @@ public class LuceneIndexServiceBase implements Closeable
     }
 
 
-    private void initialize() throws IOException
+    private void initialize(IndexDirectoryType directoryType) throws IOException
     {
-        this.index = new SimpleFSDirectory(this.directory.toPath());
-        this.reader = DirectoryReader.open(index);
-        this.searcher = new IndexSearcher(reader);
+        this.index = directoryType.open(this.directory.toPath());
+        this.snapshotManager = new IndexSnapshotManager(this.directory, this.index);
+        updateCurrentSearcher();
+        IndexSnapshot current = this.snapshotManager.acquire();
+        try
+        {
+            this.cache = new LookupCache(Integer.getInteger(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE), current.getGeneration());
+        }
+        finally
+        {
+            this.snapshotManager.release(current);
+        }
+        this.snapshotManager.addListener(new ReferenceManager.RefreshListener()
+        {
+            @Override
+            public void beforeRefresh()
+            {
+            }
+
+            @Override
+            public void afterRefresh(boolean didRefresh) throws IOException
+            {
+                if (!didRefresh)
+                    return;
+                updateCurrentSearcher();
+                LOG.info("Reopened the changed Lucene index in: " + directory);
+            }
+        });
+
+        long changeCheckMs = Long.getLong(CHANGE_CHECK_PROPERTY, DEFAULT_CHANGE_CHECK_MS);
+        if (changeCheckMs > 0)
+        {
+            this.refresher = Executors.newSingleThreadScheduledExecutor(new RefreshThreadFactory());
+            this.refresher.scheduleWithFixedDelay(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        snapshotManager.maybeRefresh();
+                    }
+                    catch (IndexNotFoundException ex)
+                    {
+                        // The index is being replaced, and not committed yet.
+                        LOG.fine("No Lucene index to reopen yet in: " + directory);
+                    }
+                    catch (IOException | RuntimeException ex)
+                    {
+                        LOG.warning("Failed to reopen the Lucene index in: " + directory + " due to: " + ex.getMessage());
+                    }
+                }
+            }, changeCheckMs, changeCheckMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void updateCurrentSearcher() throws IOException
+    {
+        IndexSnapshot current = snapshotManager.acquire();
+        try
+        {
+            this.searcher = current.getSearcher();
+            this.reader = current.getReader();
+        }
+        finally
+        {
+            snapshotManager.release(current);
+        }
+    }
+
+    /**
+     * Reopens the index if the index directory has changed, as the background checks do.
+     * The lookups in flight are not blocked, and keep the snapshot they have acquired.
+     *
+     * @return false if another thread was already reopening the index.
+     */
+    public final boolean maybeRefresh()
+    {
+        try
+        {
+            return snapshotManager.maybeRefresh();
+        }
+        catch (IOException ex)
+        {
+            throw new RuntimeException("Error reopening Lucene index in: " + directory + "\n    " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * @return The current snapshot of the index, to be released with {@link #releaseSnapshot(IndexSnapshot)}.
+     */
+    protected IndexSnapshot acquireSnapshot() throws IOException
+    {
+        return snapshotManager.acquire();
+    }
+
+    protected void releaseSnapshot(IndexSnapshot snapshot)
+    {
+        try
+        {
+            snapshotManager.release(snapshot);
+        }
+        catch (IOException ex)
+        {
+            LOG.warning("Failed to release Lucene index searcher in: " + this.directory + " due to: " + ex.getMessage());
+        }
     }
 
 
@@ -64,7 +238,12 @@ public class LuceneIndexServiceBase implements Closeable
     {
         try
         {
-            this.reader.close();
+            if (this.refresher != null)
+            {
+                this.refresher.shutdownNow();
+                this.refresher.awaitTermination(1, TimeUnit.MINUTES);
+            }
+            this.snapshotManager.close();
             this.index.close();
         }
         catch (Exception e)
@@ -74,46 +253,62 @@ public class LuceneIndexServiceBase implements Closeable
     }
 
 
-    public int visitAllDocuments(ZipUtil.Visitor<Document> visitor)
+    /**
+     * Visits all the documents of the index, in order; see {@link #streamAllDocuments(DocTo, String...)}.
+     *
+     * @return The number of documents visited.
+     */
+    public int visitAllDocuments(final ZipUtil.Visitor<Document> visitor)
     {
-        int count = 0;
-        final IndexReader reader = searcher.getIndexReader();
-        Bits liveDocs = MultiFields.getLiveDocs(reader);
-        for (int i = 0; i < reader.maxDoc(); i++)
+        final int[] count = new int[1];
+        try (Stream<Document> documents = streamAllDocuments(doc -> doc))
         {
-            if (liveDocs != null && !liveDocs.get(i))
-                continue;
-
-            try
-            {
-                Document doc = reader.document(i);
+            documents.forEachOrdered(doc -> {
                 visitor.visit(doc);
-                count++;
-            }
-            catch (IOException ex)
-            {
-                LOG.log(Level.WARNING, "Error reading Lucene document #" + i + ": " + ex.getMessage(), ex);
-            }
+                count[0]++;
+            });
+        }
+        return count[0];
+    }
+
+    /**
+     * Streams all the live documents of the current snapshot of the index, converted by the given {@link DocTo}.
+     * The stream splits by segment and range of document ids, so a {@link Stream#parallel() parallel} stream
+     * reads the documents on several threads. The documents which can't be read are logged and skipped.
+     *
+     * The stream holds the snapshot, which may not be closed while in use, until the stream is closed: use it
+     * in a try-with-resources statement.
+     *
+     * @param fields The fields to load, e.g. the ones used by the converter; all of them if none given.
+     */
+    public <T> Stream<T> streamAllDocuments(DocTo<T> converter, String... fields)
+    {
+        final IndexSnapshot snapshot;
+        try
+        {
+            snapshot = acquireSnapshot();
         }
-        return count;
+        catch (IOException ex)
+        {
+            throw new RuntimeException("Error opening Lucene index in: " + directory + "\n    " + ex.getMessage(), ex);
+        }
+        Set<String> projection = fields.length == 0 ? null : new HashSet<>(Arrays.asList(fields));
+        return StreamSupport.stream(new DocumentSpliterator<>(snapshot, converter, projection), false)
+                    .onClose(() -> releaseSnapshot(snapshot));
     }
 
 
     /**
      * Visits each document having @fieldName field with @value using given visitor.
+     * The documents are new ones, even when found in the cache, so the visitor may keep or modify them.
      * @param maxHits Maximum number of top matching documents to visit.
      */
     public void findByField(String fieldName, String value, int maxHits, ZipUtil.Visitor<Document> visitor)
     {
-        Query query = new TermQuery(new Term(fieldName, value));
         try
         {
-            TopDocs results = this.getSearcher().search(query, maxHits);
-            for (ScoreDoc scoreDoc : results.scoreDocs)
-            {
-                Document doc = this.getSearcher().doc(scoreDoc.doc);
+            for (Document doc : findDocuments(fieldName, value, maxHits))
                 visitor.visit(doc);
-            }
         }
         catch (IOException ex)
         {
@@ -128,24 +323,236 @@ public class LuceneIndexServiceBase implements Closeable
      */
     public <T> T findSingle(String fieldName, String value, DocTo<T> converter)
     {
-        Query query = new TermQuery(new Term(fieldName, value));
         try
         {
-            TopDocs results = this.getSearcher().search(query, 1);
+            List<Document> docs = findDocuments(fieldName, value, 1);
+            return docs.isEmpty() ? null : converter.convert(docs.get(0));
+        }
+        catch (IOException ex)
+        {
+            throw new RuntimeException("Error finding single document with: " + fieldName + " == " + value
+                    + "\n    " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * @return The top documents with the given field value, from the cache if there.
+     */
+    private List<Document> findDocuments(String fieldName, String value, int maxHits) throws IOException
+    {
+        IndexSnapshot snapshot = acquireSnapshot();
+        try
+        {
+            Term term = createTerm(snapshot.getLayout(), fieldName, value);
+            if (term == null)
+                return Collections.emptyList();
+            if (DocTo.Fields.SHA1.equals(fieldName) && isRejectedBySha1Filter(snapshot, value))
+                return Collections.emptyList();
+
+            CacheKey key = new CacheKey(fieldName, value, maxHits);
+            @SuppressWarnings("unchecked")
+            List<CachedDocument> cached = (List<CachedDocument>) cache.get(key, snapshot.getGeneration());
+            if (cached != null)
+            {
+                if (cached.isEmpty())
+                    cache.countNegativeHit();
+                List<Document> docs = new ArrayList<>(cached.size());
+                for (CachedDocument doc : cached)
+                    docs.add(doc.toDocument());
+                return docs;
+            }
+
+            TopDocs results = snapshot.getSearcher().search(new TermQuery(term), maxHits);
+            DocumentLoader loader = new DocumentLoader(snapshot);
+            List<Document> docs = new ArrayList<>(results.scoreDocs.length);
+            cached = new ArrayList<>(results.scoreDocs.length);
             for (ScoreDoc scoreDoc : results.scoreDocs)
             {
-                Document doc = this.getSearcher().doc(scoreDoc.doc);
-                return converter.convert(doc);
+                Document doc = loader.load(scoreDoc.doc);
+                docs.add(doc);
+                cached.add(new CachedDocument(doc));
+            }
+            cache.put(key, Collections.unmodifiableList(cached), snapshot.getGeneration());
+            return docs;
+        }
+        finally
+        {
+            releaseSnapshot(snapshot);
+        }
+    }
+
+    /**
+     * Finds the documents of many SHA1s at once, e.g. of all the jars embedded in an application, in a single sweep
+     * of the index: the SHA1 terms are sorted, and looked up in that order in the terms of each segment, then the
+     * documents of the hits are loaded in document order. Returns the same documents as {@link #findSingle}.
+     * The SHA1s are lower case hex, as in the index: the others are not found, as by {@link #findSingle}.
+     *
+     * @return The converted document of each SHA1 found, by SHA1, as given.
+     */
+    public <T> Map<String, T> findBySha1s(Collection<String> sha1s, DocTo<T> converter)
+    {
+        try
+        {
+            IndexSnapshot snapshot = acquireSnapshot();
+            try
+            {
+                return findBySha1s(snapshot, sha1s, converter);
+            }
+            finally
+            {
+                releaseSnapshot(snapshot);
             }
-            return null;
         }
         catch (IOException ex)
         {
-            throw new RuntimeException("Error finding single document with: " + fieldName + " == " + value
+            throw new RuntimeException("Error finding the documents of " + sha1s.size() + " SHA1s"
                     + "\n    " + ex.getMessage(), ex);
         }
     }
 
+    private <T> Map<String, T> findBySha1s(IndexSnapshot snapshot, Collection<String> sha1s, DocTo<T> converter) throws IOException
+    {
+        long generation = snapshot.getGeneration();
+        Map<String, T> results = new HashMap<>();
+        // The terms in the order of the term dictionaries, with their SHA1s as given: several ones may have the same term.
+        SortedMap<BytesRef, List<String>> keys = new TreeMap<>();
+        for (String sha1 : sha1s)
+        {
+            BytesRef term = sha1 == null ? null : snapshot.getLayout().sha1Term(sha1);
+            if (term == null || isRejectedBySha1Filter(snapshot, sha1))
+                continue;
+
+            // Shares the cache entries of findSingle().
+            @SuppressWarnings("unchecked")
+            List<CachedDocument> cached = (List<CachedDocument>) cache.get(new CacheKey(DocTo.Fields.SHA1, sha1, 1), generation);
+            if (cached == null)
+                keys.computeIfAbsent(term, key -> new ArrayList<>(1)).add(sha1);
+            else if (cached.isEmpty())
+                cache.countNegativeHit();
+            else
+                results.put(sha1, converter.convert(cached.get(0).toDocument()));
+        }
+        if (keys.isEmpty())
+            return results;
+
+        Map<BytesRef, Document> found = findDocumentsBySha1s(snapshot, keys.keySet());
+        for (Map.Entry<BytesRef, List<String>> key : keys.entrySet())
+        {
+            Document doc = found.get(key.getKey());
+            CachedDocument cached = doc == null ? null : new CachedDocument(doc);
+            List<CachedDocument> entry = cached == null ? Collections.<CachedDocument>emptyList() : Collections.singletonList(cached);
+            List<String> termSha1s = key.getValue();
+            for (int i = 0; i < termSha1s.size(); i++)
+            {
+                cache.put(new CacheKey(DocTo.Fields.SHA1, termSha1s.get(i), 1), entry, generation);
+                // Each SHA1 gets its own document, which the converter may keep.
+                if (doc != null)
+                    results.put(termSha1s.get(i), converter.convert(i == 0 ? doc : cached.toDocument()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @param terms The SHA1 terms, looked up in order.
+     * @return The first live document of each SHA1 term found, as findSingle.
+     */
+    private static Map<BytesRef, Document> findDocumentsBySha1s(IndexSnapshot snapshot, Set<BytesRef> terms) throws IOException
+    {
+        IndexReader reader = snapshot.getReader();
+        Set<BytesRef> remaining = new TreeSet<>(terms);
+        SortedMap<Integer, BytesRef> hits = new TreeMap<>();
+        PostingsEnum postings = null;
+        for (LeafReaderContext leaf : reader.leaves())
+        {
+            if (remaining.isEmpty())
+                break;
+            Terms leafTerms = leaf.reader().terms(DocTo.Fields.SHA1);
+            if (leafTerms == null)
+                continue;
+            TermsEnum termsEnum = leafTerms.iterator();
+            Bits liveDocs = leaf.reader().getLiveDocs();
+            for (Iterator<BytesRef> it = remaining.iterator(); it.hasNext(); )
+            {
+                BytesRef term = it.next();
+                if (!termsEnum.seekExact(term))
+                    continue;
+                postings = termsEnum.postings(postings, PostingsEnum.NONE);
+                for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc())
+                {
+                    if (liveDocs == null || liveDocs.get(doc))
+                    {
+                        hits.put(leaf.docBase + doc, term);
+                        it.remove();
+                        break;
+                    }
+                }
+            }
+        }
+
+        // Loads the documents in order.
+        DocumentLoader loader = new DocumentLoader(snapshot);
+        Map<BytesRef, Document> found = new HashMap<>(hits.size() * 2);
+        for (Map.Entry<Integer, BytesRef> hit : hits.entrySet())
+            found.put(hit.getValue(), loader.load(hit.getKey()));
+        return found;
+    }
+
+    /**
+     * @return Whether the SHA1 is certainly not in the index, according to its Bloom filter.
+     */
+    private boolean isRejectedBySha1Filter(IndexSnapshot snapshot, String sha1)
+    {
+        Sha1BloomFilter filter = snapshot.getSha1Filter();
+        if (filter == null || filter.mightContain(sha1))
+            return false;
+        sha1FilterRejections.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * @return The term to search, the SHA1s being encoded as in the index {@link IndexLayout}; null if no document can match.
+     */
+    protected Term createTerm(IndexLayout layout, String fieldName, String value)
+    {
+        if (!DocTo.Fields.SHA1.equals(fieldName))
+            return new Term(fieldName, value);
+        BytesRef sha1 = layout.sha1Term(value);
+        return sha1 == null ? null : new Term(fieldName, sha1);
+    }
+
+    /**
+     * Searches the current snapshot of the index with the given function, which may use the searcher until it returns:
+     * the snapshot is held meanwhile, even if the index is reopened.
+     */
+    public final <T> T withSearcher(SearcherFunction<T> function)
+    {
+        try
+        {
+            IndexSnapshot snapshot = acquireSnapshot();
+            try
+            {
+                return function.apply(snapshot.getSearcher());
+            }
+            finally
+            {
+                releaseSnapshot(snapshot);
+            }
+        }
+        catch (IOException ex)
+        {
+            throw new RuntimeException("Error searching Lucene index in: " + directory + "\n    " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * @return The searcher of the current snapshot of the index. It is closed once the index is reopened, in the background
+     *         every {@value #CHANGE_CHECK_PROPERTY} milliseconds or by {@link #maybeRefresh()}: a search with it may then
+     *         fail with an {@link org.apache.lucene.store.AlreadyClosedException}. It stays open only if these checks
+     *         are disabled and {@link #maybeRefresh()} is not called.
+     * @deprecated Use {@link #withSearcher(SearcherFunction)}, which holds the searcher while it is used.
+     */
+    @Deprecated
     public final IndexSearcher getSearcher()
     {
         return searcher;
@@ -156,4 +563,136 @@ public class LuceneIndexServiceBase implements Closeable
         return directory;
     }
 
+    public final IndexLayout getLayout()
+    {
+        try
+        {
+            IndexSnapshot snapshot = acquireSnapshot();
+            try
+            {
+                return snapshot.getLayout();
+            }
+            finally
+            {
+                releaseSnapshot(snapshot);
+            }
+        }
+        catch (IOException ex)
+        {
+            throw new RuntimeException("Error opening Lucene index in: " + directory + "\n    " + ex.getMessage(), ex);
+        }
+    }
+
+    public final LookupCache.Stats getCacheStats()
+    {
+        return cache.getStats();
+    }
+
+    /**
+     * @return The number of SHA1 lookups rejected by the Bloom filter of the index.
+     */
+    public final long getSha1FilterRejections()
+    {
+        return sha1FilterRejections.get();
+    }
+
+
+    /**
+     * A search with the searcher of a snapshot of the index, see {@link #withSearcher(SearcherFunction)}.
+     */
+    public interface SearcherFunction<T>
+    {
+        T apply(IndexSearcher searcher) throws IOException;
+    }
+
+    private static final class RefreshThreadFactory implements ThreadFactory
+    {
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+            Thread thread = new Thread(runnable, "nexus-indexer-index-refresh");
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * The stored fields of a found document, as cached: immutable, each lookup getting a new {@link Document}.
+     */
+    private static final class CachedDocument
+    {
+        private final String[] names;
+        // String, Number or BytesRef values
+        private final Object[] values;
+
+        CachedDocument(Document doc)
+        {
+            List<IndexableField> fields = doc.getFields();
+            this.names = new String[fields.size()];
+            this.values = new Object[fields.size()];
+            for (int i = 0; i < names.length; i++)
+            {
+                IndexableField field = fields.get(i);
+                names[i] = field.name();
+                if (field.stringValue() != null)
+                    values[i] = field.stringValue();
+                else if (field.numericValue() != null)
+                    values[i] = field.numericValue();
+                else if (field.binaryValue() != null)
+                    values[i] = BytesRef.deepCopyOf(field.binaryValue());
+            }
+        }
+
+        Document toDocument()
+        {
+            Document doc = new Document();
+            for (int i = 0; i < names.length; i++)
+            {
+                Object value = values[i];
+                if (value instanceof String)
+                    doc.add(new StoredField(names[i], (String) value));
+                else if (value instanceof Integer)
+                    doc.add(new StoredField(names[i], (Integer) value));
+                else if (value instanceof Long)
+                    doc.add(new StoredField(names[i], (Long) value));
+                else if (value instanceof Float)
+                    doc.add(new StoredField(names[i], (Float) value));
+                else if (value instanceof Double)
+                    doc.add(new StoredField(names[i], (Double) value));
+                else if (value instanceof BytesRef)
+                    doc.add(new StoredField(names[i], BytesRef.deepCopyOf((BytesRef) value)));
+            }
+            return doc;
+        }
+    }
+
+    private static final class CacheKey
+    {
+        private final String field;
+        private final String value;
+        private final int maxHits;
+
+        CacheKey(String field, String value, int maxHits)
+        {
+            this.field = field;
+            this.value = value;
+            this.maxHits = maxHits;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof CacheKey))
+                return false;
+            CacheKey other = (CacheKey) obj;
+            return maxHits == other.maxHits && field.equals(other.field) && value.equals(other.value);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return (31 * field.hashCode() + value.hashCode()) * 31 + maxHits;
+        }
+    }
+
 }
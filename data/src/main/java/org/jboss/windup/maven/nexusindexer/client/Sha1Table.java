@@ -0,0 +1,362 @@
+package org.jboss.windup.maven.nexusindexer.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.jboss.windup.maven.nexusindexer.Sha1TableArtifactVisitor;
+import org.jboss.windup.maven.nexusindexer.ZipUtil;
+
+import static org.jboss.windup.maven.nexusindexer.Sha1TableArtifactVisitor.ENTRY_SIZE;
+import static org.jboss.windup.maven.nexusindexer.Sha1TableArtifactVisitor.FAN_OUT_SIZE;
+import static org.jboss.windup.maven.nexusindexer.Sha1TableArtifactVisitor.FORMAT_VERSION;
+import static org.jboss.windup.maven.nexusindexer.Sha1TableArtifactVisitor.HEADER_SIZE;
+import static org.jboss.windup.maven.nexusindexer.Sha1TableArtifactVisitor.MAGIC;
+
+/**
+ * Looks up the artifacts by SHA1 in a SHA1 table, written by {@link Sha1TableArtifactVisitor} for the TABLE output format,
+ * memory mapped: the same lookups as {@link LuceneIndexServiceBase}, with the same {@link DocTo} conversions, without Lucene.
+ *
+ * A lookup narrows the entries to the ones starting with the same byte with the fan-out table, then, the SHA1s being
+ * uniformly distributed, guesses the position of the SHA1 from its value, and searches around the guess, exponentially
+ * then by bisection. {@link #contains(String)} allocates nothing; the documents of the found artifacts are created
+ * from the coordinates of the pool.
+ *
+ * The table is immutable, so it can be shared by any number of threads. A new file replaces the previous one
+ * atomically: the tables already mapped keep reading the previous one.
+ */
+public final class Sha1Table
+{
+    /**
+     * How far from the guessed position the SHA1 is searched with exponential steps, before falling back to the whole range.
+     */
+    private static final int MAX_GALLOP_STEP = 1 << 16;
+
+    private final File file;
+    private final ByteBuffer entries;
+    private final ByteBuffer pool;
+    private final int[] fanOut = new int[256];
+    private final int size;
+
+
+    private Sha1Table(File file, ByteBuffer entries, ByteBuffer pool, int size)
+    {
+        this.file = file;
+        this.entries = entries;
+        this.pool = pool;
+        this.size = size;
+    }
+
+    /**
+     * Maps the given SHA1 table file in memory, read-only.
+     */
+    public static Sha1Table map(File file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            final long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE + FAN_OUT_SIZE)
+                throw new IOException("Not a SHA1 table file of version " + FORMAT_VERSION + ": " + file);
+            final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE + FAN_OUT_SIZE);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION)
+                throw new IOException("Not a SHA1 table file of version " + FORMAT_VERSION + ": " + file);
+
+            final long entryCount = header.getLong(8);
+            final long poolOffset = header.getLong(16);
+            final long poolSize = header.getLong(24);
+            if (entryCount < 0 || entryCount * ENTRY_SIZE > Integer.MAX_VALUE || poolSize < 0 || poolSize > Integer.MAX_VALUE
+                        || poolOffset != HEADER_SIZE + FAN_OUT_SIZE + entryCount * ENTRY_SIZE || poolOffset + poolSize != fileSize)
+                throw new IOException("Corrupted SHA1 table file: " + file);
+
+            final Sha1Table table = new Sha1Table(file,
+                        channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + FAN_OUT_SIZE, entryCount * ENTRY_SIZE),
+                        channel.map(FileChannel.MapMode.READ_ONLY, poolOffset, poolSize),
+                        (int) entryCount);
+            int previous = 0;
+            for (int i = 0; i < 256; i++)
+            {
+                final int count = header.getInt(HEADER_SIZE + 4 * i);
+                if (count < previous)
+                    throw new IOException("Corrupted SHA1 table file: " + file);
+                table.fanOut[i] = previous = count;
+            }
+            if (previous != entryCount)
+                throw new IOException("Corrupted SHA1 table file: " + file);
+            return table;
+        }
+    }
+
+
+    /**
+     * @return The number of artifacts in the table.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return Whether an artifact has the given lower case hex SHA1.
+     */
+    public boolean contains(String sha1)
+    {
+        return find(sha1) >= 0;
+    }
+
+    /**
+     * @return The first artifact with the given SHA1, in the order of the coordinates, converted; null if there is none.
+     */
+    public <T> T findSingle(String sha1, DocTo<T> converter)
+    {
+        final int index = find(sha1);
+        return index < 0 ? null : converter.convert(document(index));
+    }
+
+    /**
+     * Visits the artifacts with the given SHA1, in the order of their coordinates.
+     *
+     * @param maxHits Maximum number of artifacts to visit.
+     */
+    public void findBySha1(String sha1, int maxHits, ZipUtil.Visitor<Document> visitor)
+    {
+        final int index = find(sha1);
+        if (index < 0)
+            return;
+        final long high = entries.getLong(index * ENTRY_SIZE);
+        final long middle = entries.getLong(index * ENTRY_SIZE + 8);
+        final int low = entries.getInt(index * ENTRY_SIZE + 16);
+        for (int i = index; i < size && i - index < maxHits && compare(i, high, middle, low) == 0; i++)
+            visitor.visit(document(i));
+    }
+
+    /**
+     * Finds the artifacts of many SHA1s at once; see {@link LuceneIndexServiceBase#findBySha1s(Collection, DocTo)}.
+     *
+     * @return The converted first artifact of each SHA1 found, by SHA1.
+     */
+    public <T> Map<String, T> findBySha1s(Collection<String> sha1s, DocTo<T> converter)
+    {
+        final Map<String, T> results = new HashMap<>();
+        for (String sha1 : sha1s)
+        {
+            final int index = find(sha1);
+            if (index >= 0)
+                results.put(sha1, converter.convert(document(index)));
+        }
+        return results;
+    }
+
+    /**
+     * Visits all the artifacts of the table, in the order of their SHA1s.
+     *
+     * @return The number of artifacts visited.
+     */
+    public int visitAllDocuments(final ZipUtil.Visitor<Document> visitor)
+    {
+        for (int i = 0; i < size; i++)
+            visitor.visit(document(i));
+        return size;
+    }
+
+    /**
+     * Streams all the artifacts of the table, in the order of their SHA1s, converted by the given {@link DocTo}.
+     * A {@link Stream#parallel() parallel} stream converts them on several threads.
+     */
+    public <T> Stream<T> streamAllDocuments(DocTo<T> converter)
+    {
+        return IntStream.range(0, size).mapToObj(i -> converter.convert(document(i)));
+    }
+
+    public File getFile()
+    {
+        return file;
+    }
+
+
+    /**
+     * @return The index of the first entry with the given SHA1, or -1 if there is none or it is not a lower case hex SHA1.
+     */
+    private int find(String sha1)
+    {
+        if (sha1 == null || sha1.length() != 40 || !isHex(sha1))
+            return -1;
+        final long high = parseHex(sha1, 0, 16);
+        final long middle = parseHex(sha1, 16, 32);
+        final int low = (int) parseHex(sha1, 32, 40);
+
+        final int first = (int) (high >>> 56);
+        final int from = first == 0 ? 0 : fanOut[first - 1];
+        final int to = fanOut[first];
+        if (from == to)
+            return -1;
+
+        // The next 32 bits of the SHA1 tell where it would be among the entries with the same first byte.
+        final int guess = from + (int) ((((high << 8) >>> 32) * (to - from)) >>> 32);
+        final int index = lowerBound(from, to, guess, high, middle, low);
+        return index < to && compare(index, high, middle, low) == 0 ? index : -1;
+    }
+
+    /**
+     * @return The index of the first entry in [from, to) not lower than the given SHA1, or to if there is none,
+     *         searched from the given guess.
+     */
+    private int lowerBound(int from, int to, int guess, long high, long middle, int low)
+    {
+        int lower;
+        int upper;
+        if (compare(guess, high, middle, low) < 0)
+        {
+            // After the guess: the entries up to the first one found not lower.
+            lower = guess + 1;
+            upper = to;
+            for (int step = 1; step <= MAX_GALLOP_STEP && guess + step < to; step <<= 1)
+            {
+                if (compare(guess + step, high, middle, low) >= 0)
+                {
+                    upper = guess + step;
+                    break;
+                }
+                lower = guess + step + 1;
+            }
+        }
+        else
+        {
+            // At or before the guess: the entries after the last one found lower.
+            lower = from;
+            upper = guess;
+            for (int step = 1; step <= MAX_GALLOP_STEP && guess - step >= from; step <<= 1)
+            {
+                if (compare(guess - step, high, middle, low) < 0)
+                {
+                    lower = guess - step + 1;
+                    break;
+                }
+                upper = guess - step;
+            }
+        }
+
+        while (lower < upper)
+        {
+            final int mid = (lower + upper) >>> 1;
+            if (compare(mid, high, middle, low) < 0)
+                lower = mid + 1;
+            else
+                upper = mid;
+        }
+        return lower;
+    }
+
+    private int compare(int index, long high, long middle, int low)
+    {
+        final int position = index * ENTRY_SIZE;
+        int result = Long.compareUnsigned(entries.getLong(position), high);
+        if (result == 0)
+            result = Long.compareUnsigned(entries.getLong(position + 8), middle);
+        if (result == 0)
+            result = Integer.compareUnsigned(entries.getInt(position + 16), low);
+        return result;
+    }
+
+    private static boolean isHex(String hex)
+    {
+        for (int i = 0; i < hex.length(); i++)
+        {
+            final char c = hex.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f'))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return The value of the given lower case hex digits, at most 16.
+     */
+    private static long parseHex(String hex, int from, int to)
+    {
+        long value = 0;
+        for (int i = from; i < to; i++)
+        {
+            final char c = hex.charAt(i);
+            value = (value << 4) | (c <= '9' ? c - '0' : c - 'a' + 10);
+        }
+        return value;
+    }
+
+
+    /**
+     * @return The document of the entry at the given index, with the stored fields of the Lucene index.
+     */
+    private Document document(int index)
+    {
+        final PoolReader reader = new PoolReader(pool.duplicate(), entries.getInt(index * ENTRY_SIZE + 20));
+        final String group = reader.sharedString();
+        final String packaging = reader.sharedString();
+        final String classifier = reader.sharedString();
+        final String artifactId = reader.string();
+        final String version = reader.string();
+
+        final Document doc = new Document();
+        doc.add(new StoredField(DocTo.Fields.GROUP_ID, group));
+        doc.add(new StoredField(DocTo.Fields.ARTIFACT_ID, artifactId));
+        doc.add(new StoredField(DocTo.Fields.PACKAGING, packaging));
+        doc.add(new StoredField(DocTo.Fields.CLASSIFIER, classifier));
+        doc.add(new StoredField(DocTo.Fields.VERSION, version));
+        return doc;
+    }
+
+
+    /**
+     * Reads the coordinates of an entry from the pool; see {@link Sha1TableArtifactVisitor} for their format.
+     */
+    private static final class PoolReader
+    {
+        private final ByteBuffer pool;
+
+        PoolReader(ByteBuffer pool, int offset)
+        {
+            this.pool = pool;
+            pool.position(offset);
+        }
+
+        /**
+         * Reads a string stored once in the pool, given by its offset.
+         */
+        String sharedString()
+        {
+            final int offset = varint();
+            final int position = pool.position();
+            pool.position(offset);
+            final String value = string();
+            pool.position(position);
+            return value;
+        }
+
+        String string()
+        {
+            final byte[] bytes = new byte[varint()];
+            pool.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int varint()
+        {
+            int value = 0;
+            for (int shift = 0; ; shift += 7)
+            {
+                final byte b = pool.get();
+                value |= (b & 0x7f) << shift;
+                if (b >= 0)
+                    return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package org.jboss.windup.maven.nexusindexer.client;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Compares two sets of text metadata files, each file sorted by line as written by the indexer, in a single streaming merge:
+ * the lines of all the files of each set are merged, grouped by SHA1, and the groups of the two sets with the same SHA1 compared.
+ * A group differs when a line was added, removed or moved to another file. The empty lines and the lines starting with '#' are skipped.
+ *
+ * The files of each set are ordered as given, and matched by name with the other set.
+ * The checksums of all the files are computed on the way, see {@link #checksum(File)}.
+ */
+final class SortedLineDiff
+{
+    private final List<File> oldFiles;
+    private final List<File> newFiles;
+    private final Map<String, String> oldChecksums = new TreeMap<>();
+    private final Map<String, String> newChecksums = new TreeMap<>();
+
+
+    /**
+     * Receives the groups of lines with the same SHA1, in the order of the SHA1s.
+     */
+    interface Handler
+    {
+        void unchanged(List<Line> lines) throws IOException;
+
+        /**
+         * @param oldLines The lines of the old files, possibly none.
+         * @param newLines The lines of the new files, possibly none.
+         */
+        void changed(String sha1, List<Line> oldLines, List<Line> newLines) throws IOException;
+    }
+
+
+    /**
+     * A line of a file, with its number for the error messages.
+     */
+    static final class Line
+    {
+        final File file;
+        final int fileIndex;
+        final int lineNumber;
+        final String text;
+
+        Line(File file, int fileIndex, int lineNumber, String text)
+        {
+            this.file = file;
+            this.fileIndex = fileIndex;
+            this.lineNumber = lineNumber;
+            this.text = text;
+        }
+    }
+
+
+    SortedLineDiff(List<File> oldFiles, List<File> newFiles)
+    {
+        this.oldFiles = oldFiles;
+        this.newFiles = newFiles;
+    }
+
+
+    /**
+     * @throws IOException If a file is not sorted.
+     */
+    void diff(Handler handler) throws IOException
+    {
+        try (LineMerger oldLines = new LineMerger(oldFiles, oldChecksums);
+             LineMerger newLines = new LineMerger(newFiles, newChecksums))
+        {
+            while (oldLines.hasNext() || newLines.hasNext())
+            {
+                String key;
+                if (!oldLines.hasNext())
+                    key = newLines.nextKey();
+                else if (!newLines.hasNext())
+                    key = oldLines.nextKey();
+                else
+                {
+                    String oldKey = oldLines.nextKey();
+                    String newKey = newLines.nextKey();
+                    key = oldKey.compareTo(newKey) <= 0 ? oldKey : newKey;
+                }
+
+                List<Line> oldGroup = oldLines.nextGroup(key);
+                List<Line> newGroup = newLines.nextGroup(key);
+                if (sameLines(oldGroup, newGroup))
+                    handler.unchanged(newGroup);
+                else
+                    handler.changed(key.substring(0, key.length() - 1), oldGroup, newGroup);
+            }
+        }
+    }
+
+    /**
+     * @return The checksums of the old files read by {@link #diff(Handler)}, by file name.
+     */
+    Map<String, String> getOldChecksums()
+    {
+        return oldChecksums;
+    }
+
+    /**
+     * @return The checksums of the new files read by {@link #diff(Handler)}, by file name.
+     */
+    Map<String, String> getNewChecksums()
+    {
+        return newChecksums;
+    }
+
+    /**
+     * @return The size and the CRC32 of the file, as compared with the ones computed by {@link #diff(Handler)}.
+     */
+    static String checksum(File file) throws IOException
+    {
+        try (CheckedInputStream input = new CheckedInputStream(new FileInputStream(file), new CRC32()))
+        {
+            byte[] buffer = new byte[64 << 10];
+            long size = 0;
+            for (int read; (read = input.read(buffer)) >= 0; )
+                size += read;
+            return formatChecksum(size, input.getChecksum().getValue());
+        }
+    }
+
+    private static String formatChecksum(long size, long crc)
+    {
+        return size + ":" + Long.toHexString(crc);
+    }
+
+    private static boolean sameLines(List<Line> oldLines, List<Line> newLines)
+    {
+        if (oldLines.size() != newLines.size())
+            return false;
+        for (int i = 0; i < oldLines.size(); i++)
+        {
+            Line oldLine = oldLines.get(i);
+            Line newLine = newLines.get(i);
+            if (!oldLine.text.equals(newLine.text) || !oldLine.file.getName().equals(newLine.file.getName()))
+                return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * Merges the lines of several sorted files, in the order of the lines, then of the files.
+     */
+    private static final class LineMerger implements Closeable
+    {
+        private final PriorityQueue<LineSource> sources = new PriorityQueue<>(Comparator
+                    .comparing((LineSource source) -> source.current.text)
+                    .thenComparingInt(source -> source.current.fileIndex));
+        private final List<LineSource> openSources = new ArrayList<>();
+        private final Map<String, String> checksums;
+
+        LineMerger(List<File> files, Map<String, String> checksums) throws IOException
+        {
+            this.checksums = checksums;
+            try
+            {
+                for (int i = 0; i < files.size(); i++)
+                {
+                    LineSource source = new LineSource(files.get(i), i);
+                    openSources.add(source);
+                    advance(source);
+                }
+            }
+            catch (IOException | RuntimeException ex)
+            {
+                close();
+                throw ex;
+            }
+        }
+
+        boolean hasNext()
+        {
+            return !sources.isEmpty();
+        }
+
+        /**
+         * @return The SHA1 of the next line, followed by the space separating it from the coordinates, which keeps the order
+         *         of the SHA1s the same as the order of the lines.
+         */
+        String nextKey()
+        {
+            return key(sources.peek().current);
+        }
+
+        /**
+         * @return The next lines with the given key, in the order of the files, then of the lines.
+         */
+        List<Line> nextGroup(String key) throws IOException
+        {
+            if (sources.isEmpty() || !key.equals(nextKey()))
+                return Collections.emptyList();
+
+            List<Line> group = new ArrayList<>();
+            while (!sources.isEmpty() && key.equals(nextKey()))
+            {
+                LineSource source = sources.poll();
+                group.add(source.current);
+                advance(source);
+            }
+            group.sort(Comparator.comparingInt((Line line) -> line.fileIndex).thenComparingInt(line -> line.lineNumber));
+            return group;
+        }
+
+        private void advance(LineSource source) throws IOException
+        {
+            if (source.next())
+                sources.add(source);
+            else
+                checksums.put(source.file.getName(), formatChecksum(source.size, source.input.getChecksum().getValue()));
+        }
+
+        private static String key(Line line)
+        {
+            int space = line.text.indexOf(' ');
+            if (space < 0)
+                throw new IllegalArgumentException("Expected 'SHA1 GROUP_ID:ARTIFACT_ID:[PACKAGING:[COORDINATE:]]VERSION', but was: [" + line.text
+                            + "] in [" + line.file + "] at line [" + line.lineNumber + "]");
+            return line.text.substring(0, space + 1);
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            IOException failure = null;
+            for (LineSource source : openSources)
+            {
+                try
+                {
+                    source.reader.close();
+                }
+                catch (IOException ex)
+                {
+                    failure = ex;
+                }
+            }
+            if (failure != null)
+                throw failure;
+        }
+    }
+
+
+    private static final class LineSource
+    {
+        private final File file;
+        private final int fileIndex;
+        private final long size;
+        private final CheckedInputStream input;
+        private final BufferedReader reader;
+        private Line current;
+        private int lineNumber;
+
+        LineSource(File file, int fileIndex) throws IOException
+        {
+            this.file = file;
+            this.fileIndex = fileIndex;
+            this.size = file.length();
+            this.input = new CheckedInputStream(new FileInputStream(file), new CRC32());
+            this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 64 << 10);
+        }
+
+        /**
+         * Reads the next artifact line, checking that the lines are sorted.
+         */
+        boolean next() throws IOException
+        {
+            String text;
+            while ((text = reader.readLine()) != null)
+            {
+                lineNumber++;
+                if (text.startsWith("#") || text.trim().isEmpty())
+                    continue;
+                if (current != null && text.compareTo(current.text) < 0)
+                    throw new IOException("The lines are not sorted in [" + file + "] at line [" + lineNumber + "]");
+                current = new Line(file, fileIndex, lineNumber, text);
+                return true;
+            }
+            current = null;
+            return false;
+        }
+    }
+}
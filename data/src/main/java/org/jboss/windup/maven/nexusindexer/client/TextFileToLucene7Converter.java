@@ -1,23 +1,61 @@
 package org.jboss.windup.maven.nexusindexer.client;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.lang3.StringUtils;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.CodecReader;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafMetaData;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.SlowCodecReaderWrapper;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.SimpleFSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
 import org.jboss.windup.maven.nexusindexer.ArtifactFilter;
+import org.jboss.windup.maven.nexusindexer.Sha1BloomFilter;
 
 /**
  * @author <a href="mailto:jesse.sightler@gmail.com">Jesse Sightler</a>
@@ -33,10 +71,55 @@ public class TextFileToLucene7Converter
     public static final String PACKAGING = "packaging";
     public static final String CLASSIFIER = "classifier";
     public static final String VERSION = "version";
+
+    /**
+     * System property telling whether the created index is sorted by SHA1 and merged into a single segment, true by default.
+     */
+    public static final String SORT_BY_SHA1_PROPERTY = "nexus-indexer.lucene.sortBySha1";
+
+    /**
+     * System property with the number of threads converting the input files. Defaults to the number of available processors.
+     */
+    public static final String THREADS_PROPERTY = "nexus-indexer.convert.threads";
+
+    /**
+     * System property telling whether {@link #main(String[])} updates the existing index from the changes of the input files
+     * since it was converted, see {@link #update(File, ArtifactFilter, List, List)}, false by default. The converted indexes
+     * then have a manifest.
+     */
+    public static final String INCREMENTAL_PROPERTY = "nexus-indexer.convert.incremental";
+
+    /**
+     * The prefix of the keys of the manifest of the index: the checksums of the converted input files, by file name,
+     * in the user data of the index commit.
+     */
+    public static final String MANIFEST_INPUT_PREFIX = "input:";
+
+    /**
+     * The default size of the chunks of the input files converted by a thread, see {@link #convert(List, int)}.
+     */
+    static final long CHUNK_SIZE = 16 << 20;
+
+    /**
+     * The position of the artifact in the input, which orders the artifacts with the same SHA1 in the sorted index.
+     * Only in the staging index.
+     */
+    private static final String POSITION = "inputPosition";
+
     private final ArtifactFilter filter;
+    private final IndexLayout layout;
+    private final boolean sortBySha1;
+    private final boolean withManifest;
+    private final Sha1BloomFilter.Builder sha1Filter = new Sha1BloomFilter.Builder();
+    private final AtomicLong visits = new AtomicLong();
+    private final ThreadLocal<ArtifactDocument> threadDocument;
+    private int convertedFiles;
+    private long chunkSize = CHUNK_SIZE;
+    private final Map<String, String> manifest = Collections.synchronizedMap(new TreeMap<>());
     private final File indexDir;
     private final IndexWriter indexWriter;
     private SimpleFSDirectory luceneOutputDirResource;
+    private File stagingDir;
 
     public static void main(String[] args) throws Exception
     {
@@ -52,17 +135,70 @@ public class TextFileToLucene7Converter
         File[] childFiles = inputFile.listFiles();
         if (childFiles == null)
             throw new RuntimeException("No files in input directory: " + inputFile);
+        // In the same order on every run.
+        Arrays.sort(childFiles);
 
-        TextFileToLucene7Converter converter = new TextFileToLucene7Converter(outputDir, ArtifactFilter.LIBRARIES);
-        for (int i = 0; i < childFiles.length; i++)
+        List<File> inputFiles = Arrays.asList(childFiles);
+        int threads = Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+        if (Boolean.getBoolean(INCREMENTAL_PROPERTY))
         {
-            File childFile = childFiles[i];
-            LOG.info("Indexing: " + childFile);
-            converter.convert(childFile);
+            convertIncrementally(inputFiles, outputDir, threads);
+            return;
         }
+
+        TextFileToLucene7Converter converter = new TextFileToLucene7Converter(outputDir, ArtifactFilter.LIBRARIES);
+        converter.convert(inputFiles, threads);
         converter.done();
     }
 
+    /**
+     * Updates the index from the copies of the input files it was converted from, kept next to it, or converts all the input
+     * files if it can't be updated. Then keeps copies of the input files for the next run.
+     */
+    private static void convertIncrementally(List<File> inputFiles, File outputDir, int threads) throws IOException
+    {
+        File previousInputsDir = new File(outputDir.getParentFile(), outputDir.getName() + ".inputs");
+        File newInputsDir = new File(outputDir.getParentFile(), outputDir.getName() + ".inputs.new");
+        FileUtils.deleteDirectory(newInputsDir);
+        List<File> copies = new ArrayList<>();
+        for (File inputFile : inputFiles)
+        {
+            File copy = new File(newInputsDir, inputFile.getName());
+            FileUtils.copyFile(inputFile, copy);
+            copies.add(copy);
+        }
+
+        boolean updated = false;
+        File[] previousInputs = previousInputsDir.listFiles();
+        if (previousInputs == null)
+            LOG.info("Converting all the input files, no copies of the previous ones in: " + previousInputsDir);
+        else if (IndexLayout.read(outputDir) != IndexLayout.fromSystemProperties())
+            LOG.info("Converting all the input files, the index has the " + IndexLayout.read(outputDir) + " layout: " + outputDir);
+        else
+        {
+            Arrays.sort(previousInputs);
+            try
+            {
+                update(outputDir, ArtifactFilter.LIBRARIES, Arrays.asList(previousInputs), copies);
+                updated = true;
+            }
+            catch (IOException ex)
+            {
+                LOG.warning("Converting all the input files, the index can't be updated: " + ex.getMessage());
+            }
+        }
+        if (!updated)
+        {
+            TextFileToLucene7Converter converter = new TextFileToLucene7Converter(outputDir, ArtifactFilter.LIBRARIES, IndexLayout.fromSystemProperties(),
+                        Boolean.parseBoolean(System.getProperty(SORT_BY_SHA1_PROPERTY, "true")), true);
+            converter.convert(copies, threads);
+            converter.done();
+        }
+
+        FileUtils.deleteDirectory(previousInputsDir);
+        Files.move(newInputsDir.toPath(), previousInputsDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    }
+
     private static void printUsage()
     {
         System.err.println("  Usage:");
@@ -74,19 +210,52 @@ public class TextFileToLucene7Converter
     }
 
     public TextFileToLucene7Converter(File outputDir, ArtifactFilter filter)
+    {
+        this(outputDir, filter, IndexLayout.fromSystemProperties(), Boolean.parseBoolean(System.getProperty(SORT_BY_SHA1_PROPERTY, "true")),
+                    Boolean.getBoolean(INCREMENTAL_PROPERTY));
+    }
+
+    /**
+     * @param sortBySha1 Whether to sort the documents by SHA1 and merge the index into a single segment in {@link #done()}:
+     *                   a lookup then searches a single term dictionary, and lookups of sorted SHA1s read the documents in order.
+     */
+    public TextFileToLucene7Converter(File outputDir, ArtifactFilter filter, IndexLayout layout, boolean sortBySha1)
+    {
+        this(outputDir, filter, layout, sortBySha1, false);
+    }
+
+    /**
+     * @param withManifest Whether to commit the index with the manifest of the input files, see {@link #MANIFEST_INPUT_PREFIX},
+     *                     which {@link #update(File, ArtifactFilter, List, List)} needs: their checksums take one more
+     *                     read of each of them.
+     */
+    public TextFileToLucene7Converter(File outputDir, ArtifactFilter filter, IndexLayout layout, boolean sortBySha1, boolean withManifest)
     {
         try
         {
             this.filter = filter;
+            this.layout = layout;
+            this.sortBySha1 = sortBySha1;
+            this.withManifest = withManifest;
+            this.threadDocument = ThreadLocal.withInitial(() -> new ArtifactDocument(layout, sortBySha1));
             this.indexDir = outputDir;
             this.indexDir.mkdirs();
             File markerFile = new File(indexDir, getLuceneIndexDirMarkerFileName());
             FileUtils.write(markerFile, "This file is searched by Windup to locate the Lucene index with repository metadata.");
 
             // Create our local result index.
-            this.luceneOutputDirResource = new SimpleFSDirectory(indexDir.toPath());
+            // When sorted, it is written to a staging index first, see done().
+            if (sortBySha1)
+            {
+                this.stagingDir = new File(indexDir.getParentFile(), indexDir.getName() + ".unsorted");
+                FileUtils.deleteDirectory(stagingDir);
+            }
+            this.luceneOutputDirResource = new SimpleFSDirectory((sortBySha1 ? stagingDir : indexDir).toPath());
             StandardAnalyzer standardAnalyzer = new StandardAnalyzer();
             IndexWriterConfig config = new IndexWriterConfig(standardAnalyzer);
+            config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+            if (sortBySha1)
+                config.setIndexSort(new Sort(new SortField(SHA1, SortField.Type.STRING), new SortField(POSITION, SortField.Type.LONG)));
             this.indexWriter = new IndexWriter(luceneOutputDirResource, config);
         }
         catch (IOException ex)
@@ -95,52 +264,274 @@ public class TextFileToLucene7Converter
         }
     }
 
+    /**
+     * Updates an existing index with the given writer, see {@link #update(File, ArtifactFilter, List, List)}.
+     */
+    private TextFileToLucene7Converter(File indexDir, ArtifactFilter filter, IndexLayout layout, SimpleFSDirectory directory, IndexWriter indexWriter)
+    {
+        this.filter = filter;
+        this.layout = layout;
+        this.sortBySha1 = false;
+        // Computed by the update from the lines compared.
+        this.withManifest = false;
+        this.threadDocument = ThreadLocal.withInitial(() -> new ArtifactDocument(layout, false));
+        this.indexDir = indexDir;
+        this.luceneOutputDirResource = directory;
+        this.indexWriter = indexWriter;
+    }
+
     public static String getLuceneIndexDirMarkerFileName()
     {
         return ARCHIVE_METADATA_INDEX_DIR_MARKER;
     }
 
-    private void convert(File inputFile) throws IOException
+    /**
+     * Converts the given files, in parallel with the given number of threads: the files are split into chunks of whole lines,
+     * each parsed by a thread, all of them adding the artifacts to the same index writer. The index sorted by SHA1 is the same
+     * as converted sequentially, the artifacts with the same SHA1 being kept in the order of the files and of their lines.
+     * The index which is not sorted by SHA1 is always converted sequentially.
+     */
+    public void convert(List<File> inputFiles, int threads) throws IOException
     {
-        try (FileReader fileReader = new FileReader(inputFile))
+        if (threads <= 1 || !sortBySha1)
         {
-            BufferedReader bufferedReader = new BufferedReader(fileReader);
-            String line = null;
-            int lineNumber = 0;
-            while ( (line = bufferedReader.readLine()) != null)
+            for (File inputFile : inputFiles)
             {
-                lineNumber++;
+                LOG.info("Indexing: " + inputFile);
+                convert(inputFile);
+            }
+            return;
+        }
 
-                if (line.startsWith("#") || line.trim().isEmpty())
-                    continue;
-                String[] parts = StringUtils.split(line, ' ');
-                if (parts.length < 2)
-                    throw new IllegalArgumentException("Expected 'SHA1 GROUP_ID:ARTIFACT_ID:[PACKAGING:[COORDINATE:]]VERSION', but was: [" + line
-                            + "] in [" + inputFile + "] at line [" + lineNumber + "]");
+        List<Callable<Void>> chunks = new ArrayList<>();
+        for (final File inputFile : inputFiles)
+        {
+            addToManifest(inputFile);
+            final long basePosition = nextFilePosition();
+            final long[] offsets = ArtifactLineParser.split(inputFile, chunkSize);
+            for (int i = 0; i + 1 < offsets.length; i++)
+            {
+                final long start = offsets[i];
+                final long end = offsets[i + 1];
+                chunks.add(() -> {
+                    new ArtifactLineParser(createHandler(basePosition)).parse(inputFile, start, end);
+                    return null;
+                });
+            }
+        }
+
+        LOG.info(String.format("Indexing %d files in %d chunks with %d threads: %s", inputFiles.size(), chunks.size(), threads, inputFiles));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ConvertThreadFactory());
+        try
+        {
+            List<Future<Void>> futures = new ArrayList<>(chunks.size());
+            for (Callable<Void> chunk : chunks)
+                futures.add(executor.submit(chunk));
+            for (Future<Void> future : futures)
+                getResult(future);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Sets the size of the chunks of the input files converted by a thread, {@link #CHUNK_SIZE} by default.
+     */
+    void setChunkSize(long chunkSize)
+    {
+        this.chunkSize = chunkSize;
+    }
+
+    public void convert(File inputFile) throws IOException
+    {
+        addToManifest(inputFile);
+        new ArtifactLineParser(createHandler(nextFilePosition())).parse(inputFile);
+    }
+
+    private void addToManifest(File inputFile) throws IOException
+    {
+        if (withManifest)
+            manifest.put(MANIFEST_INPUT_PREFIX + inputFile.getName(), SortedLineDiff.checksum(inputFile));
+    }
+
+    /**
+     * Updates the index in the given directory, converted from the given previous input files, to the new input files:
+     * the lines of the two are compared in a single streaming merge, see {@link SortedLineDiff}, and only the artifacts
+     * of the changed SHA1s are deleted from the index and added again, so the time taken depends on the changes rather than on
+     * the size of the index. The Bloom filter of the SHA1s is rebuilt, and the index committed with the manifest of the new
+     * input files. The input files must be sorted by line, as written by the indexer.
+     *
+     * The artifacts added are in new segments: the index is no longer sorted by SHA1 into a single segment,
+     * until it is converted again from all the input files.
+     *
+     * @throws IOException If the index was not converted from the previous input files according to its manifest,
+     *                     or has none, see {@link #TextFileToLucene7Converter(File, ArtifactFilter, IndexLayout, boolean, boolean)},
+     *                     or if an input file is not sorted. The index is then left unchanged.
+     */
+    public static void update(File indexDir, ArtifactFilter filter, List<File> previousInputFiles, List<File> inputFiles) throws IOException
+    {
+        SimpleFSDirectory directory = new SimpleFSDirectory(indexDir.toPath());
+        Map<String, String> indexedInputs;
+        IndexLayout layout;
+        IndexWriter writer;
+        try
+        {
+            indexedInputs = SegmentInfos.readLatestCommit(directory).getUserData();
+            layout = IndexLayout.read(indexedInputs, indexDir);
+            IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
+            config.setOpenMode(IndexWriterConfig.OpenMode.APPEND);
+            writer = new IndexWriter(directory, config);
+        }
+        catch (IOException | RuntimeException ex)
+        {
+            directory.close();
+            throw ex;
+        }
+        new TextFileToLucene7Converter(indexDir, filter, layout, directory, writer).update(indexedInputs, previousInputFiles, inputFiles);
+    }
 
-                String sha1 = line.substring(0, line.indexOf(" "));
-                String gav = line.substring(line.indexOf(" ") + 1);
+    private void update(Map<String, String> indexedInputs, List<File> previousInputFiles, List<File> inputFiles) throws IOException
+    {
+        try
+        {
+            Map<String, String> expectedChecksums = new TreeMap<>();
+            for (Map.Entry<String, String> entry : indexedInputs.entrySet())
+            {
+                if (entry.getKey().startsWith(MANIFEST_INPUT_PREFIX))
+                    expectedChecksums.put(entry.getKey().substring(MANIFEST_INPUT_PREFIX.length()), entry.getValue());
+            }
+            Set<String> previousNames = new TreeSet<>();
+            for (File previousInputFile : previousInputFiles)
+                previousNames.add(previousInputFile.getName());
+            if (!expectedChecksums.keySet().equals(previousNames))
+                throw new IOException("The index was converted from " + expectedChecksums.keySet() + ", not from the previous input files " + previousNames + ": " + indexDir);
+
+            LOG.info("Updating the index from the changes of the input files " + inputFiles + ": " + indexDir);
+            final ArtifactLineParser parser = new ArtifactLineParser(createHandler(0));
+            final ArtifactLineParser filterParser = new ArtifactLineParser((offset, sha1, group, artifactId, version, packaging, classifier) -> {
+                if (filter.accept(sha1, group, artifactId, version, packaging, classifier) && layout.sha1Term(sha1) != null)
+                    sha1Filter.add(sha1);
+            });
+            final long[] counts = new long[3];
+            SortedLineDiff diff = new SortedLineDiff(previousInputFiles, inputFiles);
+            diff.diff(new SortedLineDiff.Handler()
+            {
+                @Override
+                public void unchanged(List<SortedLineDiff.Line> lines)
+                {
+                    for (SortedLineDiff.Line line : lines)
+                        filterParser.parse(line.text, line.lineNumber, line.file);
+                }
 
-                String[] gavArray = gav.split(":");
-                String groupId = StringUtils.defaultString(gavArray[0], "");
-                String artifactId = StringUtils.defaultString(gavArray[1], "");
-                String packaging = StringUtils.defaultString(gavArray[2], "");
-                String coordinate = StringUtils.defaultString(gavArray[3], "");
-                String version = StringUtils.defaultString(gavArray[4], "");
+                @Override
+                public void changed(String sha1, List<SortedLineDiff.Line> oldLines, List<SortedLineDiff.Line> newLines) throws IOException
+                {
+                    BytesRef sha1Term = layout.sha1Term(sha1);
+                    if (sha1Term != null && !oldLines.isEmpty())
+                        indexWriter.deleteDocuments(new Term(SHA1, sha1Term));
+                    for (SortedLineDiff.Line line : newLines)
+                        parser.parse(line.text, line.lineNumber, line.file);
+                    counts[0]++;
+                    counts[1] += oldLines.size();
+                    counts[2] += newLines.size();
+                }
+            });
+            if (!diff.getOldChecksums().equals(expectedChecksums))
+                throw new IOException("The previous input files changed since the index was converted from them, " + diff.getOldChecksums()
+                            + " instead of " + expectedChecksums + ": " + indexDir);
 
-                visit(sha1, groupId, artifactId, version, packaging, coordinate);
+            for (Map.Entry<String, String> entry : diff.getNewChecksums().entrySet())
+                manifest.put(MANIFEST_INPUT_PREFIX + entry.getKey(), entry.getValue());
+            LOG.info(String.format("Replacing the artifacts of %d changed SHA1s, %d lines with %d lines", counts[0], counts[1], counts[2]));
+        }
+        catch (IOException | RuntimeException ex)
+        {
+            try
+            {
+                indexWriter.rollback();
             }
+            finally
+            {
+                luceneOutputDirResource.close();
+            }
+            throw ex;
+        }
+        done();
+    }
+
+    /**
+     * @return The position of the first byte of the next converted file: the files are ordered, then the lines by offset.
+     */
+    private synchronized long nextFilePosition()
+    {
+        return (long) convertedFiles++ << 40;
+    }
+
+    private ArtifactLineParser.Handler createHandler(final long basePosition)
+    {
+        return (offset, sha1, group, artifactId, version, packaging, classifier) ->
+                    visit(basePosition + offset, sha1, group, artifactId, version, packaging, classifier);
+    }
+
+    private static void getResult(Future<Void> future) throws IOException
+    {
+        try
+        {
+            future.get();
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while converting the input files", ex);
+        }
+        catch (ExecutionException ex)
+        {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IOException("Failed converting the input files: " + cause.getMessage(), cause);
         }
     }
 
+    /**
+     * Adds an artifact to the index. Thread-safe. The artifacts visited directly are ordered before the ones of the converted
+     * files, in the order of the calls.
+     */
     public void visit(String sha1, String group, String artifactId, String version, String packaging, String classifier)
+    {
+        visit(Long.MIN_VALUE + visits.getAndIncrement(), sha1, group, artifactId, version, packaging, classifier);
+    }
+
+    private void visit(long position, String sha1, String group, String artifactId, String version, String packaging, String classifier)
     {
         if (!this.filter.accept(sha1, group, artifactId, version, packaging, classifier))
             return;
+        if (layout.sha1Term(sha1) == null)
+        {
+            LOG.warning("Skipping artifact with an invalid SHA1 for the " + layout + " layout: " + sha1 + " " + group + ":" + artifactId + ":" + version);
+            return;
+        }
         try
         {
             // Add to Lucene index
-            indexWriter.addDocuments(artifactToDocs(sha1, group, artifactId, version, packaging, classifier));
+            Iterable<Document> docs = artifactToDocs(sha1, group, artifactId, version, packaging, classifier);
+            if (sortBySha1)
+            {
+                for (Document doc : docs)
+                {
+                    Field positionField = (Field) doc.getField(POSITION);
+                    if (positionField == null)
+                        doc.add(new NumericDocValuesField(POSITION, position));
+                    else
+                        positionField.setLongValue(position);
+                }
+            }
+            indexWriter.addDocuments(docs);
+            sha1Filter.add(sha1);
         }
         catch (IOException ex)
         {
@@ -148,23 +539,31 @@ public class TextFileToLucene7Converter
         }
     }
 
+    /**
+     * @return The document of the calling thread, reused for each of its artifacts: the writer is done with it
+     *         once addDocuments() returns.
+     */
     protected Iterable<Document> artifactToDocs(String sha1, String group, String artifactId, String version, String packaging, String classifier)
     {
-        Document outputDoc = new Document();
-        outputDoc.add(new StringField(SHA1, sha1, Field.Store.NO));
-        outputDoc.add(new StoredField(GROUP_ID, group));
-        outputDoc.add(new StoredField(ARTIFACT_ID, artifactId));
-        outputDoc.add(new StoredField(PACKAGING, packaging));
-        outputDoc.add(new StoredField(CLASSIFIER, classifier));
-        outputDoc.add(new StoredField(VERSION, version));
-        return Collections.singleton(outputDoc);
+        return threadDocument.get().set(sha1, group, artifactId, version, packaging, classifier);
     }
 
     public Object done()
     {
         try
         {
+            if (sortBySha1)
+            {
+                LOG.info("Merging the index sorted by SHA1 into a single segment: " + indexDir);
+                this.indexWriter.forceMerge(1);
+            }
+            // Written before the index is committed with its identity, so that a service reopening the index finds its filter.
+            Map<String, String> commitData = commitData(sha1Filter.write(indexDir));
+            if (!sortBySha1)
+                this.indexWriter.setLiveCommitData(commitData.entrySet());
             this.indexWriter.close();
+            if (sortBySha1)
+                copyWithoutSortValues(commitData);
         }
         catch (IOException ex)
         {
@@ -184,4 +583,189 @@ public class TextFileToLucene7Converter
         return null;
     }
 
+    /**
+     * @return The user data of the index commit: the manifest, if any, the layout, and the identity of the SHA1 filter
+     *         written with the index, if any, see {@link IndexSnapshotManager}.
+     */
+    private Map<String, String> commitData(String sha1FilterIdentity)
+    {
+        Map<String, String> commitData = new TreeMap<>(manifest);
+        commitData.put(IndexLayout.COMMIT_DATA_KEY, layout.name());
+        if (sha1FilterIdentity != null)
+            commitData.put(Sha1BloomFilter.COMMIT_DATA_KEY, sha1FilterIdentity);
+        return commitData;
+    }
+
+    /**
+     * Copies the sorted single segment of the staging index to the index directory, without the SHA1 doc values
+     * which are only needed for sorting and would take almost as much space as the rest of the index.
+     * The documents are copied in order, so the copy stays sorted by SHA1.
+     */
+    private void copyWithoutSortValues(Map<String, String> commitData) throws IOException
+    {
+        try (Directory staging = new SimpleFSDirectory(stagingDir.toPath());
+             DirectoryReader reader = DirectoryReader.open(staging);
+             Directory output = new SimpleFSDirectory(indexDir.toPath()))
+        {
+            IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
+            config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+            try (IndexWriter writer = new IndexWriter(output, config))
+            {
+                writer.setLiveCommitData(commitData.entrySet());
+                List<CodecReader> leaves = new ArrayList<>();
+                for (LeafReaderContext leaf : reader.leaves())
+                    leaves.add(SlowCodecReaderWrapper.wrap(new WithoutDocValuesReader(leaf.reader(), SHA1, POSITION)));
+                writer.addIndexes(leaves.toArray(new CodecReader[leaves.size()]));
+            }
+        }
+        FileUtils.deleteDirectory(stagingDir);
+    }
+
+    /**
+     * Hides the doc values of some fields, and the fields which have nothing else.
+     */
+    private static class WithoutDocValuesReader extends FilterLeafReader
+    {
+        private final Set<String> fields;
+        private final FieldInfos fieldInfos;
+
+        WithoutDocValuesReader(LeafReader in, String... fields)
+        {
+            super(in);
+            this.fields = new HashSet<>(Arrays.asList(fields));
+            List<FieldInfo> infos = new ArrayList<>();
+            for (FieldInfo info : in.getFieldInfos())
+            {
+                if (this.fields.contains(info.name))
+                {
+                    if (info.getIndexOptions() == IndexOptions.NONE && !info.hasVectors() && info.getPointDimensionCount() == 0)
+                        continue;
+                    info = new FieldInfo(info.name, info.number, info.hasVectors(), info.omitsNorms(), info.hasPayloads(),
+                                info.getIndexOptions(), DocValuesType.NONE, -1, info.attributes(),
+                                info.getPointDimensionCount(), info.getPointNumBytes());
+                }
+                infos.add(info);
+            }
+            this.fieldInfos = new FieldInfos(infos.toArray(new FieldInfo[infos.size()]));
+        }
+
+        @Override
+        public FieldInfos getFieldInfos()
+        {
+            return fieldInfos;
+        }
+
+        @Override
+        public SortedDocValues getSortedDocValues(String field) throws IOException
+        {
+            return fields.contains(field) ? null : super.getSortedDocValues(field);
+        }
+
+        @Override
+        public NumericDocValues getNumericDocValues(String field) throws IOException
+        {
+            return fields.contains(field) ? null : super.getNumericDocValues(field);
+        }
+
+        @Override
+        public LeafMetaData getMetaData()
+        {
+            // The copy is not flagged as sorted, the output writer has no index sort.
+            LeafMetaData metaData = super.getMetaData();
+            return new LeafMetaData(metaData.getCreatedVersionMajor(), metaData.getMinVersion(), null);
+        }
+
+        @Override
+        public CacheHelper getCoreCacheHelper()
+        {
+            return null;
+        }
+
+        @Override
+        public CacheHelper getReaderCacheHelper()
+        {
+            return null;
+        }
+    }
+
+
+    /**
+     * A document with the fields of the layout, whose values are replaced for each artifact,
+     * rather than a new document and new fields. The coordinates are encoded into reused buffers,
+     * which the writer copies.
+     */
+    private static final class ArtifactDocument
+    {
+        private static final String[] COORDINATES = {GROUP_ID, ARTIFACT_ID, PACKAGING, CLASSIFIER, VERSION};
+
+        private final IndexLayout layout;
+        private final BytesRef sha1 = new BytesRef();
+        private final Field[] coordinates = new Field[COORDINATES.length];
+        private final BytesRefBuilder[] coordinateBytes;
+        private final List<Document> docs;
+
+        ArtifactDocument(IndexLayout layout, boolean sortBySha1)
+        {
+            this.layout = layout;
+            Document document = new Document();
+            // Lucene refuses to replace the BytesRef of an indexed field, so both SHA1 fields share one which is updated.
+            document.add(new StringField(SHA1, sha1, Field.Store.NO));
+            if (sortBySha1)
+                document.add(new SortedDocValuesField(SHA1, sha1));
+            this.coordinateBytes = layout.hasCoordinateDocValues() ? new BytesRefBuilder[COORDINATES.length] : null;
+            for (int i = 0; i < COORDINATES.length; i++)
+            {
+                if (coordinateBytes != null)
+                {
+                    coordinateBytes[i] = new BytesRefBuilder();
+                    coordinates[i] = new SortedDocValuesField(COORDINATES[i], coordinateBytes[i].get());
+                }
+                else
+                    coordinates[i] = new StoredField(COORDINATES[i], "");
+                document.add(coordinates[i]);
+            }
+            if (sortBySha1)
+                document.add(new NumericDocValuesField(POSITION, 0));
+            this.docs = Collections.singletonList(document);
+        }
+
+        List<Document> set(String sha1, String group, String artifactId, String version, String packaging, String classifier)
+        {
+            BytesRef sha1Term = layout.sha1Term(sha1);
+            this.sha1.bytes = sha1Term.bytes;
+            this.sha1.offset = sha1Term.offset;
+            this.sha1.length = sha1Term.length;
+            setCoordinate(0, group);
+            setCoordinate(1, artifactId);
+            setCoordinate(2, packaging);
+            setCoordinate(3, classifier);
+            setCoordinate(4, version);
+            return docs;
+        }
+
+        private void setCoordinate(int index, String value)
+        {
+            if (coordinateBytes == null)
+            {
+                coordinates[index].setStringValue(value);
+                return;
+            }
+            coordinateBytes[index].copyChars(value);
+            coordinates[index].setBytesValue(coordinateBytes[index].get());
+        }
+    }
+
+
+    private static final class ConvertThreadFactory implements ThreadFactory
+    {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+            Thread thread = new Thread(runnable, "nexus-indexer-convert-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
@@ -0,0 +1,137 @@
+package org.jboss.windup.maven.nexusindexer.client;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Time to parse a text metadata file with the {@link ArtifactLineParser} of {@link TextFileToLucene7Converter},
+ * and with the line by line parsing it replaced, which splits the lines read by a {@link BufferedReader}.
+ * Run with -prof gc to compare the allocations.
+ *
+ * <pre>
+ * mvn -f data/pom.xml test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main ArtifactLineParserBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class ArtifactLineParserBenchmark
+{
+    @Param({"1000000"})
+    public int lines;
+
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        file = Files.createTempFile("artifact-lines-", ".txt").toFile();
+        final Random random = new Random(42);
+        try (PrintWriter writer = new PrintWriter(file, "UTF-8"))
+        {
+            for (int i = 0; i < lines; i++)
+            {
+                final StringBuilder sha1 = new StringBuilder(40);
+                for (int j = 0; j < 40; j++)
+                    sha1.append(Character.forDigit(random.nextInt(16), 16));
+                writer.print(sha1 + " org.example.group" + random.nextInt(2000) + ":artifact-" + random.nextInt(20000) + ":"
+                            + (i % 10 == 0 ? "pom" : "jar") + ":" + (i % 7 == 0 ? "sources" : "") + ":1." + random.nextInt(100) + "\n");
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        file.delete();
+    }
+
+
+    @Benchmark
+    public void mappedParser(final Blackhole blackhole) throws IOException
+    {
+        new ArtifactLineParser((offset, sha1, group, artifactId, version, packaging, classifier) -> {
+            blackhole.consume(sha1);
+            blackhole.consume(group);
+            blackhole.consume(artifactId);
+            blackhole.consume(version);
+            blackhole.consume(packaging);
+            blackhole.consume(classifier);
+        }).parse(file);
+    }
+
+    @Benchmark
+    public void lineParser(final Blackhole blackhole) throws IOException
+    {
+        parseLines(file, (offset, sha1, group, artifactId, version, packaging, classifier) -> {
+            blackhole.consume(sha1);
+            blackhole.consume(group);
+            blackhole.consume(artifactId);
+            blackhole.consume(version);
+            blackhole.consume(packaging);
+            blackhole.consume(classifier);
+        });
+    }
+
+
+    /**
+     * The parsing replaced by {@link ArtifactLineParser}.
+     */
+    static void parseLines(File inputFile, ArtifactLineParser.Handler handler) throws IOException
+    {
+        try (FileReader fileReader = new FileReader(inputFile))
+        {
+            BufferedReader bufferedReader = new BufferedReader(fileReader);
+            String line = null;
+            int lineNumber = 0;
+            while ( (line = bufferedReader.readLine()) != null)
+            {
+                lineNumber++;
+
+                if (line.startsWith("#") || line.trim().isEmpty())
+                    continue;
+                String[] parts = StringUtils.split(line, ' ');
+                if (parts.length < 2)
+                    throw new IllegalArgumentException("Expected 'SHA1 GROUP_ID:ARTIFACT_ID:[PACKAGING:[COORDINATE:]]VERSION', but was: [" + line
+                            + "] in [" + inputFile + "] at line [" + lineNumber + "]");
+
+                String sha1 = line.substring(0, line.indexOf(" "));
+                String gav = line.substring(line.indexOf(" ") + 1);
+
+                String[] gavArray = gav.split(":");
+                String groupId = StringUtils.defaultString(gavArray[0], "");
+                String artifactId = StringUtils.defaultString(gavArray[1], "");
+                String packaging = StringUtils.defaultString(gavArray[2], "");
+                String coordinate = StringUtils.defaultString(gavArray[3], "");
+                String version = StringUtils.defaultString(gavArray[4], "");
+
+                handler.artifact(lineNumber, sha1, groupId, artifactId, version, packaging, coordinate);
+            }
+        }
+    }
+}
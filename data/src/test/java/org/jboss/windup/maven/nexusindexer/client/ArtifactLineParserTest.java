@@ -0,0 +1,215 @@
+package org.jboss.windup.maven.nexusindexer.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+
+public class ArtifactLineParserTest
+{
+    private static final String SHA1 = "0123456789abcdef0123456789abcdef01234567";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final List<String> artifacts = new ArrayList<>();
+    private final List<String> values = new ArrayList<>();
+
+
+    /**
+     * The lines spanning the windows of the file are parsed whole, whatever the size of the window.
+     */
+    @Test
+    public void testLinesAcrossWindows() throws Exception
+    {
+        final StringBuilder text = new StringBuilder();
+        final List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++)
+        {
+            // Lines of several lengths.
+            final String line = SHA1 + " org.example:artifact-" + "xxxxxxxxxxxx".substring(i % 13) + i + ":jar::1." + i;
+            expected.add(text.length() + " " + line);
+            text.append(line).append('\n');
+        }
+        final File file = write(text.toString());
+
+        for (int windowSize : new int[]{100, 101, 127, 128, 1000, ArtifactLineParser.DEFAULT_WINDOW_SIZE})
+        {
+            artifacts.clear();
+            new ArtifactLineParser(this::artifact, windowSize).parse(file);
+            assertEquals("Window of " + windowSize, expected, artifacts);
+        }
+
+        // In chunks, each parsed with a small window.
+        final long[] chunks = ArtifactLineParser.split(file, 500);
+        assertTrue(chunks.length > 10);
+        artifacts.clear();
+        for (int i = 0; i + 1 < chunks.length; i++)
+            new ArtifactLineParser(this::artifact, 128).parse(file, chunks[i], chunks[i + 1]);
+        // The offsets are relative to the file.
+        assertEquals(expected, artifacts);
+    }
+
+    @Test
+    public void testLineLongerThanWindow() throws Exception
+    {
+        final String line = SHA1 + " org.example:artifact:jar::1.0";
+        final File file = write(line + "\n" + line + "\n");
+        try
+        {
+            new ArtifactLineParser(this::artifact, line.length()).parse(file);
+            fail("The line and its end don't fit in the window");
+        }
+        catch (IOException ex)
+        {
+            assertEquals("Line longer than " + line.length() + " bytes in [" + file + "] at line [1]", ex.getMessage());
+        }
+
+        // The last line, without an end, fits.
+        artifacts.clear();
+        new ArtifactLineParser(this::artifact, line.length() + 1).parse(write(line + "\n" + line));
+        assertEquals(2, artifacts.size());
+    }
+
+    @Test
+    public void testCrlfCommentsAndBlankLines() throws Exception
+    {
+        final File file = write("# Artifacts\r\n"
+                    + "\r\n"
+                    + SHA1 + " org.example:first:jar::1.0\r\n"
+                    + "   \t\r\n"
+                    + "\n"
+                    + "#" + SHA1 + " org.example:comment:jar::1.0\n"
+                    + SHA1 + " org.example:second:war:sources:2.0\r\n"
+                    + SHA1 + " org.example:last:jar::3.0\r");
+        new ArtifactLineParser(this::artifact, 128).parse(file);
+        assertEquals(3, artifacts.size());
+        assertEquals("15 " + SHA1 + " org.example:first:jar::1.0", artifacts.get(0));
+        assertTrue(artifacts.get(1), artifacts.get(1).endsWith(" " + SHA1 + " org.example:second:war:sources:2.0"));
+        assertTrue(artifacts.get(2), artifacts.get(2).endsWith(" " + SHA1 + " org.example:last:jar::3.0"));
+    }
+
+    @Test
+    public void testMoreThanFiveFields()
+    {
+        final ArtifactLineParser parser = new ArtifactLineParser(this::artifact);
+        parser.parse(SHA1 + " org.example:artifact:jar:tests:1.0:extra:fields", 1, null);
+        parser.parse(SHA1 + " org.example:artifact:jar::1.0:", 2, null);
+        assertEquals("-1 " + SHA1 + " org.example:artifact:jar:tests:1.0", artifacts.get(0));
+        assertEquals("-1 " + SHA1 + " org.example:artifact:jar::1.0", artifacts.get(1));
+    }
+
+    @Test
+    public void testFewerThanFiveFields() throws Exception
+    {
+        final ArtifactLineParser parser = new ArtifactLineParser(this::artifact);
+        for (String line : new String[]{SHA1 + " org.example:artifact:1.0", SHA1 + " org.example:artifact:jar:1.0", SHA1, SHA1 + "   "})
+        {
+            try
+            {
+                parser.parse(line, 7, new File("input.txt"));
+                fail(line);
+            }
+            catch (IllegalArgumentException ex)
+            {
+                assertEquals("Expected 'SHA1 GROUP_ID:ARTIFACT_ID:[PACKAGING:[COORDINATE:]]VERSION', but was: [" + line + "] in [input.txt] at line [7]",
+                            ex.getMessage());
+            }
+        }
+
+        // The line number counts the skipped lines.
+        final String first = "# Artifacts\n\n" + SHA1 + " org.example:artifact:jar::1.0\n";
+        final File file = write(first + SHA1 + " org.example:artifact:jar::1.0\n" + SHA1 + " org.example:artifact\n");
+        try
+        {
+            new ArtifactLineParser(this::artifact).parse(file);
+            fail("Invalid last line");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            assertEquals("Expected 'SHA1 GROUP_ID:ARTIFACT_ID:[PACKAGING:[COORDINATE:]]VERSION', but was: [" + SHA1 + " org.example:artifact] in ["
+                        + file + "] at line [5]", ex.getMessage());
+        }
+        assertEquals(2, artifacts.size());
+
+        // The line number is the one in the chunk, which is told.
+        try
+        {
+            new ArtifactLineParser(this::artifact).parse(file, first.length(), file.length());
+            fail("Invalid second line of the chunk");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            assertEquals("Expected 'SHA1 GROUP_ID:ARTIFACT_ID:[PACKAGING:[COORDINATE:]]VERSION', but was: [" + SHA1 + " org.example:artifact] in ["
+                        + file + "] at line [2] of the chunk starting at byte [" + first.length() + "]", ex.getMessage());
+        }
+        assertEquals(3, artifacts.size());
+    }
+
+    /**
+     * The values sharing a slot of the cache replace each other there, and are still decoded right.
+     */
+    @Test
+    public void testCacheSlotCollisions()
+    {
+        final String group = "org.example.group";
+        String colliding = null;
+        for (int i = 0; colliding == null; i++)
+        {
+            if (slot("org.example.other" + i) == slot(group))
+                colliding = "org.example.other" + i;
+        }
+
+        final ArtifactLineParser parser = new ArtifactLineParser((offset, sha1, g, artifactId, version, packaging, classifier) -> {
+            values.add(g);
+            values.add(packaging);
+            values.add(classifier);
+        });
+        parser.parse(SHA1 + " " + group + ":a:jar::1.0", 1, null);
+        parser.parse(SHA1 + " " + group + ":b:jar::1.0", 2, null);
+        parser.parse(SHA1 + " " + colliding + ":c:jar::1.0", 3, null);
+        parser.parse(SHA1 + " " + group + ":d:jar::1.0", 4, null);
+        parser.parse(SHA1 + " " + colliding + ":e:" + colliding + ":" + group + ":1.0", 5, null);
+
+        assertEquals(group, values.get(0));
+        assertSame("Shared", values.get(0), values.get(3));
+        assertEquals(colliding, values.get(6));
+        assertEquals(group, values.get(9));
+        assertNotSame("Replaced in the cache by the colliding value", values.get(0), values.get(9));
+        // The same values in other fields.
+        assertEquals(colliding, values.get(12));
+        assertSame("Shared", values.get(12), values.get(13));
+        assertEquals(group, values.get(14));
+        assertSame("Shared", values.get(1), values.get(4));
+        assertEquals("jar", values.get(10));
+        assertEquals("", values.get(2));
+    }
+
+
+    private void artifact(long offset, String sha1, String group, String artifactId, String version, String packaging, String classifier)
+    {
+        artifacts.add(offset + " " + sha1 + " " + String.join(":", group, artifactId, packaging, classifier, version));
+    }
+
+    private static int slot(String value)
+    {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return ArtifactLineParser.cacheSlot(bytes, 0, bytes.length);
+    }
+
+    private File write(String text) throws IOException
+    {
+        final File file = temp.newFile();
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,121 @@
+package org.jboss.windup.maven.nexusindexer.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class LookupCacheTest
+{
+    @Test
+    public void testEvictsTheLeastRecentlyUsed()
+    {
+        // A single segment, so that the order of all the entries is kept.
+        final LookupCache cache = new LookupCache(3, 1, 1);
+        cache.put("a", "A", 1);
+        cache.put("b", "B", 1);
+        cache.put("c", "C", 1);
+        assertEquals("A", cache.get("a", 1));
+        cache.put("d", "D", 1);
+
+        assertNull("b was the least recently used", cache.get("b", 1));
+        assertEquals("A", cache.get("a", 1));
+        assertEquals("C", cache.get("c", 1));
+        assertEquals("D", cache.get("d", 1));
+
+        final LookupCache.Stats stats = cache.getStats();
+        assertEquals(3, stats.getSize());
+        assertEquals(1, stats.getEvictions());
+        assertEquals(4, stats.getHits());
+        assertEquals(1, stats.getMisses());
+    }
+
+    @Test
+    public void testSegmentsKeepTheMaximumSize()
+    {
+        final LookupCache cache = new LookupCache(100, 1, 8);
+        for (int i = 0; i < 10_000; i++)
+            cache.put("key" + i, i, 1);
+        assertEquals(100, cache.getStats().getSize());
+        assertEquals(9_900, cache.getStats().getEvictions());
+        for (int i = 9_990; i < 10_000; i++)
+            assertEquals(i, cache.get("key" + i, 1));
+    }
+
+    @Test
+    public void testNewerGenerationDropsTheEntries()
+    {
+        final LookupCache cache = new LookupCache(100, 1, 4);
+        for (int i = 0; i < 50; i++)
+            cache.put("key" + i, i, 1);
+
+        assertNull(cache.get("key0", 2));
+        assertEquals(0, cache.getStats().getSize());
+        assertEquals(1, cache.getStats().getInvalidations());
+        for (int i = 0; i < 50; i++)
+            assertNull(cache.get("key" + i, 2));
+
+        // A lookup of the previous generation neither reads nor fills the cache.
+        cache.put("old", "old", 1);
+        assertNull(cache.get("old", 1));
+        assertNull(cache.get("old", 2));
+
+        cache.put("new", "new", 2);
+        assertEquals("new", cache.get("new", 2));
+        cache.invalidate(3);
+        assertNull(cache.get("new", 3));
+        assertEquals(2, cache.getStats().getInvalidations());
+    }
+
+    @Test
+    public void testDisabled()
+    {
+        final LookupCache cache = new LookupCache(0, 1);
+        cache.put("a", "A", 1);
+        assertNull(cache.get("a", 1));
+        assertEquals(0, cache.getStats().getSize());
+        assertEquals(1, cache.getStats().getMisses());
+    }
+
+    @Test(timeout = 60_000)
+    public void testConcurrentLookups() throws Exception
+    {
+        final LookupCache cache = new LookupCache(1000, 1, 8);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++)
+            {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 50_000; i++)
+                    {
+                        final String key = "key" + ((i * 31 + thread) % 2000);
+                        final Object value = cache.get(key, 1);
+                        if (value == null)
+                            cache.put(key, key.toUpperCase(), 1);
+                        else
+                            assertEquals(key.toUpperCase(), value);
+                    }
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get(30, TimeUnit.SECONDS);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        final LookupCache.Stats stats = cache.getStats();
+        assertEquals(200_000, stats.getHits() + stats.getMisses());
+        assertTrue(stats.getSize() <= 1000);
+    }
+}
@@ -0,0 +1,131 @@
+package org.jboss.windup.maven.nexusindexer.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.util.BytesRef;
+import org.jboss.windup.maven.nexusindexer.ArtifactFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to convert a text metadata file with {@link TextFileToLucene7Converter}, which reuses a document per thread,
+ * and with a converter creating a new document and new fields for each artifact, as it did before.
+ * The index is not sorted, so that the documents are a larger part of the work. Run with -prof gc to compare the allocations.
+ *
+ * <pre>
+ * mvn -f data/pom.xml test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main LuceneDocumentReuseBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class LuceneDocumentReuseBenchmark
+{
+    @Param({"1000000"})
+    public int lines;
+
+    @Param({"reused", "new"})
+    public String documents;
+
+    private File inputFile;
+    private File indexDir;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        inputFile = Files.createTempFile("artifact-lines-", ".txt").toFile();
+        final Random random = new Random(42);
+        try (PrintWriter writer = new PrintWriter(inputFile, "UTF-8"))
+        {
+            for (int i = 0; i < lines; i++)
+            {
+                final StringBuilder sha1 = new StringBuilder(40);
+                for (int j = 0; j < 40; j++)
+                    sha1.append(Character.forDigit(random.nextInt(16), 16));
+                writer.print(sha1 + " org.example.group" + random.nextInt(2000) + ":artifact-" + random.nextInt(20000) + ":jar:"
+                            + (i % 7 == 0 ? "sources" : "") + ":1." + random.nextInt(100) + "\n");
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void createIndexDir() throws IOException
+    {
+        indexDir = Files.createTempDirectory("lucene-document-reuse-").toFile();
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteIndexDir() throws IOException
+    {
+        FileUtils.deleteDirectory(indexDir);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        inputFile.delete();
+    }
+
+
+    @Benchmark
+    public void convert() throws IOException
+    {
+        final TextFileToLucene7Converter converter = "new".equals(documents)
+                    ? new NewDocumentsConverter(indexDir)
+                    : new TextFileToLucene7Converter(indexDir, ArtifactFilter.LIBRARIES, IndexLayout.BINARY_SHA1, false);
+        converter.convert(inputFile);
+        converter.done();
+    }
+
+
+    /**
+     * Creates the documents as {@link TextFileToLucene7Converter} did before reusing them.
+     */
+    private static class NewDocumentsConverter extends TextFileToLucene7Converter
+    {
+        NewDocumentsConverter(File indexDir)
+        {
+            super(indexDir, ArtifactFilter.LIBRARIES, IndexLayout.BINARY_SHA1, false);
+        }
+
+        @Override
+        protected Iterable<Document> artifactToDocs(String sha1, String group, String artifactId, String version, String packaging, String classifier)
+        {
+            Document outputDoc = new Document();
+            BytesRef sha1Term = IndexLayout.BINARY_SHA1.sha1Term(sha1);
+            outputDoc.add(new StringField(SHA1, sha1Term, Field.Store.NO));
+            outputDoc.add(new StoredField(GROUP_ID, group));
+            outputDoc.add(new StoredField(ARTIFACT_ID, artifactId));
+            outputDoc.add(new StoredField(PACKAGING, packaging));
+            outputDoc.add(new StoredField(CLASSIFIER, classifier));
+            outputDoc.add(new StoredField(VERSION, version));
+            return Collections.singleton(outputDoc);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.jboss.windup.maven.nexusindexer.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of concurrent {@link LuceneIndexServiceBase#findSingle} SHA1 lookups through the lookup cache, at 1 to 8
+ * threads sharing one service: the lookups repeat the SHA1s of a working set, as Windup does for the libraries found
+ * in several applications, which fits in the cache or not. A cache size of 0 compares with the lookups without it.
+ *
+ * <pre>
+ * mvn -f data/pom.xml test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main LuceneIndexCachedLookupBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class LuceneIndexCachedLookupBenchmark
+{
+    private static final int ARTIFACTS = 200_000;
+
+    @Param({"0", "10000"})
+    public int cacheSize;
+
+    @Param({"5000", "50000"})
+    public int workingSet;
+
+    private File indexDir;
+    private LuceneIndexServiceBase service;
+    private String[] sha1s;
+
+    @State(Scope.Thread)
+    public static class Cursor
+    {
+        int next = new Random().nextInt(ARTIFACTS);
+    }
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        sha1s = SyntheticArtifacts.sha1s(ARTIFACTS);
+
+        indexDir = Files.createTempDirectory("lucene-cached-lookup-").toFile();
+        SyntheticArtifacts.writeIndex(indexDir, Arrays.asList(sha1s), IndexLayout.BINARY_SHA1, true);
+        System.setProperty(LuceneIndexServiceBase.CACHE_SIZE_PROPERTY, Integer.toString(cacheSize));
+        service = new LuceneIndexServiceBase(indexDir, IndexDirectoryType.MMAP) {};
+        System.clearProperty(LuceneIndexServiceBase.CACHE_SIZE_PROPERTY);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        service.close();
+        FileUtils.deleteDirectory(indexDir);
+    }
+
+
+    private String lookup(Cursor cursor)
+    {
+        // Strides through the SHA1s of the working set, which are in no particular order in the index.
+        cursor.next = (cursor.next + 7919) % workingSet;
+        return service.findSingle(DocTo.Fields.SHA1, sha1s[cursor.next], DocTo.COORD_GACEV);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String threads1(Cursor cursor)
+    {
+        return lookup(cursor);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public String threads2(Cursor cursor)
+    {
+        return lookup(cursor);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String threads4(Cursor cursor)
+    {
+        return lookup(cursor);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String threads8(Cursor cursor)
+    {
+        return lookup(cursor);
+    }
+}
@@ -0,0 +1,117 @@
+package org.jboss.windup.maven.nexusindexer.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Latency of the SHA1 lookups of {@link LuceneIndexServiceBase#findSingle} in an index created by
+ * {@link TextFileToLucene7Converter} from artifacts in random order: as left by the writer, or sorted by SHA1
+ * and merged into a single segment. Measures single lookups of random SHA1s, batches of lookups of sorted SHA1s,
+ * and the same batches looked up at once by {@link LuceneIndexServiceBase#findBySha1s}. The lookup cache is disabled.
+ * The coordinates of the hits are read from stored fields, or from doc values with the
+ * {@link IndexLayout#BINARY_SHA1_DOC_VALUES} layout.
+ *
+ * <pre>
+ * mvn -f data/pom.xml test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main LuceneIndexLookupBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g", "-Dnexus-indexer.lucene.lookupCacheSize=0"})
+public class LuceneIndexLookupBenchmark
+{
+    private static final int BATCH = 1000;
+
+    @Param({"500000"})
+    public int artifacts;
+
+    @Param({"false", "true"})
+    public boolean sortBySha1;
+
+    @Param({"BINARY_SHA1", "BINARY_SHA1_DOC_VALUES"})
+    public IndexLayout layout;
+
+    private File indexDir;
+    private LuceneIndexServiceBase service;
+    private String[] sha1s;
+    private String[] batch;
+    private List<String> batchList;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        sha1s = SyntheticArtifacts.sha1s(artifacts);
+        final List<String> shuffled = Arrays.asList(sha1s.clone());
+        Collections.shuffle(shuffled, new Random(42));
+
+        indexDir = Files.createTempDirectory("lucene-lookup-").toFile();
+        SyntheticArtifacts.writeIndex(indexDir, shuffled, layout, sortBySha1);
+        service = new LuceneIndexServiceBase(indexDir) {};
+
+        final Random random = new Random(7);
+        batch = new String[BATCH];
+        for (int i = 0; i < BATCH; i++)
+            batch[i] = sha1s[random.nextInt(artifacts)];
+        Arrays.sort(batch);
+        batchList = Arrays.asList(batch);
+        Collections.shuffle(Arrays.asList(sha1s), random);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        service.close();
+        FileUtils.deleteDirectory(indexDir);
+    }
+
+
+    @Benchmark
+    public String findSingle()
+    {
+        return service.findSingle(DocTo.Fields.SHA1, sha1s[next++ % sha1s.length], DocTo.COORD_GACEV);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void findSortedBatch(Blackhole blackhole)
+    {
+        for (String sha1 : batch)
+            blackhole.consume(service.findSingle(DocTo.Fields.SHA1, sha1, DocTo.COORD_GACEV));
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Map<String, String> findBySha1s()
+    {
+        return service.findBySha1s(batchList, DocTo.COORD_GACEV);
+    }
+}
@@ -0,0 +1,100 @@
+package org.jboss.windup.maven.nexusindexer.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Time to read all the documents of an index created by {@link TextFileToLucene7Converter}: with the visitor of
+ * {@link LuceneIndexServiceBase#visitAllDocuments}, and with the streams of
+ * {@link LuceneIndexServiceBase#streamAllDocuments}, sequential, parallel, and parallel loading a single field.
+ *
+ * <pre>
+ * mvn -f data/pom.xml test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main LuceneIndexScanBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class LuceneIndexScanBenchmark
+{
+    @Param({"500000"})
+    public int artifacts;
+
+    @Param({"BINARY_SHA1", "BINARY_SHA1_DOC_VALUES"})
+    public IndexLayout layout;
+
+    private File indexDir;
+    private LuceneIndexServiceBase service;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        indexDir = Files.createTempDirectory("lucene-scan-").toFile();
+        SyntheticArtifacts.writeIndex(indexDir, Arrays.asList(SyntheticArtifacts.sha1s(artifacts)), layout, false);
+        service = new LuceneIndexServiceBase(indexDir) {};
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        service.close();
+        FileUtils.deleteDirectory(indexDir);
+    }
+
+
+    @Benchmark
+    public int visitAllDocuments(final Blackhole blackhole)
+    {
+        return service.visitAllDocuments(doc -> blackhole.consume(DocTo.COORD_GACEV.convert(doc)));
+    }
+
+    @Benchmark
+    public long stream()
+    {
+        try (Stream<String> coordinates = service.streamAllDocuments(DocTo.COORD_GACEV))
+        {
+            return coordinates.count();
+        }
+    }
+
+    @Benchmark
+    public long parallelStream()
+    {
+        try (Stream<String> coordinates = service.streamAllDocuments(DocTo.COORD_GACEV))
+        {
+            return coordinates.parallel().count();
+        }
+    }
+
+    @Benchmark
+    public long parallelStreamOfGroupIds()
+    {
+        try (Stream<String> groupIds = service.streamAllDocuments(doc -> doc.get(DocTo.Fields.GROUP_ID), DocTo.Fields.GROUP_ID))
+        {
+            return groupIds.parallel().distinct().count();
+        }
+    }
+}
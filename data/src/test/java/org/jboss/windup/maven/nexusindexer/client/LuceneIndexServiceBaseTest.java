@@ -0,0 +1,397 @@
+package org.jboss.windup.maven.nexusindexer.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.jboss.windup.maven.nexusindexer.ArtifactFilter;
+import org.jboss.windup.maven.nexusindexer.ArtifactRecord;
+import org.jboss.windup.maven.nexusindexer.Sha1BloomFilter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+
+public class LuceneIndexServiceBaseTest
+{
+    private static final String SHA1_A = "0a0b0c0d0e0f101112131415161718191a1b1c1d";
+    private static final String SHA1_B = "f0e0d0c0b0a090807060504030201000f0e0d0c0";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File indexDir;
+
+    @Before
+    public void setUp()
+    {
+        // The index is reopened by the test only.
+        System.setProperty(LuceneIndexServiceBase.CHANGE_CHECK_PROPERTY, "0");
+        indexDir = new File(temp.getRoot(), "lucene");
+    }
+
+    @After
+    public void tearDown()
+    {
+        System.clearProperty(LuceneIndexServiceBase.CHANGE_CHECK_PROPERTY);
+    }
+
+
+    /**
+     * A lookup running while the index is replaced and reopened keeps searching the snapshot it started with.
+     */
+    @Test(timeout = 60_000)
+    public void testReopenWhileSearching() throws Exception
+    {
+        writeIndex(SHA1_A, "org.example.first");
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (LuceneIndexServiceBase service = new LuceneIndexServiceBase(indexDir))
+        {
+            final CountDownLatch searching = new CountDownLatch(1);
+            final CountDownLatch reopened = new CountDownLatch(1);
+            final Future<String> lookup = executor.submit(() -> service.withSearcher(searcher -> {
+                searching.countDown();
+                try
+                {
+                    reopened.await();
+                }
+                catch (InterruptedException ex)
+                {
+                    throw new IllegalStateException(ex);
+                }
+                final TopDocs hits = searcher.search(new TermQuery(service.createTerm(IndexLayout.BINARY_SHA1, DocTo.Fields.SHA1, SHA1_A)), 1);
+                assertEquals(1, hits.totalHits);
+                final Document doc = searcher.doc(hits.scoreDocs[0].doc);
+                return doc.get(DocTo.Fields.GROUP_ID);
+            }));
+
+            searching.await();
+            writeIndex(SHA1_B, "org.example.second");
+            assertTrue(service.maybeRefresh());
+            assertNull(service.findSingle(DocTo.Fields.SHA1, SHA1_A, DocTo.COORD_GACEV));
+            assertEquals("org.example.second:artifact::jar:1.0", service.findSingle(DocTo.Fields.SHA1, SHA1_B, DocTo.COORD_GACEV));
+
+            reopened.countDown();
+            assertEquals("org.example.first", lookup.get(30, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The lookups in flight on other threads while the index is reopened several times all succeed.
+     */
+    @Test(timeout = 60_000)
+    public void testLookupsDuringReopens() throws Exception
+    {
+        writeIndex(SHA1_A, "org.example.group");
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (LuceneIndexServiceBase service = new LuceneIndexServiceBase(indexDir))
+        {
+            final CountDownLatch done = new CountDownLatch(1);
+            final Future<?>[] lookups = new Future<?>[2];
+            for (int t = 0; t < lookups.length; t++)
+                lookups[t] = executor.submit(() -> {
+                    while (done.getCount() > 0)
+                    {
+                        assertNotNull(service.findSingle(DocTo.Fields.SHA1, SHA1_A, DocTo.COORD_GACEV));
+                        service.withSearcher(searcher -> searcher.count(new TermQuery(service.createTerm(IndexLayout.BINARY_SHA1, DocTo.Fields.SHA1, SHA1_A))));
+                    }
+                    return null;
+                });
+            for (int i = 0; i < 5; i++)
+            {
+                writeIndex(SHA1_A, "org.example.group");
+                assertTrue(service.maybeRefresh());
+            }
+            done.countDown();
+            for (Future<?> lookup : lookups)
+                lookup.get(30, TimeUnit.SECONDS);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * An index whose segments are replaced before its SHA1 filter is searched without the stale filter,
+     * which is used once the filter of the index replaces it.
+     */
+    @Test
+    public void testStaleSha1FilterIsIgnored() throws Exception
+    {
+        writeIndex(SHA1_A, "org.example.first");
+        final File other = new File(temp.getRoot(), "other");
+        writeIndex(other, SHA1_B, "org.example.second");
+        final File sha1FilterFile = new File(indexDir, Sha1BloomFilter.FILE_NAME);
+
+        try (LuceneIndexServiceBase service = new LuceneIndexServiceBase(indexDir))
+        {
+            assertNotNull(service.findSingle(DocTo.Fields.SHA1, SHA1_A, DocTo.COORD_GACEV));
+            assertNull(service.findSingle(DocTo.Fields.SHA1, SHA1_B, DocTo.COORD_GACEV));
+            assertNotNull(sha1Filter(service));
+
+            // The segments of the other index, with the same file names, and the filter of the first one.
+            for (File file : indexDir.listFiles())
+            {
+                if (!file.equals(sha1FilterFile))
+                    assertTrue(file.toString(), file.delete());
+            }
+            for (File file : other.listFiles())
+            {
+                if (!file.getName().equals(Sha1BloomFilter.FILE_NAME))
+                    Files.copy(file.toPath(), new File(indexDir, file.getName()).toPath());
+            }
+            assertTrue(service.maybeRefresh());
+            assertNull(sha1Filter(service));
+            assertEquals("org.example.second:artifact::jar:1.0", service.findSingle(DocTo.Fields.SHA1, SHA1_B, DocTo.COORD_GACEV));
+            assertNull(service.findSingle(DocTo.Fields.SHA1, SHA1_A, DocTo.COORD_GACEV));
+            final long generation = generation(service);
+
+            // Still the stale filter.
+            assertTrue(service.maybeRefresh());
+            assertNull(sha1Filter(service));
+
+            // The filter of the index, found by the next refresh of the same snapshot.
+            Files.copy(new File(other, Sha1BloomFilter.FILE_NAME).toPath(), sha1FilterFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            assertTrue(service.maybeRefresh());
+            assertEquals(Sha1BloomFilter.map(other).getIdentity(), sha1Filter(service).getIdentity());
+            assertEquals(generation, generation(service));
+            assertEquals("org.example.second:artifact::jar:1.0", service.findSingle(DocTo.Fields.SHA1, SHA1_B, DocTo.COORD_GACEV));
+            assertNull(service.findSingle(DocTo.Fields.SHA1, SHA1_A, DocTo.COORD_GACEV));
+        }
+    }
+
+
+    /**
+     * The documents found in the cache are copies, which the callers may modify.
+     */
+    @Test
+    public void testCachedDocumentsAreCopies() throws Exception
+    {
+        writeIndex(SHA1_A, "org.example.group");
+        try (LuceneIndexServiceBase service = new LuceneIndexServiceBase(indexDir))
+        {
+            for (int i = 0; i < 3; i++)
+            {
+                service.findByField(DocTo.Fields.SHA1, SHA1_A, 1, doc -> {
+                    assertEquals("org.example.group", doc.get(DocTo.Fields.GROUP_ID));
+                    doc.removeField(DocTo.Fields.GROUP_ID);
+                    doc.add(new StoredField(DocTo.Fields.GROUP_ID, "modified"));
+                });
+                final Document doc = service.findSingle(DocTo.Fields.SHA1, SHA1_A, d -> d);
+                assertEquals("org.example.group", doc.get(DocTo.Fields.GROUP_ID));
+                doc.removeField(DocTo.Fields.GROUP_ID);
+                assertEquals("org.example.group", service.findBySha1s(Collections.singleton(SHA1_A), d -> d.get(DocTo.Fields.GROUP_ID)).get(SHA1_A));
+            }
+            assertTrue(service.getCacheStats().getHits() > 0);
+        }
+    }
+
+
+    /**
+     * The artifacts converted in each layout, sorted or not, are found by their SHA1.
+     */
+    @Test
+    public void testRoundTripForEachLayout() throws Exception
+    {
+        final Map<String, List<String>> expected = new TreeMap<>();
+        final Random random = new Random(42);
+        final List<String> sha1s = new ArrayList<>();
+        for (int i = 0; i < 500; i++)
+        {
+            final byte[] bytes = new byte[20];
+            random.nextBytes(bytes);
+            sha1s.add(ArtifactRecord.toHex(bytes));
+        }
+        final List<String[]> artifacts = new ArrayList<>();
+        for (int i = 0; i < 2000; i++)
+        {
+            // Some SHA1s have several artifacts, some none.
+            final String sha1 = sha1s.get(random.nextInt(400));
+            final String classifier = i % 5 == 0 ? "jdk8" : "";
+            artifacts.add(new String[]{sha1, "org.example.group" + (i % 10), "artifact-" + i, "1." + i, "jar", classifier});
+            expected.computeIfAbsent(sha1, key -> new ArrayList<>()).add("org.example.group" + (i % 10) + ":artifact-" + i + ":" + classifier + ":jar:1." + i);
+        }
+
+        for (IndexLayout layout : IndexLayout.values())
+        {
+            for (boolean sortBySha1 : new boolean[]{false, true})
+            {
+                final String description = layout + (sortBySha1 ? " sorted" : "");
+                final File dir = new File(temp.getRoot(), layout + "-" + sortBySha1);
+                final TextFileToLucene7Converter converter = new TextFileToLucene7Converter(dir, ArtifactFilter.LIBRARIES, layout, sortBySha1);
+                for (String[] artifact : artifacts)
+                    converter.visit(artifact[0], artifact[1], artifact[2], artifact[3], artifact[4], artifact[5]);
+                converter.done();
+
+                try (LuceneIndexServiceBase service = new LuceneIndexServiceBase(dir))
+                {
+                    assertEquals(description, layout, service.getLayout());
+                    for (String sha1 : sha1s)
+                    {
+                        final List<String> coordinates = expected.getOrDefault(sha1, Collections.emptyList());
+                        final List<String> found = new ArrayList<>();
+                        service.findByField(DocTo.Fields.SHA1, sha1, 100, doc -> found.add(DocTo.COORD_GACEV.convert(doc)));
+                        assertEquals(description + " " + sha1, new TreeSet<>(coordinates), new TreeSet<>(found));
+                        // The sorted index keeps the artifacts of a SHA1 in the order they were visited.
+                        if (sortBySha1)
+                            assertEquals(description + " " + sha1, coordinates, found);
+                        final String single = service.findSingle(DocTo.Fields.SHA1, sha1, DocTo.COORD_GACEV);
+                        if (coordinates.isEmpty())
+                            assertNull(description + " " + sha1, single);
+                        else
+                            assertTrue(description + " " + sha1, coordinates.contains(single));
+                    }
+
+                    final Map<String, String> found = service.findBySha1s(sha1s, DocTo.COORD_GACEV);
+                    assertEquals(description, expected.keySet(), found.keySet());
+                    for (Map.Entry<String, String> entry : found.entrySet())
+                        assertTrue(description + " " + entry.getKey(), expected.get(entry.getKey()).contains(entry.getValue()));
+
+                    try (Stream<String> documents = service.streamAllDocuments(DocTo.COORD_GACEV))
+                    {
+                        assertEquals(description, artifacts.size(), documents.count());
+                    }
+                    assertNull(description, service.findSingle(DocTo.Fields.SHA1, "not a sha1", DocTo.COORD_GACEV));
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Each SHA1 given to findBySha1s() gets the result of findSingle(), even when several ones are given for the same term.
+     */
+    @Test
+    public void testFindBySha1sKeys() throws Exception
+    {
+        for (IndexLayout layout : IndexLayout.values())
+        {
+            final File dir = new File(temp.getRoot(), layout.toString());
+            final TextFileToLucene7Converter converter = new TextFileToLucene7Converter(dir, ArtifactFilter.LIBRARIES, layout, true);
+            converter.visit(SHA1_A, "org.example.a", "artifact", "1.0", "jar", "");
+            converter.visit(SHA1_B, "org.example.b", "artifact", "1.0", "jar", "");
+            converter.done();
+
+            try (LuceneIndexServiceBase service = new LuceneIndexServiceBase(dir))
+            {
+                final List<String> sha1s = Arrays.asList(SHA1_A, SHA1_A.toUpperCase(), SHA1_B, SHA1_A, "0000000000000000000000000000000000000000");
+                final Map<String, String> notCached = service.findBySha1s(sha1s, DocTo.COORD_GACEV);
+                final Map<String, String> expected = new TreeMap<>();
+                for (String sha1 : sha1s)
+                {
+                    final String single = service.findSingle(DocTo.Fields.SHA1, sha1, DocTo.COORD_GACEV);
+                    if (single != null)
+                        expected.put(sha1, single);
+                }
+                assertEquals(layout.toString(), 2, expected.size());
+                assertEquals(layout.toString(), expected, new TreeMap<>(notCached));
+                assertEquals(layout.toString(), expected, new TreeMap<>(service.findBySha1s(sha1s, DocTo.COORD_GACEV)));
+            }
+        }
+    }
+
+    @Test
+    public void testTypePropertiesInAnyCase()
+    {
+        try
+        {
+            System.setProperty(IndexDirectoryType.DIRECTORY_TYPE_PROPERTY, " mmap ");
+            System.setProperty(IndexLayout.LAYOUT_PROPERTY, "Binary_Sha1_Doc_Values");
+            assertEquals(IndexDirectoryType.MMAP, IndexDirectoryType.fromSystemProperties());
+            assertEquals(IndexLayout.BINARY_SHA1_DOC_VALUES, IndexLayout.fromSystemProperties());
+
+            System.setProperty(IndexDirectoryType.DIRECTORY_TYPE_PROPERTY, "mapped");
+            try
+            {
+                IndexDirectoryType.fromSystemProperties();
+                fail("Unsupported directory type");
+            }
+            catch (IllegalArgumentException ex)
+            {
+                assertEquals("Unsupported directory type 'mapped' in the " + IndexDirectoryType.DIRECTORY_TYPE_PROPERTY
+                            + " system property, expected one of: [AUTO, MMAP, NIO, SIMPLE]", ex.getMessage());
+            }
+
+            System.clearProperty(IndexDirectoryType.DIRECTORY_TYPE_PROPERTY);
+            System.clearProperty(IndexLayout.LAYOUT_PROPERTY);
+            assertEquals(IndexDirectoryType.AUTO, IndexDirectoryType.fromSystemProperties());
+            assertEquals(IndexLayout.HEX_SHA1, IndexLayout.fromSystemProperties());
+        }
+        finally
+        {
+            System.clearProperty(IndexDirectoryType.DIRECTORY_TYPE_PROPERTY);
+            System.clearProperty(IndexLayout.LAYOUT_PROPERTY);
+        }
+    }
+
+
+    /**
+     * Writes a new index of a single artifact, replacing the previous one.
+     */
+    private void writeIndex(String sha1, String group)
+    {
+        writeIndex(indexDir, sha1, group);
+    }
+
+    private static void writeIndex(File dir, String sha1, String group)
+    {
+        final TextFileToLucene7Converter converter = new TextFileToLucene7Converter(dir, ArtifactFilter.LIBRARIES, IndexLayout.BINARY_SHA1, false);
+        converter.visit(sha1, group, "artifact", "1.0", "jar", "");
+        converter.done();
+    }
+
+    private static Sha1BloomFilter sha1Filter(LuceneIndexServiceBase service) throws IOException
+    {
+        final IndexSnapshot snapshot = service.acquireSnapshot();
+        try
+        {
+            return snapshot.getSha1Filter();
+        }
+        finally
+        {
+            service.releaseSnapshot(snapshot);
+        }
+    }
+
+    private static long generation(LuceneIndexServiceBase service) throws IOException
+    {
+        final IndexSnapshot snapshot = service.acquireSnapshot();
+        try
+        {
+            return snapshot.getGeneration();
+        }
+        finally
+        {
+            service.releaseSnapshot(snapshot);
+        }
+    }
+}
@@ -2,6 +2,9 @@ package org.jboss.windup.maven.nexusindexer.client;
 
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause;
@@ -38,6 +41,23 @@ public class QueryAndListIT
     }
 
 
+    @Test
+    public void testFindBySha1s(){
+        File indexDir = new File("target/", RepositoryIndexManager.LUCENE_SUBDIR_CHECKSUMS);
+        LuceneIndexServiceBase indexService = new LuceneIndexServiceBase(indexDir){};
+        // 05ccde9cb5e3071eaadf5d87a84b4d0aba43b119 org.apache.commons:commons-lang3:jar::3.3
+        Map<String, String> results = indexService.findBySha1s(Arrays.asList("05ccde9cb5e3071eaadf5d87a84b4d0aba43b119",
+                    "0000000000000000000000000000000000000000", "not a sha1"), new DocTo<String>()
+        {
+            @Override
+            public String convert(Document doc)
+            {
+                return doc.get(DocTo.Fields.ARTIFACT_ID);
+            }
+        });
+        Assert.assertEquals(Collections.singletonMap("05ccde9cb5e3071eaadf5d87a84b4d0aba43b119", "commons-lang3"), results);
+    }
+
 
     @Test @Ignore
     public void testSomePotentiallyUsefulCode(){
@@ -0,0 +1,122 @@
+package org.jboss.windup.maven.nexusindexer.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.jboss.windup.maven.nexusindexer.ArtifactFilter;
+import org.jboss.windup.maven.nexusindexer.Sha1TableArtifactVisitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of the SHA1 lookups in a {@link Sha1Table}, and of the same lookups by {@link LuceneIndexServiceBase#findSingle}
+ * in a Lucene index of the same artifacts, sorted by SHA1: of random SHA1s in the table or index, and of random SHA1s
+ * which are not, as most of the jars of an application. The lookup cache is disabled.
+ * Run with -prof gc to compare the allocations: the missing SHA1s allocate nothing in the table.
+ *
+ * <pre>
+ * mvn -f data/pom.xml test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main Sha1TableLookupBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g", "-Dnexus-indexer.lucene.lookupCacheSize=0"})
+public class Sha1TableLookupBenchmark
+{
+    @Param({"500000"})
+    public int artifacts;
+
+    @Param({"table", "lucene"})
+    public String store;
+
+    private File dir;
+    private Sha1Table table;
+    private LuceneIndexServiceBase service;
+    private String[] sha1s;
+    private String[] missing;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        sha1s = new String[artifacts];
+        missing = new String[artifacts];
+        for (int i = 0; i < artifacts; i++)
+        {
+            sha1s[i] = SyntheticArtifacts.sha1(i);
+            missing[i] = SyntheticArtifacts.sha1(-1 - i);
+        }
+        final List<String> shuffled = Arrays.asList(sha1s.clone());
+        Collections.shuffle(shuffled, new Random(42));
+
+        dir = Files.createTempDirectory("sha1-table-lookup-").toFile();
+        if ("table".equals(store))
+        {
+            final File file = new File(dir, "test" + Sha1TableArtifactVisitor.FILE_SUFFIX);
+            final Sha1TableArtifactVisitor visitor = new Sha1TableArtifactVisitor(file, ArtifactFilter.LIBRARIES);
+            for (int i = 0; i < artifacts; i++)
+                visitor.visit(SyntheticArtifacts.artifact(i, shuffled.get(i)));
+            visitor.done();
+            table = Sha1Table.map(file);
+        }
+        else
+        {
+            SyntheticArtifacts.writeIndex(dir, shuffled, IndexLayout.BINARY_SHA1, true);
+            service = new LuceneIndexServiceBase(dir) {};
+        }
+
+        final Random random = new Random(7);
+        Collections.shuffle(Arrays.asList(sha1s), random);
+        Collections.shuffle(Arrays.asList(missing), random);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        if (service != null)
+            service.close();
+        table = null;
+        FileUtils.deleteDirectory(dir);
+    }
+
+
+    @Benchmark
+    public String findSingle()
+    {
+        return find(sha1s[next++ % sha1s.length]);
+    }
+
+    @Benchmark
+    public String findMissing()
+    {
+        return find(missing[next++ % missing.length]);
+    }
+
+    private String find(String sha1)
+    {
+        return table != null
+                    ? table.findSingle(sha1, DocTo.COORD_GACEV)
+                    : service.findSingle(DocTo.Fields.SHA1, sha1, DocTo.COORD_GACEV);
+    }
+}
@@ -0,0 +1,205 @@
+package org.jboss.windup.maven.nexusindexer.client;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.apache.lucene.document.Document;
+import org.jboss.windup.maven.nexusindexer.ArtifactFilter;
+import org.jboss.windup.maven.nexusindexer.ArtifactRecord;
+import org.jboss.windup.maven.nexusindexer.Sha1TableArtifactVisitor;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+
+public class Sha1TableTest
+{
+    private static final DocTo<String> COORDINATES = doc -> String.join(":", doc.get(DocTo.Fields.GROUP_ID), doc.get(DocTo.Fields.ARTIFACT_ID),
+                doc.get(DocTo.Fields.PACKAGING), doc.get(DocTo.Fields.CLASSIFIER), doc.get(DocTo.Fields.VERSION));
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final Random random = new Random(42);
+
+    /**
+     * The coordinates of the artifacts written to the table by SHA1, sorted as in the table.
+     */
+    private final Map<String, List<String>> expected = new TreeMap<>();
+    private Sha1Table table;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        final File file = new File(temp.getRoot(), "test" + Sha1TableArtifactVisitor.FILE_SUFFIX);
+        final Sha1TableArtifactVisitor visitor = new Sha1TableArtifactVisitor(file, ArtifactFilter.LIBRARIES);
+        int artifacts = 0;
+        // The first bytes 0x00, 0x7f, 0x80 and 0xff only, so that the other buckets of the fan-out are empty,
+        // the buckets before and after the used ones too.
+        for (int first : new int[]{0x00, 0x7f, 0x80, 0xff})
+        {
+            for (int i = 0; i < 500; i++)
+            {
+                final String sha1 = randomSha1(first);
+                // Some SHA1s with several artifacts.
+                final int count = i % 50 == 0 ? 12 : i % 7 == 0 ? 2 : 1;
+                for (int j = 0; j < count; j++)
+                    add(visitor, sha1, artifacts++);
+            }
+        }
+        // The lowest and highest SHA1s.
+        add(visitor, "0000000000000000000000000000000000000000", artifacts++);
+        add(visitor, "0000000000000000000000000000000000000000", artifacts++);
+        add(visitor, "ffffffffffffffffffffffffffffffffffffffff", artifacts++);
+        visitor.done();
+
+        table = Sha1Table.map(file);
+        assertEquals(artifacts, table.size());
+    }
+
+    private void add(Sha1TableArtifactVisitor visitor, String sha1, int i)
+    {
+        final String group = "org.example.group" + (i % 7);
+        final String classifier = i % 3 == 0 ? "jdk8" : "";
+        visitor.visit(new ArtifactRecord(sha1, group, "artifact-" + i, "1." + i, "jar", classifier));
+        final List<String> coordinates = expected.computeIfAbsent(sha1, key -> new ArrayList<>());
+        coordinates.add(String.join(":", group, "artifact-" + i, "jar", classifier, "1." + i));
+        Collections.sort(coordinates);
+    }
+
+
+    @Test
+    public void testFindsAllTheArtifacts()
+    {
+        for (Map.Entry<String, List<String>> entry : expected.entrySet())
+        {
+            final String sha1 = entry.getKey();
+            assertTrue(sha1, table.contains(sha1));
+            assertEquals(sha1, entry.getValue().get(0), table.findSingle(sha1, COORDINATES));
+            assertEquals(sha1, entry.getValue(), findBySha1(sha1, Integer.MAX_VALUE));
+        }
+    }
+
+    @Test
+    public void testMaxHits()
+    {
+        for (Map.Entry<String, List<String>> entry : expected.entrySet())
+        {
+            final List<String> coordinates = entry.getValue();
+            for (int maxHits : new int[]{1, 2, 5, coordinates.size(), coordinates.size() + 1})
+            {
+                assertEquals(entry.getKey() + " " + maxHits, coordinates.subList(0, Math.min(maxHits, coordinates.size())),
+                            findBySha1(entry.getKey(), maxHits));
+            }
+        }
+        assertEquals(Collections.emptyList(), findBySha1(expected.keySet().iterator().next(), 0));
+    }
+
+    @Test
+    public void testMisses()
+    {
+        final List<String> misses = new ArrayList<>();
+        // Next to each SHA1 of the table, which may fall in another bucket of the fan-out.
+        for (String sha1 : expected.keySet())
+        {
+            misses.add(neighbour(sha1, 1));
+            misses.add(neighbour(sha1, -1));
+        }
+        // In the empty buckets, and in the used ones.
+        for (int first = 0; first < 256; first++)
+            misses.add(randomSha1(first));
+        misses.add("0000000000000000000000000000000000000001");
+        misses.add("fffffffffffffffffffffffffffffffffffffffe");
+        misses.add("7fffffffffffffffffffffffffffffffffffffff");
+        misses.add("8000000000000000000000000000000000000000");
+        misses.removeAll(expected.keySet());
+        assertTrue(misses.size() > 4000);
+
+        for (String sha1 : misses)
+        {
+            assertFalse(sha1, table.contains(sha1));
+            assertNull(sha1, table.findSingle(sha1, COORDINATES));
+            assertEquals(sha1, Collections.emptyList(), findBySha1(sha1, 10));
+        }
+    }
+
+    @Test
+    public void testInvalidSha1s()
+    {
+        final String sha1 = expected.keySet().stream().filter(key -> key.matches(".*[0-9].*") && key.matches(".*[a-f].*")).findFirst().get();
+        for (String invalid : Arrays.asList(null, "", sha1.toUpperCase(), sha1.substring(1), sha1 + "0", "g" + sha1.substring(1), sha1.replace('0', ' ')))
+        {
+            assertFalse(invalid, table.contains(invalid));
+            assertNull(invalid, table.findSingle(invalid, COORDINATES));
+        }
+        assertTrue(table.contains(sha1));
+    }
+
+    @Test
+    public void testFindBySha1s()
+    {
+        final List<String> sha1s = new ArrayList<>(expected.keySet());
+        Collections.shuffle(sha1s, random);
+        final List<String> queried = new ArrayList<>(sha1s.subList(0, 1000));
+        queried.add(neighbour(sha1s.get(0), 1));
+        queried.add(randomSha1(0x42));
+        queried.add(sha1s.get(1).toUpperCase());
+
+        final Map<String, String> found = table.findBySha1s(queried, COORDINATES);
+        final Map<String, String> reference = new TreeMap<>();
+        for (String sha1 : sha1s.subList(0, 1000))
+            reference.put(sha1, expected.get(sha1).get(0));
+        assertEquals(reference, new TreeMap<>(found));
+    }
+
+    @Test
+    public void testVisitsAllInOrder()
+    {
+        final List<String> all = expected.values().stream().flatMap(List::stream).collect(Collectors.toList());
+        assertEquals(all, table.streamAllDocuments(COORDINATES).collect(Collectors.toList()));
+        final List<String> visited = new ArrayList<>();
+        assertEquals(all.size(), table.visitAllDocuments(doc -> visited.add(COORDINATES.convert(doc))));
+        assertEquals(all, visited);
+    }
+
+
+    private List<String> findBySha1(String sha1, int maxHits)
+    {
+        final List<String> found = new ArrayList<>();
+        table.findBySha1(sha1, maxHits, (Document doc) -> found.add(COORDINATES.convert(doc)));
+        return found;
+    }
+
+    /**
+     * @return The SHA1 after or before the given one, wrapping around.
+     */
+    private static String neighbour(String sha1, int delta)
+    {
+        final byte[] bytes = ArtifactRecord.parseSha1(sha1);
+        for (int i = bytes.length - 1; i >= 0; i--)
+        {
+            bytes[i] += delta;
+            if (bytes[i] != (byte) (delta > 0 ? 0x00 : 0xff))
+                break;
+        }
+        return ArtifactRecord.toHex(bytes);
+    }
+
+    private String randomSha1(int firstByte)
+    {
+        final byte[] bytes = new byte[ArtifactRecord.SHA1_LENGTH];
+        random.nextBytes(bytes);
+        bytes[0] = (byte) firstByte;
+        return ArtifactRecord.toHex(bytes);
+    }
+}
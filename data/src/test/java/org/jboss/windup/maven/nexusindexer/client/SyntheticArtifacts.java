@@ -0,0 +1,67 @@
+package org.jboss.windup.maven.nexusindexer.client;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+import org.jboss.windup.maven.nexusindexer.ArtifactFilter;
+import org.jboss.windup.maven.nexusindexer.ArtifactRecord;
+
+/**
+ * The artifacts of the indexes written by the lookup benchmarks, generated deterministically from their number:
+ * the SHA1s are the SHA1s of the numbers, and the artifacts share 500 groups and 5000 artifact ids.
+ */
+public class SyntheticArtifacts
+{
+    /**
+     * @return The SHA1 of the given number, in lower case hex.
+     */
+    public static String sha1(int i)
+    {
+        try
+        {
+            return ArtifactRecord.toHex(MessageDigest.getInstance("SHA-1").digest(Integer.toString(i).getBytes("UTF-8")));
+        }
+        catch (NoSuchAlgorithmException | UnsupportedEncodingException ex)
+        {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * @return The SHA1s of the numbers 0 to count - 1.
+     */
+    public static String[] sha1s(int count)
+    {
+        final String[] sha1s = new String[count];
+        for (int i = 0; i < count; i++)
+            sha1s[i] = sha1(i);
+        return sha1s;
+    }
+
+    /**
+     * @return The artifact of the given number, with the given SHA1.
+     */
+    public static ArtifactRecord artifact(int i, String sha1)
+    {
+        return new ArtifactRecord(sha1, "org.example.group" + (i % 500), "artifact-" + (i % 5000), "1." + i, "jar", "");
+    }
+
+    /**
+     * Writes a Lucene index in the given directory with {@link TextFileToLucene7Converter}, of an artifact per SHA1,
+     * numbered by the position of its SHA1 in the list.
+     */
+    public static void writeIndex(File indexDir, List<String> sha1s, IndexLayout layout, boolean sortBySha1)
+    {
+        final TextFileToLucene7Converter converter = new TextFileToLucene7Converter(indexDir, ArtifactFilter.LIBRARIES, layout, sortBySha1);
+        for (int i = 0; i < sha1s.size(); i++)
+        {
+            final ArtifactRecord artifact = artifact(i, sha1s.get(i));
+            converter.visit(artifact.getSha1(), artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(),
+                        artifact.getPackaging(), artifact.getClassifier());
+        }
+        converter.done();
+    }
+}
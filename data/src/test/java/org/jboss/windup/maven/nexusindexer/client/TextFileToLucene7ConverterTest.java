@@ -0,0 +1,402 @@
+package org.jboss.windup.maven.nexusindexer.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.SimpleFSDirectory;
+import org.jboss.windup.maven.nexusindexer.ArtifactFilter;
+import org.jboss.windup.maven.nexusindexer.ArtifactRecord;
+import org.jboss.windup.maven.nexusindexer.Sha1BloomFilter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+
+public class TextFileToLucene7ConverterTest
+{
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final Random random = new Random(42);
+    private final List<String> sha1s = new ArrayList<>();
+
+    @Before
+    public void setUp()
+    {
+        // The indexes are opened once by the tests.
+        System.setProperty(LuceneIndexServiceBase.CHANGE_CHECK_PROPERTY, "0");
+        for (int i = 0; i < 300; i++)
+            sha1s.add(randomSha1());
+    }
+
+    @After
+    public void tearDown()
+    {
+        System.clearProperty(LuceneIndexServiceBase.CHANGE_CHECK_PROPERTY);
+        System.clearProperty(TextFileToLucene7Converter.INCREMENTAL_PROPERTY);
+        System.clearProperty(TextFileToLucene7Converter.THREADS_PROPERTY);
+    }
+
+
+    /**
+     * The sorted index converted by several threads, from many small chunks, has its documents in the same order
+     * as converted by a single thread: by SHA1, then in the order of the files and of their lines.
+     */
+    @Test
+    public void testThreadsKeepTheDocumentOrder() throws Exception
+    {
+        // Unsorted files, the SHA1s of each in several chunks, and in several files.
+        final List<List<String>> files = new ArrayList<>();
+        final List<String> expected = new ArrayList<>();
+        final List<String[]> order = new ArrayList<>();
+        for (int f = 0; f < 3; f++)
+        {
+            final List<String> lines = new ArrayList<>();
+            for (int i = 0; i < 2000; i++)
+            {
+                final String sha1 = sha1s.get(random.nextInt(sha1s.size()));
+                final int artifact = f * 10_000 + i;
+                lines.add(line(sha1, artifact));
+                order.add(new String[]{sha1, String.format("%d %05d", f, i), "org.example.group" + (artifact % 10) + ":artifact-" + artifact + "::jar:1." + artifact});
+            }
+            files.add(lines);
+        }
+        order.sort((a, b) -> a[0].equals(b[0]) ? a[1].compareTo(b[1]) : a[0].compareTo(b[0]));
+        for (String[] artifact : order)
+            expected.add(artifact[2]);
+        final List<File> inputs = writeInputs("inputs", files);
+
+        for (IndexLayout layout : IndexLayout.values())
+        {
+            final List<List<String>> documents = new ArrayList<>();
+            for (int threads : new int[]{1, 4})
+            {
+                final File indexDir = new File(temp.getRoot(), "index-" + layout + "-" + threads);
+                final TextFileToLucene7Converter converter = new TextFileToLucene7Converter(indexDir, ArtifactFilter.LIBRARIES, layout, true);
+                converter.setChunkSize(4096);
+                converter.convert(inputs, threads);
+                converter.done();
+                try (LuceneIndexServiceBase service = new LuceneIndexServiceBase(indexDir);
+                     Stream<String> stream = service.streamAllDocuments(DocTo.COORD_GACEV))
+                {
+                    documents.add(stream.collect(Collectors.toList()));
+                }
+            }
+            assertEquals(layout + " with 1 thread", expected, documents.get(0));
+            assertEquals(layout + " with 4 threads", expected, documents.get(1));
+        }
+        assertTrue("Several chunks per file", ArtifactLineParser.split(inputs.get(0), 4096).length > 10);
+    }
+
+    /**
+     * An index updated from the changes of its input files has the same artifacts as the one converted from the new files.
+     */
+    @Test
+    public void testUpdateEqualsFullConversion() throws Exception
+    {
+        for (IndexLayout layout : IndexLayout.values())
+        {
+            final List<File> previous = writeInputs("previous-" + layout, randomLines(0, 1000));
+            final List<File> inputs = writeInputs("inputs-" + layout, changeLines(previous));
+
+            final File updated = convert("updated-" + layout, layout, true, previous);
+            TextFileToLucene7Converter.update(updated, ArtifactFilter.LIBRARIES, previous, inputs);
+            final File converted = convert("converted-" + layout, layout, true, inputs);
+
+            assertEquals(layout.toString(), contents(converted), contents(updated));
+            assertEquals(layout.toString(), readManifest(converted), readManifest(updated));
+            // Committed with its layout and its filter.
+            for (File indexDir : Arrays.asList(converted, updated))
+            {
+                final Map<String, String> commitData = readCommitData(indexDir);
+                assertEquals(layout.toString(), layout.name(), commitData.get(IndexLayout.COMMIT_DATA_KEY));
+                assertEquals(layout.toString(), Sha1BloomFilter.map(indexDir).getIdentity(), commitData.get(Sha1BloomFilter.COMMIT_DATA_KEY));
+            }
+            // The previous artifacts are gone, the new ones found.
+            assertNotEquals(layout.toString(), contents(convert("previous-" + layout, layout, true, previous)), contents(updated));
+        }
+    }
+
+    @Test
+    public void testManifestOnlyWhenRequested() throws Exception
+    {
+        final List<File> inputs = writeInputs("inputs", randomLines(0, 100));
+        final Map<String, String> manifest = readManifest(convert("with", IndexLayout.BINARY_SHA1, true, inputs));
+        assertEquals(new TreeSet<>(Arrays.asList(TextFileToLucene7Converter.MANIFEST_INPUT_PREFIX + "a.txt", TextFileToLucene7Converter.MANIFEST_INPUT_PREFIX + "b.txt")),
+                    manifest.keySet());
+        assertEquals(SortedLineDiff.checksum(inputs.get(0)), manifest.get(TextFileToLucene7Converter.MANIFEST_INPUT_PREFIX + "a.txt"));
+
+        final TextFileToLucene7Converter converter = new TextFileToLucene7Converter(new File(temp.getRoot(), "without"), ArtifactFilter.LIBRARIES,
+                    IndexLayout.BINARY_SHA1, true);
+        converter.convert(inputs, 1);
+        converter.done();
+        assertEquals(Collections.emptyMap(), readManifest(new File(temp.getRoot(), "without")));
+        assertEquals(IndexLayout.BINARY_SHA1.name(), readCommitData(new File(temp.getRoot(), "without")).get(IndexLayout.COMMIT_DATA_KEY));
+        try
+        {
+            TextFileToLucene7Converter.update(new File(temp.getRoot(), "without"), ArtifactFilter.LIBRARIES, inputs, inputs);
+            fail("An index without a manifest can't be updated");
+        }
+        catch (IOException ex)
+        {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("not from the previous input files"));
+        }
+    }
+
+    /**
+     * An update from other previous input files than the ones the index was converted from fails, and leaves the index unchanged.
+     */
+    @Test
+    public void testUpdateRejectsManifestMismatch() throws Exception
+    {
+        final List<File> previous = writeInputs("previous", randomLines(0, 500));
+        final File indexDir = convert("index", IndexLayout.BINARY_SHA1, true, previous);
+        final Map<String, List<String>> expected = contents(indexDir);
+        final List<File> inputs = writeInputs("inputs", changeLines(previous));
+
+        // Same names, other contents.
+        final List<File> otherPrevious = writeInputs("other", changeLines(previous));
+        try
+        {
+            TextFileToLucene7Converter.update(indexDir, ArtifactFilter.LIBRARIES, otherPrevious, inputs);
+            fail("The previous input files differ from the converted ones");
+        }
+        catch (IOException ex)
+        {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("changed since the index was converted"));
+        }
+        assertEquals(expected, contents(indexDir));
+
+        // Other names.
+        try
+        {
+            TextFileToLucene7Converter.update(indexDir, ArtifactFilter.LIBRARIES, previous.subList(0, 1), inputs.subList(0, 1));
+            fail("The previous input files are not the converted ones");
+        }
+        catch (IOException ex)
+        {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("not from the previous input files"));
+        }
+        assertEquals(expected, contents(indexDir));
+
+        // The index can still be updated from the right files.
+        TextFileToLucene7Converter.update(indexDir, ArtifactFilter.LIBRARIES, previous, inputs);
+        assertEquals(contents(convert("converted", IndexLayout.BINARY_SHA1, true, inputs)), contents(indexDir));
+    }
+
+    /**
+     * An update from an input file which is not sorted fails, and leaves the index unchanged.
+     */
+    @Test
+    public void testUpdateRejectsUnsortedInput() throws Exception
+    {
+        final List<File> previous = writeInputs("previous", randomLines(0, 500));
+        final File indexDir = convert("index", IndexLayout.BINARY_SHA1, true, previous);
+        final Map<String, List<String>> expected = contents(indexDir);
+
+        final List<List<String>> lines = changeLines(previous);
+        Collections.reverse(lines.get(1));
+        final List<File> inputs = writeInputs("inputs", lines);
+        try
+        {
+            TextFileToLucene7Converter.update(indexDir, ArtifactFilter.LIBRARIES, previous, inputs);
+            fail("An input file is not sorted");
+        }
+        catch (IOException ex)
+        {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("not sorted"));
+        }
+        assertEquals(expected, contents(indexDir));
+        assertEquals(readManifest(convert("previous", IndexLayout.BINARY_SHA1, true, previous)), readManifest(indexDir));
+    }
+
+    /**
+     * The incremental conversion of {@link TextFileToLucene7Converter#main(String[])} updates the index, and converts
+     * all the input files when the index can't be updated.
+     */
+    @Test
+    public void testIncrementalConversionFallsBackToFullConversion() throws Exception
+    {
+        System.setProperty(TextFileToLucene7Converter.INCREMENTAL_PROPERTY, "true");
+        System.setProperty(TextFileToLucene7Converter.THREADS_PROPERTY, "2");
+        final File inputDir = temp.newFolder("input");
+        final File indexDir = new File(temp.getRoot(), "lucene");
+        final File copiesDir = new File(temp.getRoot(), "lucene.inputs");
+        final String[] args = {inputDir.getPath(), indexDir.getPath()};
+
+        // No copies of the previous inputs: converted.
+        List<File> inputs = writeInputs("input", randomLines(0, 500));
+        TextFileToLucene7Converter.main(args);
+        assertEquals(contents(convert("expected1", IndexLayout.HEX_SHA1, true, inputs)), contents(indexDir));
+        assertTrue(new File(copiesDir, "a.txt").exists());
+
+        // Updated.
+        inputs = writeInputs("input", changeLines(inputs));
+        TextFileToLucene7Converter.main(args);
+        assertEquals(contents(convert("expected2", IndexLayout.HEX_SHA1, true, inputs)), contents(indexDir));
+        assertTrue("The changed artifacts are in new segments", countSegments(indexDir) > 1);
+
+        // The copies don't match the manifest: converted.
+        Files.write(new File(copiesDir, "a.txt").toPath(), Collections.singletonList("# changed"), StandardCharsets.UTF_8);
+        inputs = writeInputs("input", changeLines(inputs));
+        TextFileToLucene7Converter.main(args);
+        assertEquals(contents(convert("expected3", IndexLayout.HEX_SHA1, true, inputs)), contents(indexDir));
+        assertEquals("Converted into a single segment", 1, countSegments(indexDir));
+
+        // An input file is not sorted: converted.
+        final List<List<String>> lines = changeLines(inputs);
+        Collections.reverse(lines.get(0));
+        inputs = writeInputs("input", lines);
+        TextFileToLucene7Converter.main(args);
+        assertEquals(contents(convert("expected4", IndexLayout.HEX_SHA1, true, inputs)), contents(indexDir));
+        assertEquals(1, countSegments(indexDir));
+    }
+
+
+    /**
+     * @return Artifact lines of the given SHA1s, two files, each sorted, with a few SHA1s in both, and some with several artifacts.
+     */
+    private List<List<String>> randomLines(int first, int count)
+    {
+        final List<List<String>> files = Arrays.asList(new ArrayList<>(), new ArrayList<>());
+        for (int i = first; i < first + count; i++)
+        {
+            final String sha1 = sha1s.get(random.nextInt(sha1s.size()));
+            files.get(random.nextInt(files.size())).add(line(sha1, i));
+        }
+        for (List<String> lines : files)
+            Collections.sort(lines);
+        return files;
+    }
+
+    /**
+     * @return The lines of the given files, with some removed, some added, and some moved to the other file.
+     */
+    private List<List<String>> changeLines(List<File> inputs) throws IOException
+    {
+        final List<List<String>> files = new ArrayList<>();
+        for (File input : inputs)
+            files.add(new ArrayList<>(Files.readAllLines(input.toPath(), StandardCharsets.UTF_8)));
+        for (List<String> lines : files)
+        {
+            lines.removeIf(line -> line.startsWith("#"));
+            for (int i = 0; i < 20 && !lines.isEmpty(); i++)
+                lines.remove(random.nextInt(lines.size()));
+        }
+        for (int i = 0; i < 10 && !files.get(0).isEmpty(); i++)
+            files.get(1).add(files.get(0).remove(random.nextInt(files.get(0).size())));
+        for (int i = 0; i < 30; i++)
+        {
+            final String sha1 = i % 3 == 0 ? randomSha1() : sha1s.get(random.nextInt(sha1s.size()));
+            files.get(random.nextInt(files.size())).add(line(sha1, 100_000 + random.nextInt(100_000)));
+        }
+        for (List<String> lines : files)
+            Collections.sort(lines);
+        return files;
+    }
+
+    private static String line(String sha1, int i)
+    {
+        return sha1 + " org.example.group" + (i % 10) + ":artifact-" + i + ":jar::1." + i;
+    }
+
+    /**
+     * Writes the given lines to the files a.txt and b.txt of the given directory, with a comment first.
+     */
+    private List<File> writeInputs(String name, List<List<String>> files) throws IOException
+    {
+        final File dir = new File(temp.getRoot(), name);
+        dir.mkdirs();
+        final List<File> inputs = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++)
+        {
+            final File input = new File(dir, (char) ('a' + i) + ".txt");
+            final List<String> lines = new ArrayList<>();
+            lines.add("# Artifacts");
+            lines.addAll(files.get(i));
+            Files.write(input.toPath(), lines, StandardCharsets.UTF_8);
+            inputs.add(input);
+        }
+        return inputs;
+    }
+
+    private File convert(String name, IndexLayout layout, boolean withManifest, List<File> inputs) throws IOException
+    {
+        final File indexDir = new File(temp.getRoot(), "index-" + name);
+        FileUtils.deleteDirectory(indexDir);
+        final TextFileToLucene7Converter converter = new TextFileToLucene7Converter(indexDir, ArtifactFilter.LIBRARIES, layout, true, withManifest);
+        converter.convert(inputs, 2);
+        converter.done();
+        return indexDir;
+    }
+
+    /**
+     * @return The coordinates of all the artifacts of the index, with the key "", and the ones found by each SHA1, sorted.
+     */
+    private Map<String, List<String>> contents(File indexDir)
+    {
+        final Map<String, List<String>> contents = new TreeMap<>();
+        try (LuceneIndexServiceBase service = new LuceneIndexServiceBase(indexDir);
+             Stream<String> documents = service.streamAllDocuments(DocTo.COORD_GACEV))
+        {
+            contents.put("", documents.sorted().collect(Collectors.toList()));
+            for (String sha1 : sha1s)
+            {
+                final List<String> found = new ArrayList<>();
+                service.findByField(DocTo.Fields.SHA1, sha1, 100, doc -> found.add(DocTo.COORD_GACEV.convert(doc)));
+                Collections.sort(found);
+                contents.put(sha1, found);
+            }
+        }
+        return contents;
+    }
+
+    private static Map<String, String> readManifest(File indexDir) throws IOException
+    {
+        final Map<String, String> manifest = new TreeMap<>(readCommitData(indexDir));
+        manifest.keySet().removeIf(key -> !key.startsWith(TextFileToLucene7Converter.MANIFEST_INPUT_PREFIX));
+        return manifest;
+    }
+
+    private static Map<String, String> readCommitData(File indexDir) throws IOException
+    {
+        try (Directory directory = new SimpleFSDirectory(indexDir.toPath()))
+        {
+            return SegmentInfos.readLatestCommit(directory).getUserData();
+        }
+    }
+
+    private static int countSegments(File indexDir) throws IOException
+    {
+        try (Directory directory = new SimpleFSDirectory(indexDir.toPath()))
+        {
+            return SegmentInfos.readLatestCommit(directory).size();
+        }
+    }
+
+    private String randomSha1()
+    {
+        final byte[] bytes = new byte[20];
+        random.nextBytes(bytes);
+        return ArtifactRecord.toHex(bytes);
+    }
+}
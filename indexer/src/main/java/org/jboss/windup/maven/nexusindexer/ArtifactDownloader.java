@@ -111,16 +111,7 @@ public class ArtifactDownloader
     {
         final String uInfo = artifactInfo.getUinfo();
         final String[] gav = uInfo.split("\\" + ArtifactInfoRecord.FS);
-        // e.g. https://repo1.maven.org/maven2/org/springframework/boot/spring-boot-starter-web/2.3.2.RELEASE/spring-boot-starter-web-2.3.2.RELEASE-javadoc.jar.sha1
-        final String sha1FileUrl = new StringBuilder(repositoryUrl)
-                // groupId
-                .append("/").append(gav[0].replace('.', '/'))
-                // artifactId
-                .append("/").append(gav[1])
-                // version
-                .append("/").append(gav[2])
-                // file name
-                .append("/").append(gav[1]).append("-").append(gav[2]).append(".jar.sha1").toString();
+        final String sha1FileUrl = getJarSha1Url(repositoryUrl, gav[0], gav[1], gav[2]);
         final URL url = new URL(sha1FileUrl);
         final BufferedReader in = new BufferedReader(new InputStreamReader(url.openStream()));
         // the hash sha1 file should be always a 1 line text file
@@ -134,4 +125,21 @@ public class ArtifactDownloader
         LOG.log(Level.FINE, String.format("Dependency %s hash is %s", uInfo, sha1));
         return sha1;
     }
+
+    /**
+     * @return The URL of the SHA1 file of the main jar of the given artifact in the given Maven repository.
+     */
+    public static String getJarSha1Url(String repositoryUrl, String groupId, String artifactId, String version)
+    {
+        // e.g. https://repo1.maven.org/maven2/org/springframework/boot/spring-boot-starter-web/2.3.2.RELEASE/spring-boot-starter-web-2.3.2.RELEASE-javadoc.jar.sha1
+        return new StringBuilder(repositoryUrl)
+                // groupId
+                .append("/").append(groupId.replace('.', '/'))
+                // artifactId
+                .append("/").append(artifactId)
+                // version
+                .append("/").append(version)
+                // file name
+                .append("/").append(artifactId).append("-").append(version).append(".jar.sha1").toString();
+    }
 }
@@ -2,9 +2,11 @@ package org.jboss.windup.maven.nexusindexer;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Predicate;
 
 import org.apache.maven.index.ArtifactInfo;
 
@@ -23,6 +25,20 @@ public interface ArtifactFilter
         return accept(artifact.getSha1(), artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(), artifact.getPackaging(), artifact.getClassifier());
     }
 
+    default boolean accept(ArtifactRecord artifact)
+    {
+        return accept(artifact.getSha1(), artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(), artifact.getPackaging(), artifact.getClassifier());
+    }
+
+    /**
+     * Names of the Nexus index fields, besides the coordinates and the SHA1, which this filter reads in {@link #accept(ArtifactRecord)}
+     * through {@link ArtifactRecord#getAttributes()}. Only these fields are loaded from the index when scanning it.
+     */
+    default Set<String> getRequiredIndexFields()
+    {
+        return Collections.emptySet();
+    }
+
     public static final class AndFilter implements ArtifactFilter
     {
         List<ArtifactFilter> filters = new ArrayList<>();
@@ -41,13 +57,40 @@ public interface ArtifactFilter
 
         @Override
         public boolean accept(String sha1, String group, String artifactId, String version, String packaging, String classifier) {
+            return combine(filter -> filter.accept(sha1, group, artifactId, version, packaging, classifier));
+        }
+
+        // The sub-filters may read the attributes of the artifact, see getRequiredIndexFields().
+        @Override
+        public boolean accept(ArtifactInfo artifact)
+        {
+            return combine(filter -> filter.accept(artifact));
+        }
+
+        @Override
+        public boolean accept(ArtifactRecord artifact)
+        {
+            return combine(filter -> filter.accept(artifact));
+        }
+
+        private boolean combine(Predicate<ArtifactFilter> accepts)
+        {
             for (ArtifactFilter filter : filters)
             {
-                if (filter.accept(sha1, group, artifactId, version, packaging, classifier) ^ !or)
+                if (accepts.test(filter) ^ !or)
                     return or;
             }
             return !or;
         }
+
+        @Override
+        public Set<String> getRequiredIndexFields()
+        {
+            final Set<String> fields = new HashSet<>();
+            for (ArtifactFilter filter : filters)
+                fields.addAll(filter.getRequiredIndexFields());
+            return fields;
+        }
     }
 
 
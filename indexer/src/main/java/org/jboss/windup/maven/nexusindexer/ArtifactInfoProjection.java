@@ -0,0 +1,194 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.maven.index.ArtifactInfo;
+
+/**
+ * Reads an {@link ArtifactRecord} (or an {@link ArtifactInfo}) from a Nexus index document, loading only the stored fields
+ * the {@link RepositoryIndexManager.ArtifactVisitor}s need: UINFO (G:A:V:C), INFO (packaging) and SHA1,
+ * plus the fields declared by {@link ArtifactFilter#getRequiredIndexFields()}, which end up in the attributes of the loaded artifact.
+ *
+ * This replaces loading the whole document and passing it through every {@link org.apache.maven.index.context.IndexCreator}
+ * (class names, OSGi headers, plugin metadata...) with {@link org.apache.maven.index.context.IndexUtils#constructArtifactInfo}.
+ * The decoding of the fields is the same as in {@link org.apache.maven.index.creator.MinimalArtifactInfoIndexCreator}.
+ *
+ * The group IDs, packagings and classifiers of the records are taken from a dictionary shared by all documents
+ * loaded through one projection, so that repeated values are only kept once.
+ */
+public class ArtifactInfoProjection
+{
+    private static final char FS = '|';
+
+    private final Set<String> fields;
+    private final Set<String> extraFields;
+    private final ConcurrentMap<String, String> dictionary = new ConcurrentHashMap<>();
+
+
+    public ArtifactInfoProjection(Set<String> extraFields)
+    {
+        this.extraFields = extraFields == null ? Collections.<String>emptySet() : extraFields;
+        this.fields = new HashSet<>(this.extraFields);
+        this.fields.add(ArtifactInfo.UINFO);
+        this.fields.add(ArtifactInfo.INFO);
+        this.fields.add(ArtifactInfo.SHA1);
+    }
+
+
+    /**
+     * @return The artifact stored in the given document, or null if it is not an artifact document (e.g. the index descriptor).
+     */
+    public ArtifactInfo load(AtomicReader reader, int docId) throws IOException
+    {
+        final FieldsVisitor visitor = new FieldsVisitor();
+        reader.document(docId, visitor);
+        return visitor.toArtifactInfo();
+    }
+
+    /**
+     * Loads the artifact normalized for the visitors: the SHA1 in lower case, no null packaging or classifier.
+     *
+     * @return The artifact stored in the given document, or null if it is not an artifact document (e.g. the index descriptor).
+     */
+    public ArtifactRecord loadRecord(AtomicReader reader, int docId) throws IOException
+    {
+        final FieldsVisitor visitor = new FieldsVisitor();
+        reader.document(docId, visitor);
+        return visitor.toRecord();
+    }
+
+
+    private String intern(String value)
+    {
+        final String interned = dictionary.putIfAbsent(value, value);
+        return interned == null ? value : interned;
+    }
+
+
+    /**
+     * Splits the Nexus field value by '|' into at most the given number of parts, without a regular expression.
+     */
+    private static String[] split(String value, int maxParts)
+    {
+        final String[] parts = new String[maxParts];
+        int start = 0;
+        for (int i = 0; i < maxParts; i++)
+        {
+            final int end = value.indexOf(FS, start);
+            if (end < 0)
+            {
+                parts[i] = value.substring(start);
+                return parts;
+            }
+            parts[i] = value.substring(start, end);
+            start = end + 1;
+        }
+        return parts;
+    }
+
+
+    private final class FieldsVisitor extends StoredFieldVisitor
+    {
+        private String uinfo;
+        private String info;
+        private String sha1;
+        private Map<String, String> extras;
+        private int remaining = fields.size();
+
+        @Override
+        public Status needsField(FieldInfo fieldInfo) throws IOException
+        {
+            if (remaining == 0)
+                return Status.STOP;
+            return fields.contains(fieldInfo.name) ? Status.YES : Status.NO;
+        }
+
+        @Override
+        public void stringField(FieldInfo fieldInfo, String value) throws IOException
+        {
+            boolean first = false;
+            if (ArtifactInfo.UINFO.equals(fieldInfo.name))
+            {
+                first = uinfo == null;
+                uinfo = value;
+            }
+            else if (ArtifactInfo.INFO.equals(fieldInfo.name))
+            {
+                first = info == null;
+                info = value;
+            }
+            else if (ArtifactInfo.SHA1.equals(fieldInfo.name))
+            {
+                first = sha1 == null;
+                sha1 = value;
+            }
+
+            if (extraFields.contains(fieldInfo.name))
+            {
+                if (extras == null)
+                    extras = new HashMap<>();
+                first = extras.put(fieldInfo.name, value) == null;
+            }
+
+            if (first)
+                remaining--;
+        }
+
+        ArtifactRecord toRecord()
+        {
+            if (uinfo == null)
+                return null;
+
+            final String[] gav = split(uinfo, 5);
+            if (gav[3] == null)
+                return null;
+            final String classifier = ArtifactInfo.renvl(gav[3]);
+            String packaging = info == null ? null : ArtifactInfo.renvl(split(info, 1)[0]);
+            if ("null".equals(packaging))
+                packaging = null;
+
+            return new ArtifactRecord(StringUtils.lowerCase(sha1), intern(gav[0]), gav[1], gav[2],
+                        intern(StringUtils.defaultString(packaging)), intern(StringUtils.defaultString(classifier)), extras);
+        }
+
+        ArtifactInfo toArtifactInfo()
+        {
+            if (uinfo == null)
+                return null;
+
+            // groupId|artifactId|version|classifier[|extension]
+            final String[] gav = split(uinfo, 5);
+            if (gav[3] == null)
+                return null;
+            final ArtifactInfo artifact = new ArtifactInfo();
+            artifact.setGroupId(gav[0]);
+            artifact.setArtifactId(gav[1]);
+            artifact.setVersion(gav[2]);
+            artifact.setClassifier(ArtifactInfo.renvl(gav[3]));
+            artifact.setFileExtension(gav[4]);
+
+            // packaging|lastModified|size|sourcesExists|javadocExists|signatureExists[|extension]
+            if (info != null)
+            {
+                final String packaging = ArtifactInfo.renvl(split(info, 1)[0]);
+                artifact.setPackaging("null".equals(packaging) ? null : packaging);
+            }
+
+            artifact.setSha1(sha1);
+            if (extras != null)
+                artifact.getAttributes().putAll(extras);
+            return artifact;
+        }
+    }
+}
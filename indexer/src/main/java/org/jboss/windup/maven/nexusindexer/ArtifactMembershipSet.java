@@ -0,0 +1,103 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * The (SHA1, G, A, V) of the main artifacts (without a classifier) of an index, for checking whether an artifact is
+ * already indexed without a Lucene search per artifact, as {@link ArtifactUtil#isArtifactAlreadyIndexed} does.
+ *
+ * Each artifact is kept as a 64-bit fingerprint, in a primitive hash set behind a Bloom filter which answers most
+ * of the misses. Two artifacts may share a fingerprint, but with 10 million artifacts the odds are about one in a million.
+ *
+ * Build with a {@link Builder} during an index scan; the set is read-only and thread-safe once built.
+ */
+public final class ArtifactMembershipSet
+{
+    private static final double BLOOM_FALSE_POSITIVE_RATE = 0.01;
+
+    private final BloomFilter bloomFilter;
+    private final LongHashSet fingerprints;
+
+
+    private ArtifactMembershipSet(long[] fingerprints, int count)
+    {
+        this.bloomFilter = new BloomFilter(count, BLOOM_FALSE_POSITIVE_RATE);
+        this.fingerprints = new LongHashSet(count);
+        for (int i = 0; i < count; i++)
+        {
+            bloomFilter.add(fingerprints[i]);
+            this.fingerprints.add(fingerprints[i]);
+        }
+    }
+
+
+    /**
+     * @return Whether the index has a main artifact with the given SHA1 (case insensitive) and coordinates.
+     */
+    public boolean contains(String sha1, String groupId, String artifactId, String version)
+    {
+        final ArtifactRecord artifact = new ArtifactRecord(sha1 == null ? null : sha1.toLowerCase(), groupId, artifactId, version, null, null);
+        if (!artifact.hasValidSha1())
+            return false;
+        final long fingerprint = fingerprint(artifact);
+        return bloomFilter.mightContain(fingerprint) && fingerprints.contains(fingerprint);
+    }
+
+    public int size()
+    {
+        return fingerprints.size();
+    }
+
+
+    /**
+     * Combines the SHA1, already a good hash, with a 64-bit FNV-1a hash of the coordinates.
+     */
+    static long fingerprint(ArtifactRecord artifact)
+    {
+        long hash = 0xcbf29ce484222325L;
+        hash = fnv(hash, artifact.getGroupId());
+        hash = fnv(hash, artifact.getArtifactId());
+        hash = fnv(hash, artifact.getVersion());
+        return artifact.getSha1Prefix() ^ hash;
+    }
+
+    private static long fnv(long hash, String value)
+    {
+        final int length = value == null ? 0 : value.length();
+        for (int i = 0; i < length; i++)
+        {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        // Separator, so that "ab" + "c" and "a" + "bc" differ.
+        hash ^= 0xffff;
+        hash *= 0x100000001b3L;
+        return hash;
+    }
+
+
+    /**
+     * Collects the fingerprints of the artifacts passed by concurrent threads, without contention, see {@link LongCollector}.
+     * All the {@link #add(ArtifactRecord)} calls must happen-before {@link #build()}.
+     */
+    public static final class Builder
+    {
+        private final LongCollector fingerprints = new LongCollector();
+
+        /**
+         * Adds the artifact if it is a main artifact with a valid SHA1; other artifacts can never match.
+         */
+        public void add(ArtifactRecord artifact)
+        {
+            if (!artifact.hasValidSha1() || StringUtils.isNotEmpty(artifact.getClassifier()))
+                return;
+            fingerprints.add(fingerprint(artifact));
+        }
+
+        public ArtifactMembershipSet build()
+        {
+            final long[] values = fingerprints.toArray();
+            return new ArtifactMembershipSet(values, values.length);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.maven.index.ArtifactInfo;
+
+/**
+ * Compact, immutable view of an artifact, carrying only what the {@link RepositoryIndexManager.ArtifactVisitor}s and
+ * {@link ArtifactFilter}s use. Unlike {@link ArtifactInfo}, it has no mutable state and no dozens of unused fields.
+ *
+ * The SHA1 is held as 20 raw bytes when it is a valid lower-case hex string; any other value is kept as given.
+ */
+public final class ArtifactRecord
+{
+    public static final int SHA1_LENGTH = 20;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final byte[] sha1;
+    private final String sha1Text;
+    private final String groupId;
+    private final String artifactId;
+    private final String version;
+    private final String packaging;
+    private final String classifier;
+    private final Map<String, String> attributes;
+
+    // Cached hex form of the binary SHA1; a benign race like String.hashCode().
+    private String sha1Hex;
+
+
+    public ArtifactRecord(String sha1, String groupId, String artifactId, String version, String packaging, String classifier)
+    {
+        this(sha1, groupId, artifactId, version, packaging, classifier, null);
+    }
+
+    public ArtifactRecord(String sha1, String groupId, String artifactId, String version, String packaging, String classifier,
+                Map<String, String> attributes)
+    {
+        this.sha1 = parseSha1(sha1);
+        this.sha1Text = this.sha1 == null ? sha1 : null;
+        this.groupId = groupId;
+        this.artifactId = artifactId;
+        this.version = version;
+        this.packaging = packaging;
+        this.classifier = classifier;
+        this.attributes = attributes == null || attributes.isEmpty()
+                    ? Collections.<String, String>emptyMap() : Collections.unmodifiableMap(new HashMap<>(attributes));
+    }
+
+    /**
+     * Copies the fields used by the visitors from the given {@link ArtifactInfo}, as they are; the attributes are copied too,
+     * so that the record does not change with the artifact.
+     */
+    public static ArtifactRecord of(ArtifactInfo artifact)
+    {
+        return new ArtifactRecord(artifact.getSha1(), artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(),
+                    artifact.getPackaging(), artifact.getClassifier(), artifact.getAttributes());
+    }
+
+    /**
+     * Creates an {@link ArtifactInfo} for the code which needs it; this is what this class is meant to avoid in the hot paths.
+     */
+    public ArtifactInfo toArtifactInfo()
+    {
+        final ArtifactInfo artifact = new ArtifactInfo();
+        artifact.setSha1(getSha1());
+        artifact.setGroupId(groupId);
+        artifact.setArtifactId(artifactId);
+        artifact.setVersion(version);
+        artifact.setPackaging(packaging);
+        artifact.setClassifier(classifier);
+        artifact.getAttributes().putAll(attributes);
+        return artifact;
+    }
+
+
+    /**
+     * @return The SHA1 as a lower-case hex string, or whatever non-SHA1 value this record was created with (possibly null).
+     */
+    public String getSha1()
+    {
+        if (sha1 == null)
+            return sha1Text;
+        String hex = sha1Hex;
+        if (hex == null)
+            sha1Hex = hex = toHex(sha1);
+        return hex;
+    }
+
+    /**
+     * @return A copy of the 20 bytes of the SHA1, or null if this record has no valid SHA1.
+     */
+    public byte[] getSha1Bytes()
+    {
+        return sha1 == null ? null : sha1.clone();
+    }
+
+    public boolean hasValidSha1()
+    {
+        return sha1 != null;
+    }
+
+    /**
+     * @return The first 8 bytes of the SHA1 as a long, see {@link #sha1Prefix(byte[])}.
+     */
+    public long getSha1Prefix()
+    {
+        if (sha1 == null)
+            throw new IllegalStateException("No valid SHA1 in " + this);
+        return sha1Prefix(sha1);
+    }
+
+    public String getGroupId()
+    {
+        return groupId;
+    }
+
+    public String getArtifactId()
+    {
+        return artifactId;
+    }
+
+    public String getVersion()
+    {
+        return version;
+    }
+
+    public String getPackaging()
+    {
+        return packaging;
+    }
+
+    public String getClassifier()
+    {
+        return classifier;
+    }
+
+    /**
+     * @return Additional index fields loaded for the filter, see {@link ArtifactFilter#getRequiredIndexFields()}.
+     */
+    public Map<String, String> getAttributes()
+    {
+        return attributes;
+    }
+
+
+    /**
+     * @return The 20 bytes of the given lower-case hex SHA1, or null if it is not one.
+     */
+    public static byte[] parseSha1(String hex)
+    {
+        if (hex == null || hex.length() != SHA1_LENGTH * 2)
+            return null;
+        final byte[] bytes = new byte[SHA1_LENGTH];
+        for (int i = 0; i < SHA1_LENGTH; i++)
+        {
+            final int high = hexDigit(hex.charAt(2 * i));
+            final int low = hexDigit(hex.charAt(2 * i + 1));
+            if (high < 0 || low < 0)
+                return null;
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+
+    /**
+     * @return The first 8 bytes of the given raw SHA1 as a long; SHA1s are uniformly distributed, so this is a good hash.
+     */
+    public static long sha1Prefix(byte[] sha1)
+    {
+        long prefix = 0;
+        for (int i = 0; i < 8; i++)
+            prefix = (prefix << 8) | (sha1[i] & 0xff);
+        return prefix;
+    }
+
+    public static String toHex(byte[] bytes)
+    {
+        final char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            chars[2 * i] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[2 * i + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    private static int hexDigit(char c)
+    {
+        if (c >= '0' && c <= '9')
+            return c - '0';
+        if (c >= 'a' && c <= 'f')
+            return c - 'a' + 10;
+        return -1;
+    }
+
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof ArtifactRecord))
+            return false;
+        final ArtifactRecord other = (ArtifactRecord) obj;
+        return Arrays.equals(sha1, other.sha1)
+                    && equal(sha1Text, other.sha1Text)
+                    && equal(groupId, other.groupId)
+                    && equal(artifactId, other.artifactId)
+                    && equal(version, other.version)
+                    && equal(packaging, other.packaging)
+                    && equal(classifier, other.classifier)
+                    && attributes.equals(other.attributes);
+    }
+
+    private static boolean equal(String a, String b)
+    {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int hash = Arrays.hashCode(sha1);
+        hash = 31 * hash + (sha1Text == null ? 0 : sha1Text.hashCode());
+        hash = 31 * hash + (groupId == null ? 0 : groupId.hashCode());
+        hash = 31 * hash + (artifactId == null ? 0 : artifactId.hashCode());
+        hash = 31 * hash + (version == null ? 0 : version.hashCode());
+        return hash;
+    }
+
+    @Override
+    public String toString()
+    {
+        return getSha1() + " " + groupId + ":" + artifactId + ":" + packaging + ":" + classifier + ":" + version;
+    }
+}
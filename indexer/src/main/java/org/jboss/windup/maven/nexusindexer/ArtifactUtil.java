@@ -15,6 +15,10 @@ import java.io.IOException;
 
 public class ArtifactUtil
 {
+    /**
+     * Searches the index for a main artifact with the given SHA1 and coordinates.
+     * To check many artifacts, build an {@link ArtifactMembershipSet} once instead.
+     */
     public static boolean isArtifactAlreadyIndexed(Indexer indexer, IndexingContext context, String sha1, ArtifactInfo artifactInfo) throws IOException
     {
         // check the doc is really not in the index because when the issue on the Maven Index will be fixed
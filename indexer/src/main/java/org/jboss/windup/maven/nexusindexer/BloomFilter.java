@@ -0,0 +1,181 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A Bloom filter of 64-bit hashes: tells quickly, with a small fixed memory, that a key was certainly not added.
+ * The keys must be hashed by the caller into well distributed longs, e.g. SHA1 prefixes or {@link ArtifactMembershipSet} fingerprints.
+ *
+ * The bit positions are combinations of the hash and of a remix of it (Kirsch and Mitzenmacher double hashing).
+ * Adding is not thread-safe; once filled, the filter can be read concurrently.
+ *
+ * A filter can be written to a file with {@link #writeTo(File)}, and read from it memory mapped with {@link #map(File)}.
+ */
+public final class BloomFilter
+{
+    /**
+     * The file header: magic number, format version, number of hash functions, number of 64-bit words and number of keys added.
+     */
+    private static final int MAGIC = 0x4e584246; // "NXBF"
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 32;
+
+    private final LongBuffer bits;
+    private final long bitCount;
+    private final int hashFunctions;
+    private long keys;
+
+
+    /**
+     * Sizes the filter for the given number of keys and false positive probability.
+     */
+    public BloomFilter(long expectedKeys, double falsePositiveRate)
+    {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1)
+            throw new IllegalArgumentException("The false positive rate must be between 0 and 1: " + falsePositiveRate);
+        final long keys = Math.max(1, expectedKeys);
+        final long optimalBits = (long) Math.ceil(-keys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = LongBuffer.wrap(new long[(int) Math.max(1, (optimalBits + 63) / 64)]);
+        this.bitCount = 64L * bits.capacity();
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitCount / keys * Math.log(2)));
+    }
+
+    private BloomFilter(LongBuffer bits, int hashFunctions, long keys)
+    {
+        this.bits = bits;
+        this.bitCount = 64L * bits.capacity();
+        this.hashFunctions = hashFunctions;
+        this.keys = keys;
+    }
+
+
+    public void add(long hash)
+    {
+        final long second = remix(hash);
+        for (int i = 1; i <= hashFunctions; i++)
+        {
+            final long bit = index(hash + i * second);
+            final int word = (int) (bit >>> 6);
+            bits.put(word, bits.get(word) | 1L << bit);
+        }
+        keys++;
+    }
+
+    /**
+     * @return false if the hash was certainly not added, true if it probably was.
+     */
+    public boolean mightContain(long hash)
+    {
+        final long second = remix(hash);
+        for (int i = 1; i <= hashFunctions; i++)
+        {
+            final long bit = index(hash + i * second);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    private long index(long combined)
+    {
+        return (combined & Long.MAX_VALUE) % bitCount;
+    }
+
+    /**
+     * The finalizer of MurmurHash3, odd so that the combinations do not repeat.
+     */
+    private static long remix(long hash)
+    {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash | 1;
+    }
+
+
+    public int getHashFunctions()
+    {
+        return hashFunctions;
+    }
+
+    /**
+     * @return The size of the filter in bits, a multiple of 64.
+     */
+    public long getBitCount()
+    {
+        return bitCount;
+    }
+
+    /**
+     * @return The number of keys added, counting the ones added more than once.
+     */
+    public long getKeyCount()
+    {
+        return keys;
+    }
+
+
+
+    /**
+     * Writes the filter to a file, which can be read by {@link #map(File)}.
+     */
+    public void writeTo(File file) throws IOException
+    {
+        // Replaces the file atomically: a reader having mapped the previous file keeps reading it.
+        final File tempFile = new File(file.getPath() + ".tmp");
+        try (OutputStream fileOut = new FileOutputStream(tempFile);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16)))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(hashFunctions);
+            out.writeInt(0);
+            out.writeLong(bits.capacity());
+            out.writeLong(keys);
+            for (int i = 0; i < bits.capacity(); i++)
+                out.writeLong(bits.get(i));
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps a filter written by {@link #writeTo(File)} in memory, read-only: the filter can't be added to.
+     */
+    public static BloomFilter map(File file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file);
+        }
+    }
+
+    /**
+     * Reads a filter from the whole content of a file written by {@link #writeTo(File)}, without copying it.
+     */
+    static BloomFilter read(ByteBuffer buffer, File file) throws IOException
+    {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION)
+            throw new IOException("Not a Bloom filter file of version " + FORMAT_VERSION + ": " + file);
+        final int hashFunctions = buffer.getInt(8);
+        final long words = buffer.getLong(16);
+        final long keys = buffer.getLong(24);
+        if (hashFunctions < 1 || words < 1 || keys < 0 || HEADER_SIZE + 8 * words != buffer.capacity())
+            throw new IOException("Corrupted Bloom filter file: " + file);
+        final ByteBuffer data = buffer.duplicate();
+        data.position(HEADER_SIZE);
+        return new BloomFilter(data.slice().asLongBuffer(), hashFunctions, keys);
+    }
+}
@@ -0,0 +1,338 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Sorts lines in their natural {@link String} order within a bounded amount of memory.
+ *
+ * The lines are kept UTF-8 encoded in per-thread buffers, so concurrent {@link #add(String)} calls do not contend.
+ * When the size of all the buffers exceeds the budget, the thread which is adding sorts its own buffer
+ * and spills it to a temporary file as a sorted run. At the end, the buffers still in memory are merged
+ * and sorted with {@link Arrays#parallelSort}, then k-way merged with the runs.
+ * The result is the same as sorting all the lines at once with {@link Collections#sort(List)}.
+ *
+ * All the {@link #add(String)} calls must have completed (happen-before) when {@link #writeSorted(Writer)} is called,
+ * e.g. by joining the threads which added the lines.
+ */
+public class ExternalLineSorter implements Closeable
+{
+    private static final Logger LOG = Logger.getLogger(ExternalLineSorter.class.getName());
+
+    /**
+     * System property with the memory budget for the lines being sorted, in megabytes.
+     */
+    public static final String MEMORY_PROPERTY = "nexus-indexer.sort.memoryMb";
+    public static final int DEFAULT_MEMORY_MB = 512;
+
+    // Rough heap size of a line in a buffer besides its bytes: the reference and the array header.
+    private static final int LINE_OVERHEAD = 8 + 16;
+
+    /**
+     * Orders UTF-8 encoded lines the same way as {@link String#compareTo(String)} orders the decoded lines.
+     */
+    static final Comparator<byte[]> UTF8_STRING_ORDER = new Comparator<byte[]>()
+    {
+        @Override
+        public int compare(byte[] a, byte[] b)
+        {
+            final int length = Math.min(a.length, b.length);
+            for (int i = 0; i < length; i++)
+            {
+                final int x = a[i] & 0xff;
+                final int y = b[i] & 0xff;
+                if (x == y)
+                    continue;
+                // Up to here, the code points are the same. UTF-8 byte order is the code point order, which differs
+                // from the UTF-16 order of String only between supplementary characters and U+E000..U+FFFF.
+                if (x < 0x80 || y < 0x80)
+                    return x - y;
+                return new String(a, StandardCharsets.UTF_8).compareTo(new String(b, StandardCharsets.UTF_8));
+            }
+            return a.length - b.length;
+        }
+    };
+
+    private final long memoryBudget;
+    private final File tempDir;
+    private final ThreadLocal<Buffer> threadBuffer = new ThreadLocal<>();
+    private final Queue<Buffer> buffers = new ConcurrentLinkedQueue<>();
+    private final List<File> runs = Collections.synchronizedList(new ArrayList<File>());
+    private final AtomicLong usedMemory = new AtomicLong();
+    private final AtomicLong count = new AtomicLong();
+
+
+    /**
+     * @param memoryBudget Estimated heap size in bytes the collected lines may occupy before being spilled to disk.
+     * @param tempDir Where to put the sorted runs; null for the default temporary directory.
+     */
+    public ExternalLineSorter(long memoryBudget, File tempDir)
+    {
+        if (memoryBudget <= 0)
+            throw new IllegalArgumentException("Memory budget must be positive: " + memoryBudget);
+        this.memoryBudget = memoryBudget;
+        this.tempDir = tempDir;
+    }
+
+    /**
+     * @return The memory budget in bytes given by the {@value #MEMORY_PROPERTY} system property.
+     */
+    public static long getMemoryBudgetFromSystemProperties()
+    {
+        return Integer.getInteger(MEMORY_PROPERTY, DEFAULT_MEMORY_MB) * 1024L * 1024L;
+    }
+
+
+    public void add(String line) throws IOException
+    {
+        Buffer buffer = threadBuffer.get();
+        if (buffer == null)
+        {
+            threadBuffer.set(buffer = new Buffer());
+            buffers.add(buffer);
+        }
+
+        final byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        final long size = LINE_OVERHEAD + bytes.length;
+        buffer.add(bytes, size);
+        count.incrementAndGet();
+
+        // Spill this thread's buffer once all the buffers are over budget, unless it is too small to make a decent run.
+        if (usedMemory.addAndGet(size) >= memoryBudget && buffer.memory >= memoryBudget / (2 * buffers.size()))
+            spill(buffer);
+    }
+
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    /**
+     * Number of sorted runs written to disk so far.
+     */
+    public int getRunCount()
+    {
+        return runs.size();
+    }
+
+
+    private void spill(Buffer buffer) throws IOException
+    {
+        final byte[][] lines = buffer.toArray();
+        Arrays.sort(lines, UTF8_STRING_ORDER);
+        final File run = File.createTempFile("sorted-run-", ".bin", tempDir);
+        run.deleteOnExit();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), 1 << 16)))
+        {
+            for (byte[] line : lines)
+            {
+                out.writeInt(line.length);
+                out.write(line);
+            }
+        }
+        LOG.fine(String.format("Spilled %d sorted lines to %s", lines.length, run));
+        runs.add(run);
+        usedMemory.addAndGet(-buffer.memory);
+        buffer.clear();
+    }
+
+
+    /**
+     * Writes all the lines added so far, sorted, to the given writer, and releases the collected lines and the runs.
+     */
+    public synchronized void writeSorted(Writer writer) throws IOException
+    {
+        int size = 0;
+        for (Buffer buffer : buffers)
+            size += buffer.size;
+        final byte[][] lines = new byte[size][];
+        int offset = 0;
+        for (Buffer buffer : buffers)
+            offset = buffer.copyTo(lines, offset);
+        clearBuffers();
+        Arrays.parallelSort(lines, UTF8_STRING_ORDER);
+
+        if (runs.isEmpty())
+        {
+            for (byte[] line : lines)
+                writer.append(new String(line, StandardCharsets.UTF_8));
+            close();
+            return;
+        }
+
+        LOG.info(String.format("Merging %d sorted runs with %d lines in memory", runs.size(), lines.length));
+        final PriorityQueue<Run> queue = new PriorityQueue<>(runs.size() + 1);
+        try
+        {
+            final Run memoryRun = new Run(lines);
+            if (memoryRun.advance())
+                queue.add(memoryRun);
+            synchronized (runs)
+            {
+                for (File file : runs)
+                {
+                    final Run fileRun = new Run(file);
+                    if (fileRun.advance())
+                        queue.add(fileRun);
+                    else
+                        fileRun.close();
+                }
+            }
+
+            while (!queue.isEmpty())
+            {
+                final Run run = queue.poll();
+                writer.append(new String(run.current, StandardCharsets.UTF_8));
+                if (run.advance())
+                    queue.add(run);
+                else
+                    run.close();
+            }
+        }
+        finally
+        {
+            for (Run run : queue)
+                run.close();
+            close();
+        }
+    }
+
+
+    @Override
+    public synchronized void close()
+    {
+        clearBuffers();
+        synchronized (runs)
+        {
+            for (File run : runs)
+            {
+                if (!run.delete())
+                    LOG.warning("Could not delete the temporary file " + run);
+            }
+            runs.clear();
+        }
+    }
+
+    private void clearBuffers()
+    {
+        for (Buffer buffer : buffers)
+            buffer.clear();
+        usedMemory.set(0);
+    }
+
+
+    /**
+     * Lines added by one thread.
+     */
+    private static final class Buffer
+    {
+        private byte[][] lines = new byte[1024][];
+        private int size;
+        private long memory;
+
+        void add(byte[] line, long lineMemory)
+        {
+            if (size == lines.length)
+                lines = Arrays.copyOf(lines, size * 2);
+            lines[size++] = line;
+            memory += lineMemory;
+        }
+
+        byte[][] toArray()
+        {
+            return Arrays.copyOf(lines, size);
+        }
+
+        int copyTo(byte[][] target, int offset)
+        {
+            System.arraycopy(lines, 0, target, offset, size);
+            return offset + size;
+        }
+
+        void clear()
+        {
+            lines = new byte[1024][];
+            size = 0;
+            memory = 0;
+        }
+    }
+
+
+    /**
+     * A sorted sequence of lines, either from a spilled file or from the memory.
+     */
+    private static final class Run implements Comparable<Run>, Closeable
+    {
+        private final DataInputStream in;
+        private final byte[][] lines;
+        private int next;
+        private byte[] current;
+
+        Run(File file) throws IOException
+        {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+            this.lines = null;
+        }
+
+        Run(byte[][] lines)
+        {
+            this.in = null;
+            this.lines = lines;
+        }
+
+        boolean advance() throws IOException
+        {
+            if (lines != null)
+            {
+                current = next < lines.length ? lines[next++] : null;
+                return current != null;
+            }
+            final int length;
+            try
+            {
+                length = in.readInt();
+            }
+            catch (EOFException ex)
+            {
+                current = null;
+                return false;
+            }
+            current = new byte[length];
+            in.readFully(current);
+            return true;
+        }
+
+        @Override
+        public int compareTo(Run other)
+        {
+            return UTF8_STRING_ORDER.compare(current, other.current);
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if (in != null)
+                in.close();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.maven.index.ArtifactContext;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.IndexerEngine;
+import org.apache.maven.index.context.IndexingContext;
+
+/**
+ * Applies the fixes of broken artifacts to a Nexus index on a single writer thread: the fixes are submitted
+ * from any thread (e.g. as their SHA1s are fetched) through a bounded queue, and written in batches,
+ * first the deletes of the broken documents then the adds of the fixed ones, with a commit every so many fixes.
+ *
+ * The queue bounds the memory, and blocks the submitters when the writer does not keep up.
+ */
+public class IndexFixWriter implements AutoCloseable
+{
+    private static final Logger LOG = Logger.getLogger(IndexFixWriter.class.getName());
+
+    /**
+     * System property with the number of fixes written together.
+     */
+    public static final String BATCH_SIZE_PROPERTY = "nexus-indexer.update.batchSize";
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * System property with the number of fixes after which the index is committed.
+     */
+    public static final String COMMIT_EVERY_PROPERTY = "nexus-indexer.update.commitEvery";
+    public static final int DEFAULT_COMMIT_EVERY = 50_000;
+
+    private static final Fix END = new Fix(null, null);
+
+    private final IndexingContext context;
+    private final IndexerEngine engine;
+    private final int batchSize;
+    private final int commitEvery;
+    private final BlockingQueue<Fix> queue;
+    private final Thread writerThread;
+
+    private volatile Throwable failure;
+    private volatile long written;
+    private volatile int commits;
+    private boolean closed;
+
+
+    public IndexFixWriter(IndexingContext context, IndexerEngine engine, int batchSize, int commitEvery)
+    {
+        if (batchSize < 1 || commitEvery < 1)
+            throw new IllegalArgumentException(String.format("Batch size (%d) and commit interval (%d) must be positive", batchSize, commitEvery));
+        this.context = context;
+        this.engine = engine;
+        this.batchSize = batchSize;
+        this.commitEvery = commitEvery;
+        this.queue = new ArrayBlockingQueue<>(4 * batchSize);
+        this.writerThread = new Thread(this::run, "nexus-indexer-fix-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Creates a writer configured by the {@value #BATCH_SIZE_PROPERTY} and {@value #COMMIT_EVERY_PROPERTY} system properties.
+     */
+    public static IndexFixWriter fromSystemProperties(IndexingContext context, IndexerEngine engine)
+    {
+        return new IndexFixWriter(context, engine,
+                    Integer.getInteger(BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE),
+                    Integer.getInteger(COMMIT_EVERY_PROPERTY, DEFAULT_COMMIT_EVERY));
+    }
+
+
+    /**
+     * Queues the replacement of a broken artifact document, waiting while the queue is full.
+     * Fails once the writer thread has failed, rather than queuing fixes which would never be written.
+     *
+     * @param broken The artifact to delete, as it is in the index (its UINFO identifies the document).
+     * @param fixed The artifact to add instead.
+     */
+    public void submit(ArtifactInfo broken, ArtifactInfo fixed) throws IOException
+    {
+        final Fix fix = new Fix(new ArtifactContext(null, null, null, broken, null), new ArtifactContext(null, null, null, fixed, null));
+        try
+        {
+            checkFailure();
+            while (!queue.offer(fix, 100, TimeUnit.MILLISECONDS))
+                checkFailure();
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while queuing the fix of " + fixed.getUinfo(), ex);
+        }
+    }
+
+    /**
+     * @return The number of fixes written to the index so far.
+     */
+    public long getWritten()
+    {
+        return written;
+    }
+
+    public int getCommits()
+    {
+        return commits;
+    }
+
+
+    private void run()
+    {
+        final List<Fix> batch = new ArrayList<>(batchSize);
+        long uncommitted = 0;
+        try
+        {
+            boolean end = false;
+            while (!end)
+            {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                if (batch.get(batch.size() - 1) == END)
+                {
+                    batch.remove(batch.size() - 1);
+                    end = true;
+                }
+
+                write(batch);
+                written += batch.size();
+                uncommitted += batch.size();
+                batch.clear();
+
+                if (uncommitted >= commitEvery || (end && uncommitted > 0))
+                {
+                    context.commit();
+                    commits++;
+                    uncommitted = 0;
+                    LOG.info(String.format("Committed %d fixed artifacts to the index", written));
+                }
+            }
+        }
+        catch (Throwable ex)
+        {
+            failure = ex;
+            LOG.log(Level.SEVERE, "Failed writing the fixed artifacts to the index: " + ex.getMessage(), ex);
+            // Unblock the submitters, they will see the failure.
+            queue.clear();
+        }
+    }
+
+    /**
+     * Deletes the broken documents, leaving the deletion markers for the incremental index updates,
+     * then adds the fixed documents. Unlike {@link IndexerEngine#update}, the fixed documents replace any document
+     * with the same UINFO without looking it up, which would reopen the index searcher for every artifact.
+     */
+    private void write(List<Fix> batch) throws IOException
+    {
+        for (Fix fix : batch)
+        {
+            if (!fix.broken.getArtifactInfo().getUinfo().equals(fix.fixed.getArtifactInfo().getUinfo()))
+                engine.remove(context, fix.broken);
+        }
+        final IndexWriter indexWriter = context.getIndexWriter();
+        for (Fix fix : batch)
+        {
+            final Document document = fix.fixed.createDocument(context);
+            if (document != null)
+                indexWriter.updateDocument(new Term(ArtifactInfo.UINFO, fix.fixed.getArtifactInfo().getUinfo()), document);
+        }
+        if (!batch.isEmpty())
+            context.updateTimestamp();
+    }
+
+    private void checkFailure() throws IOException
+    {
+        final Throwable ex = failure;
+        if (ex != null)
+            throw new IOException("Failed writing the fixed artifacts to the index: " + ex.getMessage(), ex);
+    }
+
+
+    /**
+     * Writes and commits the queued fixes, and stops the writer thread. All the submits must have completed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (closed)
+            return;
+        closed = true;
+        try
+        {
+            while (writerThread.isAlive() && !queue.offer(END, 100, TimeUnit.MILLISECONDS))
+                checkFailure();
+            writerThread.join();
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing the fixed artifacts to the index", ex);
+        }
+        checkFailure();
+    }
+
+
+    private static final class Fix
+    {
+        private final ArtifactContext broken;
+        private final ArtifactContext fixed;
+
+        Fix(ArtifactContext broken, ArtifactContext fixed)
+        {
+            this.broken = broken;
+            this.fixed = fixed;
+        }
+    }
+}
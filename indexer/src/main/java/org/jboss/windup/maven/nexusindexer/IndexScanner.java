@@ -0,0 +1,196 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.util.Bits;
+
+/**
+ * Walks all live documents of a Lucene index, splitting the work by index segment (leaf) and doc id range
+ * so that the ranges can be processed on a pool of worker threads.
+ *
+ * With a single thread, the documents are visited on the calling thread in index order.
+ * With more threads, the {@link DocumentHandler} is called concurrently and must be thread-safe.
+ */
+public class IndexScanner
+{
+    private static final Logger LOG = Logger.getLogger(IndexScanner.class.getName());
+
+    /**
+     * System property with the number of scanning threads. Defaults to the number of available processors.
+     */
+    public static final String THREADS_PROPERTY = "nexus-indexer.scan.threads";
+
+    /**
+     * Maximum number of documents of a single leaf processed as one unit of work.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 32 * 1024;
+
+    private final int threads;
+    private final int chunkSize;
+
+
+    public IndexScanner(int threads)
+    {
+        this(threads, DEFAULT_CHUNK_SIZE);
+    }
+
+    public IndexScanner(int threads, int chunkSize)
+    {
+        if (threads < 1)
+            throw new IllegalArgumentException("At least one scanning thread is needed: " + threads);
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Creates a scanner with the number of threads given by the {@value #THREADS_PROPERTY} system property.
+     */
+    public static IndexScanner fromSystemProperties()
+    {
+        return new IndexScanner(Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public int getThreads()
+    {
+        return threads;
+    }
+
+
+    /**
+     * Passes every live document of the given reader to the handler.
+     *
+     * @return The number of live documents visited.
+     */
+    public long scan(IndexReader reader, DocumentHandler handler) throws IOException
+    {
+        final List<DocRange> ranges = split(reader);
+        if (threads == 1 || ranges.size() <= 1)
+        {
+            long count = 0;
+            for (DocRange range : ranges)
+                count += range.scan(handler);
+            return count;
+        }
+
+        LOG.info(String.format("Scanning %d documents in %d ranges with %d threads", reader.maxDoc(), ranges.size(), threads));
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, ranges.size()), new ScanThreadFactory());
+        try
+        {
+            final List<Future<Long>> futures = new ArrayList<>(ranges.size());
+            for (final DocRange range : ranges)
+                futures.add(executor.submit(() -> range.scan(handler)));
+
+            long count = 0;
+            for (Future<Long> future : futures)
+                count += getResult(future);
+            return count;
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+
+    private List<DocRange> split(IndexReader reader)
+    {
+        final List<DocRange> ranges = new ArrayList<>();
+        for (AtomicReaderContext leaf : reader.leaves())
+        {
+            final AtomicReader leafReader = leaf.reader();
+            final int maxDoc = leafReader.maxDoc();
+            for (int start = 0; start < maxDoc; start += chunkSize)
+                ranges.add(new DocRange(leafReader, start, Math.min(maxDoc, start + chunkSize)));
+        }
+        return ranges;
+    }
+
+
+    private static long getResult(Future<Long> future) throws IOException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scanning the index", ex);
+        }
+        catch (ExecutionException ex)
+        {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IOException("Failed scanning the index: " + cause.getMessage(), cause);
+        }
+    }
+
+
+    /**
+     * Receives the live documents, identified by the leaf reader and the leaf-local doc id.
+     */
+    public interface DocumentHandler
+    {
+        void handle(AtomicReader reader, int docId) throws IOException;
+    }
+
+
+    private static final class DocRange
+    {
+        private final AtomicReader reader;
+        private final int start;
+        private final int end;
+
+        DocRange(AtomicReader reader, int start, int end)
+        {
+            this.reader = reader;
+            this.start = start;
+            this.end = end;
+        }
+
+        long scan(DocumentHandler handler) throws IOException
+        {
+            final Bits liveDocs = reader.getLiveDocs();
+            long count = 0;
+            for (int docId = start; docId < end; docId++)
+            {
+                if (liveDocs != null && !liveDocs.get(docId))
+                    continue;
+                handler.handle(reader, docId);
+                count++;
+            }
+            return count;
+        }
+    }
+
+
+    private static final class ScanThreadFactory implements ThreadFactory
+    {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+            final Thread thread = new Thread(runnable, "nexus-indexer-scan-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Collects the longs added by concurrent threads, without contention: each thread appends to its own buffer.
+ * All the {@link #add(long)} calls must happen-before {@link #toArray()}.
+ */
+final class LongCollector
+{
+    private final ThreadLocal<Buffer> threadBuffer = new ThreadLocal<>();
+    private final Queue<Buffer> buffers = new ConcurrentLinkedQueue<>();
+
+    void add(long value)
+    {
+        Buffer buffer = threadBuffer.get();
+        if (buffer == null)
+        {
+            threadBuffer.set(buffer = new Buffer());
+            buffers.add(buffer);
+        }
+        buffer.add(value);
+    }
+
+    /**
+     * @return All the added values, grouped by thread.
+     */
+    long[] toArray()
+    {
+        int count = 0;
+        for (Buffer buffer : buffers)
+            count += buffer.size;
+        final long[] values = new long[count];
+        int offset = 0;
+        for (Buffer buffer : buffers)
+        {
+            System.arraycopy(buffer.values, 0, values, offset, buffer.size);
+            offset += buffer.size;
+        }
+        return values;
+    }
+
+    private static final class Buffer
+    {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value)
+        {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+    }
+}
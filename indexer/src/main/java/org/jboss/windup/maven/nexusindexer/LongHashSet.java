@@ -0,0 +1,101 @@
+package org.jboss.windup.maven.nexusindexer;
+
+/**
+ * A set of longs without boxing: open addressing with linear probing in a power of two table, at most half full.
+ * Adding is not thread-safe; once filled, the set can be read concurrently.
+ */
+final class LongHashSet
+{
+    private static final long EMPTY = 0;
+
+    private long[] table;
+    private int mask;
+    private int size;
+    // 0 marks the empty slots, so it is held aside.
+    private boolean containsEmpty;
+
+
+    LongHashSet(int expectedSize)
+    {
+        final int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        this.table = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+
+    /**
+     * @return true if the value was not in the set.
+     */
+    boolean add(long value)
+    {
+        if (value == EMPTY)
+        {
+            if (containsEmpty)
+                return false;
+            containsEmpty = true;
+            size++;
+            return true;
+        }
+
+        if (2 * (size + 1) > table.length)
+            rehash(table.length * 2);
+        if (!insert(table, mask, value))
+            return false;
+        size++;
+        return true;
+    }
+
+    boolean contains(long value)
+    {
+        if (value == EMPTY)
+            return containsEmpty;
+        for (int slot = slot(value, mask); ; slot = (slot + 1) & mask)
+        {
+            final long current = table[slot];
+            if (current == value)
+                return true;
+            if (current == EMPTY)
+                return false;
+        }
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+
+    private static boolean insert(long[] table, int mask, long value)
+    {
+        for (int slot = slot(value, mask); ; slot = (slot + 1) & mask)
+        {
+            final long current = table[slot];
+            if (current == value)
+                return false;
+            if (current == EMPTY)
+            {
+                table[slot] = value;
+                return true;
+            }
+        }
+    }
+
+    private void rehash(int capacity)
+    {
+        final long[] newTable = new long[capacity];
+        final int newMask = capacity - 1;
+        for (long value : table)
+        {
+            if (value != EMPTY)
+                insert(newTable, newMask, value);
+        }
+        this.table = newTable;
+        this.mask = newMask;
+    }
+
+    private static int slot(long value, int mask)
+    {
+        // Fibonacci hashing, so that the low bits depend on all the bits of the value.
+        return (int) ((value * 0x9e3779b97f4a7c15L) >>> 32) & mask;
+    }
+}
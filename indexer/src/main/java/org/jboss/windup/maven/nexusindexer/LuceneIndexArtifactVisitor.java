@@ -3,15 +3,23 @@ package org.jboss.windup.maven.nexusindexer;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 import org.apache.commons.io.FileUtils;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.ConcurrentMergeScheduler;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.store.SimpleFSDirectory;
 import org.apache.lucene.util.Version;
 import org.apache.maven.index.ArtifactInfo;
@@ -20,6 +28,9 @@ import org.apache.maven.index.ArtifactInfo;
  * For each visited archive, this creates a Lucene document with these fields:
  *  sha1 groupId artifactId packaging classifier version
  *
+ * With {@link BulkLoad} settings, the index is written with a large RAM buffer and fewer merges, and optionally
+ * by several writers: each visiting thread adds to one of several private sub-indexes, merged into the index by {@link #done()}.
+ *
  * @author <a href="http://ondra.zizka.cz/">Ondrej Zizka, zizka@seznam.cz</a>
  */
 public class LuceneIndexArtifactVisitor implements RepositoryIndexManager.ArtifactVisitor<Object>
@@ -32,6 +43,12 @@ public class LuceneIndexArtifactVisitor implements RepositoryIndexManager.Artifa
     private final File indexDir;
     private final IndexWriter indexWriter;
     private SimpleFSDirectory luceneOutputDirResource;
+    private final List<IndexWriter> subIndexWriters = new ArrayList<>();
+    private final List<File> subIndexDirs = new ArrayList<>();
+    private final AtomicInteger nextSubIndex = new AtomicInteger();
+    private final ThreadLocal<IndexWriter> threadIndexWriter = new ThreadLocal<>();
+    private final ThreadLocal<ArtifactDocument> threadDocument = ThreadLocal.withInitial(ArtifactDocument::new);
+    private final Sha1BloomFilter.Builder sha1Filter = new Sha1BloomFilter.Builder();
 
     public static final String SHA1 = "sha1";
     public static final String GROUP_ID = "groupId";
@@ -42,6 +59,14 @@ public class LuceneIndexArtifactVisitor implements RepositoryIndexManager.Artifa
 
 
     public LuceneIndexArtifactVisitor(File outputDir, ArtifactFilter filter)
+    {
+        this(outputDir, filter, null);
+    }
+
+    /**
+     * @param bulkLoad The settings of the bulk-load mode, or null for the default {@link IndexWriterConfig}.
+     */
+    public LuceneIndexArtifactVisitor(File outputDir, ArtifactFilter filter, BulkLoad bulkLoad)
     {
         try
         {
@@ -53,9 +78,27 @@ public class LuceneIndexArtifactVisitor implements RepositoryIndexManager.Artifa
 
             // Create our local result index.
             this.luceneOutputDirResource = new SimpleFSDirectory(indexDir);
-            StandardAnalyzer standardAnalyzer = new StandardAnalyzer(Version.LUCENE_48);
-            IndexWriterConfig config = new IndexWriterConfig(Version.LUCENE_48, standardAnalyzer);
-            this.indexWriter = new IndexWriter(luceneOutputDirResource, config);
+            if (bulkLoad == null)
+            {
+                StandardAnalyzer standardAnalyzer = new StandardAnalyzer(Version.LUCENE_48);
+                IndexWriterConfig config = new IndexWriterConfig(Version.LUCENE_48, standardAnalyzer);
+                this.indexWriter = new IndexWriter(luceneOutputDirResource, config);
+                return;
+            }
+
+            this.indexWriter = new IndexWriter(luceneOutputDirResource, bulkLoad.createConfig());
+            if (bulkLoad.getWriters() > 1)
+            {
+                for (int i = 0; i < bulkLoad.getWriters(); i++)
+                {
+                    // Next to the index, not inside it, where the IndexWriter would find foreign files.
+                    final File subIndexDir = new File(indexDir.getParentFile(), indexDir.getName() + ".part" + i);
+                    FileUtils.deleteDirectory(subIndexDir);
+                    subIndexDirs.add(subIndexDir);
+                    subIndexWriters.add(new IndexWriter(FSDirectory.open(subIndexDir), bulkLoad.createConfig()));
+                }
+                LOG.info(String.format("Writing the Lucene index in %s with %d writers", indexDir, subIndexWriters.size()));
+            }
         }
         catch (IOException ex)
         {
@@ -72,13 +115,21 @@ public class LuceneIndexArtifactVisitor implements RepositoryIndexManager.Artifa
 
     @Override
     public void visit(ArtifactInfo artifact)
+    {
+        visit(ArtifactRecord.of(artifact));
+    }
+
+
+    @Override
+    public void visit(ArtifactRecord artifact)
     {
         if (!filter.accept(artifact))
             return;
         try
         {
             // Add to Lucene index
-            indexWriter.addDocuments(artifactToDocs(artifact));
+            getIndexWriter().addDocuments(artifactToDocs(artifact));
+            sha1Filter.add(artifact.getSha1());
         }
         catch (IOException ex)
         {
@@ -87,16 +138,42 @@ public class LuceneIndexArtifactVisitor implements RepositoryIndexManager.Artifa
     }
 
 
+    /**
+     * @return The writer of the calling thread: the sub-indexes are assigned to the threads in turn.
+     */
+    private IndexWriter getIndexWriter()
+    {
+        if (subIndexWriters.isEmpty())
+            return indexWriter;
+        IndexWriter writer = threadIndexWriter.get();
+        if (writer == null)
+        {
+            writer = subIndexWriters.get(Math.floorMod(nextSubIndex.getAndIncrement(), subIndexWriters.size()));
+            threadIndexWriter.set(writer);
+        }
+        return writer;
+    }
+
+
+    /**
+     * @return The document of the calling thread, reused for each of its artifacts: the writer is done with it
+     *         once addDocuments() returns.
+     */
+    protected Iterable<Document> artifactToDocs(ArtifactRecord artifact)
+    {
+        return threadDocument.get().set(artifact);
+    }
+
+
+    /**
+     * @return The document of the calling thread, as {@link #artifactToDocs(ArtifactRecord)}, valid until its next call.
+     * @deprecated The artifacts are indexed as {@link ArtifactRecord}s: use and override {@link #artifactToDocs(ArtifactRecord)},
+     *             which this delegates to; the visitor no longer calls this method.
+     */
+    @Deprecated
     protected Iterable<Document> artifactToDocs(ArtifactInfo artifact)
     {
-        Document outputDoc = new Document();
-        outputDoc.add(new StringField(SHA1, artifact.getSha1(), Field.Store.YES));
-        outputDoc.add(new StringField(GROUP_ID, artifact.getGroupId(), Field.Store.YES));
-        outputDoc.add(new StringField(ARTIFACT_ID, artifact.getArtifactId(), Field.Store.YES));
-        outputDoc.add(new StringField(PACKAGING, artifact.getPackaging(), Field.Store.YES));
-        outputDoc.add(new StringField(CLASSIFIER, artifact.getClassifier(), Field.Store.YES));
-        outputDoc.add(new StringField(VERSION, artifact.getVersion(), Field.Store.YES));
-        return Collections.singleton(outputDoc);
+        return artifactToDocs(ArtifactRecord.of(artifact));
     }
 
 
@@ -104,6 +181,12 @@ public class LuceneIndexArtifactVisitor implements RepositoryIndexManager.Artifa
     {
         try
         {
+            if (!subIndexWriters.isEmpty())
+                mergeSubIndexes();
+            // Written before the index is committed with its identity, see Sha1BloomFilter.
+            final String sha1FilterIdentity = sha1Filter.write(indexDir);
+            if (sha1FilterIdentity != null)
+                this.indexWriter.setCommitData(Collections.singletonMap(Sha1BloomFilter.COMMIT_DATA_KEY, sha1FilterIdentity));
             this.indexWriter.close();
         }
         catch (IOException ex)
@@ -117,4 +200,186 @@ public class LuceneIndexArtifactVisitor implements RepositoryIndexManager.Artifa
         return null;
     }
 
+
+    private void mergeSubIndexes() throws IOException
+    {
+        final List<Directory> subIndexes = new ArrayList<>(subIndexWriters.size());
+        try
+        {
+            for (IndexWriter subIndexWriter : subIndexWriters)
+            {
+                subIndexes.add(subIndexWriter.getDirectory());
+                subIndexWriter.close();
+            }
+            LOG.info(String.format("Merging %d sub-indexes into %s", subIndexes.size(), indexDir));
+            this.indexWriter.addIndexes(subIndexes.toArray(new Directory[0]));
+        }
+        finally
+        {
+            for (Directory subIndex : subIndexes)
+                subIndex.close();
+            for (File subIndexDir : subIndexDirs)
+                FileUtils.deleteQuietly(subIndexDir);
+        }
+    }
+
+
+    /**
+     * A document with one field per column, whose values are replaced for each artifact,
+     * rather than a new document and new fields.
+     */
+    private static final class ArtifactDocument
+    {
+        private final Field sha1 = new StringField(SHA1, "", Field.Store.YES);
+        private final Field groupId = new StringField(GROUP_ID, "", Field.Store.YES);
+        private final Field artifactId = new StringField(ARTIFACT_ID, "", Field.Store.YES);
+        private final Field packaging = new StringField(PACKAGING, "", Field.Store.YES);
+        private final Field classifier = new StringField(CLASSIFIER, "", Field.Store.YES);
+        private final Field version = new StringField(VERSION, "", Field.Store.YES);
+        private final List<Document> docs;
+
+        ArtifactDocument()
+        {
+            final Document document = new Document();
+            document.add(sha1);
+            document.add(groupId);
+            document.add(artifactId);
+            document.add(packaging);
+            document.add(classifier);
+            document.add(version);
+            this.docs = Collections.singletonList(document);
+        }
+
+        List<Document> set(ArtifactRecord artifact)
+        {
+            setValue(sha1, artifact.getSha1());
+            setValue(groupId, artifact.getGroupId());
+            setValue(artifactId, artifact.getArtifactId());
+            setValue(packaging, artifact.getPackaging());
+            setValue(classifier, artifact.getClassifier());
+            setValue(version, artifact.getVersion());
+            return docs;
+        }
+
+        /**
+         * Rejects the null values like the StringField constructor does; setStringValue() would keep them, and fail on the next one.
+         */
+        private static void setValue(Field field, String value)
+        {
+            if (value == null)
+                throw new IllegalArgumentException("The value of field " + field.name() + " cannot be null");
+            field.setStringValue(value);
+        }
+    }
+
+
+    /**
+     * The settings of the bulk-load mode: the index is written at once and only read once complete, so the documents
+     * are buffered longer, and the segments merged less often and concurrently.
+     */
+    public static final class BulkLoad
+    {
+        /**
+         * System property with the RAM buffer of each writer, in MB.
+         */
+        public static final String RAM_BUFFER_PROPERTY = "nexus-indexer.lucene.ramBufferMb";
+        public static final int DEFAULT_RAM_BUFFER_MB = 256;
+
+        /**
+         * System property with the number of segments allowed per tier of the merge policy.
+         */
+        public static final String SEGMENTS_PER_TIER_PROPERTY = "nexus-indexer.lucene.segmentsPerTier";
+        public static final int DEFAULT_SEGMENTS_PER_TIER = 30;
+
+        /**
+         * System property with the number of concurrent merge threads of each writer.
+         */
+        public static final String MERGE_THREADS_PROPERTY = "nexus-indexer.lucene.mergeThreads";
+
+        /**
+         * System property with the number of writers, each with its own sub-index.
+         */
+        public static final String WRITERS_PROPERTY = "nexus-indexer.lucene.writers";
+        public static final int DEFAULT_WRITERS = 1;
+
+        private final int ramBufferMb;
+        private final int segmentsPerTier;
+        private final int mergeThreads;
+        private final int writers;
+
+        public BulkLoad(int ramBufferMb, int segmentsPerTier, int mergeThreads, int writers)
+        {
+            if (ramBufferMb < 1 || segmentsPerTier < 2 || mergeThreads < 1 || writers < 1)
+                throw new IllegalArgumentException(String.format("Invalid bulk load settings: RAM buffer %d MB, %d segments per tier, %d merge threads, %d writers",
+                            ramBufferMb, segmentsPerTier, mergeThreads, writers));
+            this.ramBufferMb = ramBufferMb;
+            this.segmentsPerTier = segmentsPerTier;
+            this.mergeThreads = mergeThreads;
+            this.writers = writers;
+        }
+
+        /**
+         * Creates the settings from the system properties {@value #RAM_BUFFER_PROPERTY}, {@value #SEGMENTS_PER_TIER_PROPERTY},
+         * {@value #MERGE_THREADS_PROPERTY} and {@value #WRITERS_PROPERTY}.
+         */
+        public static BulkLoad fromSystemProperties()
+        {
+            final int defaultMergeThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+            return new BulkLoad(
+                        Integer.getInteger(RAM_BUFFER_PROPERTY, DEFAULT_RAM_BUFFER_MB),
+                        Integer.getInteger(SEGMENTS_PER_TIER_PROPERTY, DEFAULT_SEGMENTS_PER_TIER),
+                        Integer.getInteger(MERGE_THREADS_PROPERTY, defaultMergeThreads),
+                        Integer.getInteger(WRITERS_PROPERTY, DEFAULT_WRITERS));
+        }
+
+        /**
+         * A new config for each writer, as IndexWriterConfig instances can't be shared.
+         */
+        IndexWriterConfig createConfig()
+        {
+            // All the fields are StringFields, which are not analyzed.
+            final IndexWriterConfig config = new IndexWriterConfig(Version.LUCENE_48, new KeywordAnalyzer());
+            config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+            config.setRAMBufferSizeMB(ramBufferMb);
+            config.setMaxBufferedDocs(IndexWriterConfig.DISABLE_AUTO_FLUSH);
+            config.setUseCompoundFile(false);
+
+            final TieredMergePolicy mergePolicy = new TieredMergePolicy();
+            mergePolicy.setSegmentsPerTier(segmentsPerTier);
+            mergePolicy.setMaxMergeAtOnce(segmentsPerTier);
+            mergePolicy.setNoCFSRatio(0);
+            config.setMergePolicy(mergePolicy);
+
+            final ConcurrentMergeScheduler mergeScheduler = new ConcurrentMergeScheduler();
+            mergeScheduler.setMaxMergesAndThreads(mergeThreads + 2, mergeThreads);
+            config.setMergeScheduler(mergeScheduler);
+            return config;
+        }
+
+        public int getRamBufferMb()
+        {
+            return ramBufferMb;
+        }
+
+        public int getSegmentsPerTier()
+        {
+            return segmentsPerTier;
+        }
+
+        public int getMergeThreads()
+        {
+            return mergeThreads;
+        }
+
+        public int getWriters()
+        {
+            return writers;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("RAM buffer %d MB, %d segments per tier, %d merge threads, %d writers", ramBufferMb, segmentsPerTier, mergeThreads, writers);
+        }
+    }
 }
@@ -0,0 +1,58 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.index.ArtifactInfo;
+
+/**
+ * Recognizes the index documents which stand for a jar which is missing from the index, or present without its SHA1,
+ * while the index is scanned. The jar's SHA1 is then fetched from the repository, see {@link Sha1Resolver}.
+ *
+ * See https://issues.redhat.com/browse/WINDUP-2765 and https://issues.sonatype.org/browse/OSSRH-60950
+ */
+public final class MissingArtifacts
+{
+    private MissingArtifacts()
+    {
+    }
+
+    /**
+     * The index fields needed by {@link #isMissing(ArtifactRecord)} besides the ones always loaded by the {@link ArtifactInfoProjection}.
+     */
+    public static Set<String> getRequiredIndexFields()
+    {
+        return Collections.singleton(ArtifactInfo.BUNDLE_SYMBOLIC_NAME);
+    }
+
+    /**
+     * @param artifact Loaded with the {@link #getRequiredIndexFields()} in its attributes.
+     */
+    public static boolean isMissing(ArtifactRecord artifact)
+    {
+        switch (StringUtils.defaultString(artifact.getPackaging()))
+        {
+            // The 'packaging' (aka the extension) is 'module'
+            // e.g. Lucene query "+g:org.springframework.boot +a:spring-boot-starter-tomcat  +v:2.3.* +p:module"
+            // https://repo1.maven.org/maven2/org/springframework/boot/spring-boot-starter-web/2.3.2.RELEASE/
+            case "module":
+            // The 'packaging' (aka the extension) is 'pom.sha512'
+            // e.g. Lucene query "+g:org.springdoc +a:springdoc-openapi-common +v:1.4.? +p:pom.sha512"
+            // https://repo1.maven.org/maven2/org/springdoc/springdoc-openapi-common/1.4.3/
+            // https://repo1.maven.org/maven2/org/apache/ant/ant-commons-logging/1.8.0/
+            case "pom.sha512":
+                return true;
+            // "bundle" packaging and no Symbolic Bundle Name to cater for
+            // artifacts like https://mvnrepository.com/artifact/com.fasterxml.jackson.core/jackson-databind/2.12.3
+            // See also https://issues.redhat.com/browse/WINDUP-3300
+            case "bundle":
+                return artifact.getAttributes().get(ArtifactInfo.BUNDLE_SYMBOLIC_NAME) == null;
+            // Hashless jars
+            case "jar":
+                return artifact.getSha1() == null;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the tasks started by a thread which then waits for all of them, like a {@link java.util.concurrent.Phaser}
+ * with a party per task, but without its limit of 65535 parties: the missing artifacts of the index scan are only
+ * handled once the whole index is scanned, so they are all pending at once.
+ */
+final class PendingTasks
+{
+    // The waiting thread counts as a task until it waits.
+    private final AtomicLong pending = new AtomicLong(1);
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    /**
+     * Counts a started task; must be called before {@link #awaitAll()}.
+     */
+    void register()
+    {
+        pending.incrementAndGet();
+    }
+
+    /**
+     * Counts a finished task, from any thread.
+     */
+    void arrive()
+    {
+        if (pending.decrementAndGet() == 0)
+            done.countDown();
+    }
+
+    /**
+     * Waits for all the registered tasks to arrive.
+     */
+    void awaitAll() throws InterruptedIOException
+    {
+        arrive();
+        try
+        {
+            done.await();
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + pending.get() + " pending tasks");
+        }
+    }
+
+    long getPending()
+    {
+        return pending.get();
+    }
+}
@@ -1,26 +1,17 @@
 package org.jboss.windup.maven.nexusindexer;
 
-import org.apache.commons.lang3.StringUtils;
-import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexReader;
-import org.apache.lucene.index.MultiFields;
-import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.IndexSearcher;
-import org.apache.lucene.search.TermQuery;
-import org.apache.lucene.search.TermRangeQuery;
-import org.apache.lucene.search.TotalHitCountCollector;
-import org.apache.lucene.util.Bits;
-import org.apache.maven.index.ArtifactContext;
 import org.apache.maven.index.ArtifactInfo;
 import org.apache.maven.index.Field;
 import org.apache.maven.index.Indexer;
+import org.apache.maven.index.IndexerEngine;
 import org.apache.maven.index.IteratorSearchRequest;
 import org.apache.maven.index.IteratorSearchResponse;
 import org.apache.maven.index.MAVEN;
 import org.apache.maven.index.context.IndexCreator;
-import org.apache.maven.index.context.IndexUtils;
 import org.apache.maven.index.context.IndexingContext;
 import org.apache.maven.index.creator.JarFileContentsIndexCreator;
 import org.apache.maven.index.creator.MavenArchetypeArtifactInfoIndexCreator;
@@ -47,13 +38,18 @@ import org.jboss.forge.addon.dependencies.DependencyRepository;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.StreamSupport;
 
 
 /**
@@ -68,7 +64,11 @@ public class RepositoryIndexManager implements AutoCloseable
 
     public enum OutputFormat {
         TEXT,
-        LUCENE
+        LUCENE,
+        /**
+         * A sorted table of the SHA1s with their coordinates, memory mapped by the clients, see {@link Sha1TableArtifactVisitor}.
+         */
+        TABLE
     }
 
     public static final String LUCENE_SUBDIR_CHECKSUMS = "lucene";
@@ -83,6 +83,7 @@ public class RepositoryIndexManager implements AutoCloseable
 
     private final File localCache;
     private final File indexDir;
+    private final File sha1CacheFile;
 
     /**
      * Download the index for the given {@link DependencyRepository} and store the results at the specified output {@link File}
@@ -149,6 +150,8 @@ public class RepositoryIndexManager implements AutoCloseable
 
         this.localCache = new File(this.indexDirectory, repository.getId() + "-cache");
         this.indexDir = new File(this.indexDirectory, repository.getId() + "-index");
+        // SHA1s fetched for the artifacts which the index has without one, see Sha1Cache
+        this.sha1CacheFile = new File(this.indexDirectory, repository.getId() + "-sha1-cache.txt");
 
         /*
          * https://maven.apache.org/maven-indexer/indexer-core/apidocs/index.html
@@ -189,91 +192,118 @@ public class RepositoryIndexManager implements AutoCloseable
         // Maven repo index
         final IndexSearcher searcher = context.acquireIndexSearcher();
         final IndexReader reader = searcher.getIndexReader();
-        Bits liveDocs = MultiFields.getLiveDocs(reader);
 
 
         final File textMetadataFile = getMetadataFile(repository, outDir);
         final List<RepositoryIndexManager.ArtifactVisitor<Object>> visitors = new ArrayList<>();
+        final ArtifactFilter filter = ArtifactFilter.LIBRARIES;
 
         if (outputFormat.equals(OutputFormat.TEXT))
         {
-            SortingLineWriterArtifactVisitor writerVisitor = new SortingLineWriterArtifactVisitor(textMetadataFile, ArtifactFilter.LIBRARIES);
+            SortingLineWriterArtifactVisitor writerVisitor = new SortingLineWriterArtifactVisitor(textMetadataFile, filter);
             visitors.add(writerVisitor);
         } else if (outputFormat.equals(OutputFormat.LUCENE))
         {
-            LuceneIndexArtifactVisitor basicIndexerVisitor = new LuceneIndexArtifactVisitor(new File(outDir, LUCENE_SUBDIR_CHECKSUMS), ArtifactFilter.LIBRARIES);
+            LuceneIndexArtifactVisitor basicIndexerVisitor = new LuceneIndexArtifactVisitor(new File(outDir, LUCENE_SUBDIR_CHECKSUMS), filter,
+                        LuceneIndexArtifactVisitor.BulkLoad.fromSystemProperties());
             visitors.add(basicIndexerVisitor);
-        }
-
-        for (int i = 0; i < reader.maxDoc(); i++)
+        } else if (outputFormat.equals(OutputFormat.TABLE))
         {
-            if (liveDocs != null && !liveDocs.get(i))
-                continue;
-
-            final Document doc = reader.document(i);
-            final ArtifactInfo artifact = IndexUtils.constructArtifactInfo(doc, this.context);
-            if (artifact == null){
-                // This happens for documents which are not Artifact, e.g. Archetype etc.
-                continue;
-            }
-
-            artifact.setSha1(StringUtils.lowerCase(artifact.getSha1()));
-            artifact.setPackaging(StringUtils.defaultString(artifact.getPackaging()));
-            artifact.setClassifier(StringUtils.defaultString(artifact.getClassifier()));
-
-            for (ArtifactVisitor<Object> visitor : visitors)
-            {
-                try {
-                    visitor.visit(artifact);
-                }
-                catch (Exception e) {
-                    LOG.log(Level.SEVERE, "Failed processing " + artifact + " with " + visitor + "\n    " + e.getMessage());
-                }
-            }
+            visitors.add(new Sha1TableArtifactVisitor(new File(outDir, repository.getId() + Sha1TableArtifactVisitor.FILE_SUFFIX), filter));
         }
 
-        final BooleanQuery missingArtifactsQuery = createMissingArtifactsQuery();
-
-        final TotalHitCountCollector missingArtifactsQueryCountCollector = new TotalHitCountCollector();
-        searcher.search(missingArtifactsQuery, missingArtifactsQueryCountCollector);
-        final int artifactsCount = missingArtifactsQueryCountCollector.getTotalHits();
-        LOG.log(Level.INFO, String.format("Found %d artifacts to be added in repository %s", artifactsCount, repository.getId()));
+        final IndexScanner scanner = IndexScanner.fromSystemProperties();
+        LOG.info(String.format("Scanning index of repository %s with %d threads", repository.getId(), scanner.getThreads()));
+        // Only the fields used by the visitors and to recognize the missing artifacts are read, see ArtifactInfoProjection.
+        final Set<String> requiredIndexFields = new HashSet<>(filter.getRequiredIndexFields());
+        requiredIndexFields.addAll(MissingArtifacts.getRequiredIndexFields());
+        final ArtifactInfoProjection projection = new ArtifactInfoProjection(requiredIndexFields);
+        // The indexed artifacts, to skip the missing ones which are not missing anymore without a search for each.
+        // The missing artifacts are checked once the whole index is scanned, while their SHA1s are fetched during the scan.
+        final ArtifactMembershipSet.Builder indexedArtifacts = new ArtifactMembershipSet.Builder();
+        final CompletableFuture<ArtifactMembershipSet> indexedFuture = new CompletableFuture<>();
+        final AtomicInteger missing = new AtomicInteger(0);
         final AtomicInteger managed = new AtomicInteger(0);
         final AtomicInteger errors = new AtomicInteger(0);
-        if (artifactsCount > 0) {
-            Arrays.asList(searcher.search(missingArtifactsQuery, artifactsCount).scoreDocs)
-                    .parallelStream()
-                    .forEach(doc -> {
-                                try {
-                                    final ArtifactInfo wrongArtifactInfo = IndexUtils.constructArtifactInfo(searcher.doc(doc.doc), this.context);
-                                    final String sha1 = ArtifactDownloader.getJarSha1(repository.getUrl(), wrongArtifactInfo);
-                                    if (!ArtifactUtil.isArtifactAlreadyIndexed(indexer, this.context, sha1, wrongArtifactInfo)) {
-                                        final ArtifactInfo artifactInfo = new ArtifactInfo(repository.getId(),
-                                                wrongArtifactInfo.getGroupId(), wrongArtifactInfo.getArtifactId(),
-                                                wrongArtifactInfo.getVersion(), StringUtils.defaultString(null), "jar");
-                                        artifactInfo.setSha1(sha1);
-                                        artifactInfo.setPackaging("jar");
-                                        for (ArtifactVisitor<Object> visitor : visitors) {
-                                            try {
-                                                visitor.visit(artifactInfo);
-                                            } catch (Exception e) {
-                                                LOG.log(Level.SEVERE, String.format("Failed processing %s with %s%n    %s", artifactInfo, visitor, e.getMessage()));
-                                            }
-                                        }
-                                        if (managed.incrementAndGet() % 5000 == 0)
-                                        {
-                                            LOG.log(Level.INFO, String.format("Managed %d/%d artifacts ", managed.get(), artifactsCount));
+        // Not a Phaser: all the missing artifacts are pending until the scan completes, beyond its limit of parties.
+        final PendingTasks pending = new PendingTasks();
+        // Passes the missing artifacts to the resolver, which blocks while the maximum of requests is in flight, off the scan threads
+        final ExecutorService feeder = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "nexus-indexer-sha1-feeder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (Sha1Cache sha1Cache = Sha1Cache.fromSystemProperties(sha1CacheFile);
+             Sha1Resolver resolver = Sha1Resolver.fromSystemProperties(repository.getUrl(), sha1Cache)) {
+            LOG.log(Level.INFO, String.format("Fetching the SHA1s of the missing artifacts with at most %d concurrent requests", resolver.getMaxInFlight()));
+            scanner.scan(reader, (leafReader, docId) -> {
+                final ArtifactRecord artifact = projection.loadRecord(leafReader, docId);
+                if (artifact == null){
+                    // This happens for documents which are not Artifact, e.g. Archetype etc.
+                    return;
+                }
+                indexedArtifacts.add(artifact);
+
+                if (MissingArtifacts.isMissing(artifact)) {
+                    missing.incrementAndGet();
+                    pending.register();
+                    feeder.execute(() -> {
+                        final CompletableFuture<String> sha1Future = resolver.resolve(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion());
+                        CompletableFuture.allOf(sha1Future, indexedFuture).handle((ignored, ignoredFailure) -> {
+                            try {
+                                final String sha1 = join(sha1Future);
+                                if (!indexedFuture.join().contains(sha1, artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion())) {
+                                    final ArtifactRecord fixedArtifact = new ArtifactRecord(sha1,
+                                            artifact.getGroupId(), artifact.getArtifactId(),
+                                            artifact.getVersion(), "jar", "");
+                                    for (ArtifactVisitor<Object> visitor : visitors) {
+                                        try {
+                                            visitor.visit(fixedArtifact);
+                                        } catch (Exception e) {
+                                            LOG.log(Level.SEVERE, String.format("Failed processing %s with %s%n    %s", fixedArtifact, visitor, e.getMessage()));
                                         }
-                                    } else {
-                                        LOG.log(Level.INFO, String.format("Dependency %s is NOT missing anymore in the source index", wrongArtifactInfo.getUinfo()));
                                     }
-                                } catch (IOException e) {
-                                    errors.incrementAndGet();
-                                    LOG.log(Level.WARNING, String.format("Document %s management has failed%n    %s", doc, e.getMessage()));
+                                    if (managed.incrementAndGet() % 5000 == 0)
+                                    {
+                                        LOG.log(Level.INFO, String.format("Managed %d/%d artifacts, SHA1 requests: %s", managed.get(), missing.get(), resolver.getStats()));
+                                    }
+                                } else {
+                                    LOG.log(Level.INFO, String.format("Dependency %s is NOT missing anymore in the source index", artifact));
                                 }
+                            } catch (IOException | RuntimeException e) {
+                                errors.incrementAndGet();
+                                LOG.log(Level.WARNING, String.format("Document %s management has failed%n    %s", artifact, e.getMessage()));
+                            } finally {
+                                pending.arrive();
                             }
-                    );
-            LOG.log(Level.INFO, String.format("Managed %d/%d artifacts with %d artifacts not managed for problems (check log above)", managed.get(), artifactsCount, errors.get()));
+                            return null;
+                        });
+                    });
+                }
+
+                for (ArtifactVisitor<Object> visitor : visitors)
+                {
+                    try {
+                        visitor.visit(artifact);
+                    }
+                    catch (Exception e) {
+                        LOG.log(Level.SEVERE, "Failed processing " + artifact + " with " + visitor + "\n    " + e.getMessage());
+                    }
+                }
+            });
+
+            final ArtifactMembershipSet indexed = indexedArtifacts.build();
+            LOG.info(String.format("Found %d distinct main artifacts with a SHA1 and %d artifacts to be added in repository %s",
+                        indexed.size(), missing.get(), repository.getId()));
+            indexedFuture.complete(indexed);
+            feeder.shutdown();
+            pending.awaitAll();
+            LOG.log(Level.INFO, String.format("Managed %d/%d artifacts with %d artifacts not managed for problems (check log above)", managed.get(), missing.get(), errors.get()));
+        }
+        finally {
+            feeder.shutdownNow();
+            // Releases the pending requests if the scan failed
+            indexedFuture.completeExceptionally(new IOException("The index scan failed"));
         }
 
         for (ArtifactVisitor<Object> visitor : visitors)
@@ -287,48 +317,6 @@ public class RepositoryIndexManager implements AutoCloseable
         this.context.releaseIndexSearcher(searcher);
     }
 
-    // This query is created to address certain missing artifacts from the index.
-    // See https://issues.redhat.com/browse/WINDUP-2765 and https://issues.sonatype.org/browse/OSSRH-60950
-    private BooleanQuery createMissingArtifactsQuery() {
-        final BooleanQuery missingArtifactsQuery = new BooleanQuery();
-
-        // Query for searching all the docs in the index with the 'packaging' (aka the extension) that is 'module'
-        // e.g. Lucene query "+g:org.springframework.boot +a:spring-boot-starter-tomcat  +v:2.3.* +p:module"
-        // https://repo1.maven.org/maven2/org/springframework/boot/spring-boot-starter-web/2.3.2.RELEASE/
-        final TermQuery artifactsWithModuleQuery = new TermQuery(new Term(ArtifactInfo.PACKAGING, "module"));
-
-        // Query for searching all the docs in the index with the 'packaging' (aka the extension) that is 'pom.sha512'
-        // e.g. Lucene query "+g:org.springdoc +a:springdoc-openapi-common +v:1.4.? +p:pom.sha512"
-        // https://repo1.maven.org/maven2/org/springdoc/springdoc-openapi-common/1.4.3/
-        // https://repo1.maven.org/maven2/org/apache/ant/ant-commons-logging/1.8.0/
-        final TermQuery artifactsWithPomSha512Query = new TermQuery(new Term(ArtifactInfo.PACKAGING, "pom.sha512"));
-
-        missingArtifactsQuery.add(artifactsWithModuleQuery, BooleanClause.Occur.SHOULD);
-        missingArtifactsQuery.add(artifactsWithPomSha512Query, BooleanClause.Occur.SHOULD);
-
-        // Searches for artifacts with "bundle" packaging and no Symbolic Bundle Name to cater for
-        // artifacts like https://mvnrepository.com/artifact/com.fasterxml.jackson.core/jackson-databind/2.12.3
-        // See also https://issues.redhat.com/browse/WINDUP-3300
-        final BooleanQuery missingBundleArtifactsClause = new BooleanQuery();
-        final TermQuery artifactsWithBundleQuery = new TermQuery(new Term(ArtifactInfo.PACKAGING, "bundle"));
-        final TermRangeQuery artifactsWithNoSymNameQuery = TermRangeQuery.newStringRange(ArtifactInfo.BUNDLE_SYMBOLIC_NAME, null, null, true, true);
-        missingBundleArtifactsClause.add(artifactsWithBundleQuery, BooleanClause.Occur.MUST);
-        missingBundleArtifactsClause.add(artifactsWithNoSymNameQuery, BooleanClause.Occur.MUST_NOT);
-
-        missingArtifactsQuery.add(new BooleanClause(missingBundleArtifactsClause, BooleanClause.Occur.SHOULD));
-
-        // Looks for hashless artifacts
-        final BooleanQuery missingHashArtifactsQuery = new BooleanQuery();
-        final TermQuery artifactsWithJarPackaging = new TermQuery(new Term(ArtifactInfo.PACKAGING, "jar"));
-        final TermRangeQuery artifactsWithNoHashQuery = TermRangeQuery.newStringRange(ArtifactInfo.SHA1, null, null, true, true);
-        missingHashArtifactsQuery.add(artifactsWithJarPackaging, BooleanClause.Occur.MUST);
-        missingHashArtifactsQuery.add(artifactsWithNoHashQuery, BooleanClause.Occur.MUST_NOT);
-
-        missingArtifactsQuery.add(new BooleanClause(missingHashArtifactsQuery, BooleanClause.Occur.SHOULD));
-
-        return missingArtifactsQuery;
-    }
-
     private void updateNexusIndex(File outputDir, DependencyRepository repository) throws IOException, ComponentLookupException
     {
         outputDir.mkdirs();
@@ -339,41 +327,59 @@ public class RepositoryIndexManager implements AutoCloseable
         missingArtifactsQuery.add( indexer.constructQuery( MAVEN.PACKAGING, new SourcedSearchExpression( "pom.sha512" ) ), BooleanClause.Occur.SHOULD );
         // we want main artifacts only (no classifier)
         missingArtifactsQuery.add( indexer.constructQuery( MAVEN.CLASSIFIER, new SourcedSearchExpression( Field.NOT_PRESENT ) ), BooleanClause.Occur.MUST_NOT );
+        final ArtifactMembershipSet indexed = scanIndexedArtifacts();
         final IteratorSearchRequest request = new IteratorSearchRequest( missingArtifactsQuery, Collections.singletonList(context));
         final IteratorSearchResponse response = indexer.searchIterator(request);
         final int artifactsCount = response.getTotalHitsCount();
         LOG.log(Level.INFO, String.format("Found %d artifacts to be fixed in repository '%s'", artifactsCount, repository.getId()));
         final AtomicInteger managed = new AtomicInteger(0);
         final AtomicInteger errors = new AtomicInteger(0);
-        final List<ArtifactContext> artifactsToBeDeleted = new ArrayList<>();
-        final List<ArtifactContext> artifactsToBeAdded = new ArrayList<>();
-        StreamSupport.stream(response.spliterator(), true)
-                .forEach(artifactInfo -> {
-                    try {
-                        final String sha1 = ArtifactDownloader.getJarSha1(repository.getUrl(), artifactInfo);
-                        if (!ArtifactUtil.isArtifactAlreadyIndexed(indexer, this.context, sha1, artifactInfo)) {
-                            LOG.log(Level.FINE, String.format("Deleting artifact: {}", artifactInfo));
-                            artifactsToBeDeleted.add(new ArtifactContext(null, null, null, artifactInfo, null));
-                            artifactInfo.setSha1(sha1);
-                            artifactInfo.setPackaging("jar");
-                            artifactInfo.setFileExtension("jar");
-                            artifactsToBeAdded.add(new ArtifactContext(null, null, null, artifactInfo, null));
-                            if (managed.incrementAndGet() % 5000 == 0)
-                            {
-                                LOG.log(Level.INFO, String.format("Managed %d/%d artifacts ", managed.get(), artifactsCount));
+        // The fixes are written as their SHA1s are fetched, see IndexFixWriter.
+        // A Phaser is limited to 65535 parties, but the resolver blocks while its maximum of requests is in flight:
+        // the registered ones are about the requests in flight, unlike the missing artifacts of writeMetadataTo().
+        final Phaser pending = new Phaser(1);
+        try (Sha1Cache sha1Cache = Sha1Cache.fromSystemProperties(sha1CacheFile);
+                 Sha1Resolver resolver = Sha1Resolver.fromSystemProperties(repository.getUrl(), sha1Cache);
+                 IndexFixWriter fixWriter = IndexFixWriter.fromSystemProperties(context, plexusContainer.lookup(IndexerEngine.class))) {
+            LOG.log(Level.INFO, String.format("Fetching the SHA1s with at most %d concurrent requests", resolver.getMaxInFlight()));
+            for (ArtifactInfo artifactInfo : response) {
+                pending.register();
+                resolver.resolve(artifactInfo.getGroupId(), artifactInfo.getArtifactId(), artifactInfo.getVersion())
+                        .handle((sha1, failure) -> {
+                            try {
+                                if (failure != null)
+                                    throw unwrap(failure);
+                                if (!indexed.contains(sha1, artifactInfo.getGroupId(), artifactInfo.getArtifactId(), artifactInfo.getVersion())) {
+                                    LOG.log(Level.FINE, String.format("Replacing artifact: %s", artifactInfo));
+                                    // The broken document is identified by its UINFO, which the fix changes
+                                    final ArtifactInfo brokenArtifactInfo = new ArtifactInfo(artifactInfo.getRepository(), artifactInfo.getGroupId(),
+                                            artifactInfo.getArtifactId(), artifactInfo.getVersion(), artifactInfo.getClassifier(), artifactInfo.getFileExtension());
+                                    artifactInfo.setSha1(sha1);
+                                    artifactInfo.setPackaging("jar");
+                                    artifactInfo.setFileExtension("jar");
+                                    fixWriter.submit(brokenArtifactInfo, artifactInfo);
+                                    if (managed.incrementAndGet() % 5000 == 0)
+                                    {
+                                        LOG.log(Level.INFO, String.format("Managed %d/%d artifacts, %d written to the index, SHA1 requests: %s",
+                                                managed.get(), artifactsCount, fixWriter.getWritten(), resolver.getStats()));
+                                    }
+                                } else {
+                                    LOG.log(Level.INFO, String.format("Dependency %s is NOT wrong anymore in the source index", artifactInfo.getUinfo()));
+                                }
                             }
-                        } else {
-                            LOG.log(Level.INFO, String.format("Dependency %s is NOT wrong anymore in the source index", artifactInfo.getUinfo()));
-                        }
-                    }
-                    catch (IOException e) {
-                        errors.incrementAndGet();
-                        LOG.log(Level.WARNING, String.format("Document %s management has failed%n    %s", artifactInfo, e.getMessage()));
-                    }
-                });
-        LOG.log(Level.INFO, String.format("Managed %d/%d artifacts with %d artifacts not managed for problems (check log above).%nTime to update the index", managed.get(), artifactsCount, errors.get()));
-        indexer.deleteArtifactsFromIndex(artifactsToBeDeleted, context);
-        indexer.addArtifactsToIndex(artifactsToBeAdded, context);
+                            catch (IOException | RuntimeException e) {
+                                errors.incrementAndGet();
+                                LOG.log(Level.WARNING, String.format("Document %s management has failed%n    %s", artifactInfo, e.getMessage()));
+                            }
+                            finally {
+                                pending.arriveAndDeregister();
+                            }
+                            return null;
+                        });
+            }
+            pending.arriveAndAwaitAdvance();
+            LOG.log(Level.INFO, String.format("Managed %d/%d artifacts with %d artifacts not managed for problems (check log above).%nFinishing the index update", managed.get(), artifactsCount, errors.get()));
+        }
         LOG.log(Level.INFO, String.format("Index updated so moving forward to pack it in %s", outputDir));
         final IndexPacker packer = plexusContainer.lookup(IndexPacker.class);
         final IndexSearcher indexSearcher = context.acquireIndexSearcher();
@@ -390,6 +396,59 @@ public class RepositoryIndexManager implements AutoCloseable
         LOG.log(Level.INFO, String.format("Index packed", managed.get(), artifactsCount, errors.get()));
     }
 
+    /**
+     * Collects the main artifacts of the index in one scan, replacing a search with
+     * {@link ArtifactUtil#isArtifactAlreadyIndexed} for each missing artifact.
+     */
+    private ArtifactMembershipSet scanIndexedArtifacts() throws IOException
+    {
+        final IndexSearcher searcher = context.acquireIndexSearcher();
+        try
+        {
+            final ArtifactInfoProjection projection = new ArtifactInfoProjection(null);
+            final ArtifactMembershipSet.Builder builder = new ArtifactMembershipSet.Builder();
+            IndexScanner.fromSystemProperties().scan(searcher.getIndexReader(), (leafReader, docId) -> {
+                final ArtifactRecord artifact = projection.loadRecord(leafReader, docId);
+                if (artifact != null)
+                    builder.add(artifact);
+            });
+            final ArtifactMembershipSet indexed = builder.build();
+            LOG.info(String.format("Found %d distinct main artifacts with a SHA1 in the index", indexed.size()));
+            return indexed;
+        }
+        finally
+        {
+            context.releaseIndexSearcher(searcher);
+        }
+    }
+
+    /**
+     * @return The SHA1 of the completed request.
+     */
+    private static String join(CompletableFuture<String> sha1Future) throws IOException
+    {
+        try {
+            return sha1Future.join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * @return The {@link IOException} (or unchecked exception) a SHA1 request failed with.
+     */
+    private static IOException unwrap(Throwable failure)
+    {
+        final Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        if (cause instanceof IOException)
+            return (IOException) cause;
+        if (cause instanceof RuntimeException)
+            throw (RuntimeException) cause;
+        if (cause instanceof Error)
+            throw (Error) cause;
+        return new IOException(cause.getMessage(), cause);
+    }
+
     @Override
     public void close() throws IOException
     {
@@ -401,10 +460,20 @@ public class RepositoryIndexManager implements AutoCloseable
 
     /**
      * Normal visitor pattern which also allows to call a method after finished and retrieve a resulting object.
+     * The index is scanned by several threads (see {@link IndexScanner}), so the visit methods must be thread-safe.
      */
     public interface ArtifactVisitor<T>
     {
         void visit(ArtifactInfo artifact);
+
+        /**
+         * Called for the artifacts found when scanning the index. Override to avoid creating an {@link ArtifactInfo} for each of them.
+         */
+        default void visit(ArtifactRecord artifact)
+        {
+            visit(artifact.toArtifactInfo());
+        }
+
         public T done();
     }
 
@@ -0,0 +1,134 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * A Bloom filter of all the SHA1s of a generated index, written in the {@value #FILE_NAME} file next to the index,
+ * so that the clients can tell that a SHA1 is not in the index without a Lucene lookup: most of the jars looked up
+ * which are not in the repository are internal ones, which miss every time.
+ *
+ * The filter keys are the SHA1 prefixes, see {@link ArtifactRecord#sha1Prefix(byte[])},
+ * the same as the fingerprints of the {@link ArtifactMembershipSet}.
+ *
+ * The file is replaced before the index is committed, and the commit records the identity of its filter,
+ * see {@link #COMMIT_DATA_KEY}: a reader opening a commit uses the filter file only if it is the one of that commit.
+ */
+public final class Sha1BloomFilter
+{
+    private static final Logger LOG = Logger.getLogger(Sha1BloomFilter.class.getName());
+
+    public static final String FILE_NAME = "archive-metadata.sha1.bloom";
+
+    /**
+     * System property with the false positive rate of the written filters.
+     */
+    public static final String FALSE_POSITIVE_RATE_PROPERTY = "nexus-indexer.bloom.falsePositiveRate";
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    /**
+     * The key of the {@link #getIdentity() identity} of the filter in the user data of the index commit written with it.
+     */
+    public static final String COMMIT_DATA_KEY = "sha1BloomFilter";
+
+    private final BloomFilter filter;
+    private final String identity;
+
+
+    private Sha1BloomFilter(BloomFilter filter, String identity)
+    {
+        this.filter = filter;
+        this.identity = identity;
+    }
+
+    /**
+     * Maps the filter of the index in the given directory in memory.
+     *
+     * @return null if the index has no filter.
+     */
+    public static Sha1BloomFilter map(File indexDir) throws IOException
+    {
+        final File file = new File(indexDir, FILE_NAME);
+        if (!file.exists())
+            return null;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            final CRC32 checksum = new CRC32();
+            checksum.update(buffer.duplicate());
+            final BloomFilter filter = BloomFilter.read(buffer, file);
+            return new Sha1BloomFilter(filter, filter.getKeyCount() + ":" + Long.toHexString(checksum.getValue()));
+        }
+    }
+
+    /**
+     * @return The number of SHA1s of the filter and the checksum of its file, which tell this filter from the one
+     *         of another version of the index.
+     */
+    public String getIdentity()
+    {
+        return identity;
+    }
+
+
+    /**
+     * @return false if the (lower case hex) SHA1 is certainly not in the index.
+     */
+    public boolean mightContain(String sha1)
+    {
+        final byte[] bytes = ArtifactRecord.parseSha1(sha1);
+        return bytes != null && filter.mightContain(ArtifactRecord.sha1Prefix(bytes));
+    }
+
+
+    /**
+     * Collects the SHA1s of an index as it is written, from any thread, and writes their filter.
+     */
+    public static final class Builder
+    {
+        private final LongCollector prefixes = new LongCollector();
+        private final AtomicLong invalid = new AtomicLong();
+
+        public void add(String sha1)
+        {
+            final byte[] bytes = ArtifactRecord.parseSha1(sha1);
+            if (bytes == null)
+                invalid.incrementAndGet();
+            else
+                prefixes.add(ArtifactRecord.sha1Prefix(bytes));
+        }
+
+        /**
+         * Writes the filter, with the false positive rate of the {@value #FALSE_POSITIVE_RATE_PROPERTY} system property,
+         * in the index directory. No filter is written if a SHA1 was not a valid one: it could not be represented,
+         * and the clients would reject it.
+         *
+         * @return The identity of the written filter, to commit with the index under {@link #COMMIT_DATA_KEY},
+         *         or null if none was written.
+         */
+        public String write(File indexDir) throws IOException
+        {
+            final File file = new File(indexDir, FILE_NAME);
+            if (invalid.get() > 0)
+            {
+                LOG.warning(String.format("Not writing the SHA1 Bloom filter of %s: %d SHA1s are not lower case hex", indexDir, invalid.get()));
+                file.delete();
+                return null;
+            }
+            final double falsePositiveRate = Double.parseDouble(System.getProperty(FALSE_POSITIVE_RATE_PROPERTY, String.valueOf(DEFAULT_FALSE_POSITIVE_RATE)));
+            final long[] values = prefixes.toArray();
+            final BloomFilter filter = new BloomFilter(values.length, falsePositiveRate);
+            for (long value : values)
+                filter.add(value);
+            filter.writeTo(file);
+            LOG.info(String.format("Wrote the Bloom filter of %d SHA1s, %d KB: %s", values.length, filter.getBitCount() / 8 / 1024, file));
+            return map(indexDir).getIdentity();
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Persistent cache of the SHA1s fetched by the {@link Sha1Resolver}, keyed by G:A:V, so that the next runs
+ * do not download them again: the checksum of a released artifact never changes.
+ *
+ * The cache is an append-only text log, one entry per line, loaded into memory when opened:
+ * <pre>
+ * g:a:v sha1
+ * g:a:v - timestamp
+ * </pre>
+ * The second form records that there was no SHA1 file (HTTP 404) at the given time in milliseconds. Such negative entries
+ * expire after a TTL, as the artifact may be published later. The last entry of a G:A:V wins, and an incomplete last line
+ * (e.g. after a crash) is ignored. The log is compacted when opened if it has many superseded or expired lines.
+ */
+public class Sha1Cache implements Closeable
+{
+    private static final Logger LOG = Logger.getLogger(Sha1Cache.class.getName());
+
+    /**
+     * System property with how long a missing SHA1 file is remembered, in hours.
+     */
+    public static final String NOT_FOUND_TTL_PROPERTY = "nexus-indexer.sha1.notFoundTtlHours";
+    public static final int DEFAULT_NOT_FOUND_TTL_HOURS = 7 * 24;
+
+    private static final String NOT_FOUND = "-";
+    private static final int FLUSH_EVERY = 1000;
+
+    private final File file;
+    private final long notFoundTtlMillis;
+    private final LongSupplier clock;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Writer writer;
+    private int unflushed;
+
+
+    public Sha1Cache(File file, long notFoundTtlMillis) throws IOException
+    {
+        this(file, notFoundTtlMillis, System::currentTimeMillis);
+    }
+
+    Sha1Cache(File file, long notFoundTtlMillis, LongSupplier clock) throws IOException
+    {
+        this.file = file;
+        this.notFoundTtlMillis = notFoundTtlMillis;
+        this.clock = clock;
+
+        final int lines = load();
+        if (lines > 2 * entries.size() + FLUSH_EVERY)
+            compact();
+        this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+        if (!endsWithNewLine())
+            this.writer.write('\n');
+        LOG.info(String.format("Loaded %d cached SHA1 entries from %s", entries.size(), file));
+    }
+
+    /**
+     * Opens the cache with the TTL of the negative entries given by the {@value #NOT_FOUND_TTL_PROPERTY} system property.
+     */
+    public static Sha1Cache fromSystemProperties(File file) throws IOException
+    {
+        return new Sha1Cache(file, TimeUnit.HOURS.toMillis(Integer.getInteger(NOT_FOUND_TTL_PROPERTY, DEFAULT_NOT_FOUND_TTL_HOURS)));
+    }
+
+
+    /**
+     * @return The cached entry of the given artifact, or null if it is unknown or the SHA1 file was missing longer than the TTL ago.
+     */
+    public Entry get(String groupId, String artifactId, String version)
+    {
+        final Entry entry = entries.get(key(groupId, artifactId, version));
+        if (entry == null || entry.isExpired())
+            return null;
+        return entry;
+    }
+
+    public void putSha1(String groupId, String artifactId, String version, String sha1) throws IOException
+    {
+        put(key(groupId, artifactId, version), new Entry(sha1, 0));
+    }
+
+    public void putNotFound(String groupId, String artifactId, String version) throws IOException
+    {
+        put(key(groupId, artifactId, version), new Entry(null, clock.getAsLong()));
+    }
+
+    public int size()
+    {
+        return entries.size();
+    }
+
+
+    private void put(String key, Entry entry) throws IOException
+    {
+        entries.put(key, entry);
+        synchronized (writer)
+        {
+            writer.write(key);
+            writer.write(' ');
+            writer.write(entry.toString());
+            writer.write('\n');
+            if (++unflushed >= FLUSH_EVERY)
+            {
+                writer.flush();
+                unflushed = 0;
+            }
+        }
+    }
+
+    private static String key(String groupId, String artifactId, String version)
+    {
+        return groupId + ":" + artifactId + ":" + version;
+    }
+
+
+    /**
+     * @return The number of lines in the log.
+     */
+    private int load() throws IOException
+    {
+        if (!file.exists())
+            return 0;
+        int lines = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)))
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                lines++;
+                final String[] parts = line.split(" ");
+                if (parts.length == 2 && parts[1].length() == 40)
+                    entries.put(parts[0], new Entry(parts[1], 0));
+                else if (parts.length == 3 && NOT_FOUND.equals(parts[1]))
+                {
+                    try
+                    {
+                        entries.put(parts[0], new Entry(null, Long.parseLong(parts[2])));
+                    }
+                    catch (NumberFormatException ex)
+                    {
+                        LOG.warning("Ignoring a malformed line in " + file + ": " + line);
+                    }
+                }
+                else
+                    LOG.warning("Ignoring a malformed line in " + file + ": " + line);
+            }
+        }
+        return lines;
+    }
+
+    private boolean endsWithNewLine() throws IOException
+    {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"))
+        {
+            if (raf.length() == 0)
+                return true;
+            raf.seek(raf.length() - 1);
+            return raf.read() == '\n';
+        }
+    }
+
+    private void compact() throws IOException
+    {
+        final File compacted = new File(file.getPath() + ".tmp");
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(compacted), StandardCharsets.UTF_8)))
+        {
+            for (Map.Entry<String, Entry> entry : entries.entrySet())
+            {
+                if (entry.getValue().isExpired())
+                    continue;
+                out.write(entry.getKey());
+                out.write(' ');
+                out.write(entry.getValue().toString());
+                out.write('\n');
+            }
+        }
+        Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        LOG.info("Compacted " + file);
+    }
+
+
+    @Override
+    public void close() throws IOException
+    {
+        synchronized (writer)
+        {
+            writer.close();
+        }
+    }
+
+
+    /**
+     * A cached SHA1, or the time when the SHA1 file was found missing.
+     */
+    public final class Entry
+    {
+        private final String sha1;
+        private final long notFoundSince;
+
+        private Entry(String sha1, long notFoundSince)
+        {
+            this.sha1 = sha1;
+            this.notFoundSince = notFoundSince;
+        }
+
+        /**
+         * @return The SHA1, or null if the repository had no SHA1 file for the artifact.
+         */
+        public String getSha1()
+        {
+            return sha1;
+        }
+
+        public boolean isNotFound()
+        {
+            return sha1 == null;
+        }
+
+        private boolean isExpired()
+        {
+            return sha1 == null && clock.getAsLong() - notFoundSince > notFoundTtlMillis;
+        }
+
+        @Override
+        public String toString()
+        {
+            return sha1 != null ? sha1 : NOT_FOUND + " " + notFoundSince;
+        }
+    }
+}
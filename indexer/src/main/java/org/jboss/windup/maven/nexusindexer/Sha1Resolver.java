@@ -0,0 +1,388 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Fetches the SHA1 of the main jar of artifacts from the <code>.jar.sha1</code> files of a Maven repository,
+ * for the artifacts which the index has without one (see https://issues.redhat.com/browse/WINDUP-2765).
+ *
+ * The requests go through a pool of keep-alive HTTP connections with timeouts, run on a dedicated pool of threads
+ * and complete a {@link CompletableFuture}. At most the configured number of requests is in flight:
+ * {@link #resolve(String, String, String)} blocks the caller until a slot is free, which keeps the producer
+ * from queuing an unbounded number of requests.
+ *
+ * With a {@link Sha1Cache}, the cached SHA1s and the recently missing SHA1 files are answered without a request,
+ * and the results of the requests are added to the cache.
+ */
+public class Sha1Resolver implements Closeable
+{
+    private static final Logger LOG = Logger.getLogger(Sha1Resolver.class.getName());
+
+    /**
+     * System property with the maximum number of concurrent SHA1 requests.
+     */
+    public static final String MAX_IN_FLIGHT_PROPERTY = "nexus-indexer.sha1.maxInFlight";
+    public static final int DEFAULT_MAX_IN_FLIGHT = 32;
+
+    /**
+     * System property with the connect and read timeout of the SHA1 requests, in milliseconds.
+     */
+    public static final String TIMEOUT_PROPERTY = "nexus-indexer.sha1.timeoutMs";
+    public static final int DEFAULT_TIMEOUT_MS = 30_000;
+
+    private final String repositoryUrl;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient client;
+    private final ExecutorService executor;
+    private final Sha1Cache cache;
+    private final Stats stats = new Stats();
+
+
+    public Sha1Resolver(String repositoryUrl, int maxInFlight, int timeoutMillis)
+    {
+        this(repositoryUrl, maxInFlight, timeoutMillis, null);
+    }
+
+    /**
+     * @param cache The cache to use, or null; it is not closed by this resolver.
+     */
+    public Sha1Resolver(String repositoryUrl, int maxInFlight, int timeoutMillis, Sha1Cache cache)
+    {
+        if (maxInFlight < 1)
+            throw new IllegalArgumentException("At least one request in flight is needed: " + maxInFlight);
+        this.repositoryUrl = repositoryUrl;
+        this.cache = cache;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+
+        this.connectionManager = new PoolingHttpClientConnectionManager();
+        this.connectionManager.setMaxTotal(maxInFlight);
+        this.connectionManager.setDefaultMaxPerRoute(maxInFlight);
+        final RequestConfig requestConfig = RequestConfig.custom()
+                    .setConnectTimeout(timeoutMillis)
+                    .setSocketTimeout(timeoutMillis)
+                    .setConnectionRequestTimeout(timeoutMillis)
+                    .build();
+        this.client = HttpClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(requestConfig)
+                    .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+                    .build();
+        this.executor = Executors.newFixedThreadPool(maxInFlight, new ResolverThreadFactory());
+    }
+
+    /**
+     * Creates a resolver configured by the {@value #MAX_IN_FLIGHT_PROPERTY} and {@value #TIMEOUT_PROPERTY} system properties.
+     */
+    public static Sha1Resolver fromSystemProperties(String repositoryUrl, Sha1Cache cache)
+    {
+        return new Sha1Resolver(repositoryUrl,
+                    Integer.getInteger(MAX_IN_FLIGHT_PROPERTY, DEFAULT_MAX_IN_FLIGHT),
+                    Integer.getInteger(TIMEOUT_PROPERTY, DEFAULT_TIMEOUT_MS),
+                    cache);
+    }
+
+    public int getMaxInFlight()
+    {
+        return maxInFlight;
+    }
+
+    public Stats getStats()
+    {
+        return stats;
+    }
+
+
+    /**
+     * Requests the SHA1 of the main jar of the given artifact, waiting for a free slot if the maximum of requests is in flight.
+     *
+     * @return A future completed with the lower-case SHA1; or exceptionally with a {@link FileNotFoundException}
+     *         if the repository has no such SHA1 file, or another {@link IOException} if it could not be fetched.
+     */
+    public CompletableFuture<String> resolve(String groupId, String artifactId, String version)
+    {
+        final String url = ArtifactDownloader.getJarSha1Url(repositoryUrl, groupId, artifactId, version);
+        final Sha1Cache.Entry cached = cache == null ? null : cache.get(groupId, artifactId, version);
+        if (cached != null)
+        {
+            stats.recordCacheHit();
+            if (cached.isNotFound())
+                return failed(new FileNotFoundException(url + " (cached)"));
+            return CompletableFuture.completedFuture(cached.getSha1());
+        }
+
+        try
+        {
+            inFlight.acquire();
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            return failed(new IOException("Interrupted while waiting to fetch " + url, ex));
+        }
+
+        try
+        {
+            return CompletableFuture.supplyAsync(() -> {
+                try
+                {
+                    final String sha1;
+                    try
+                    {
+                        sha1 = fetch(url);
+                    }
+                    catch (FileNotFoundException ex)
+                    {
+                        updateCache(groupId, artifactId, version, null);
+                        throw ex;
+                    }
+                    updateCache(groupId, artifactId, version, sha1);
+                    return sha1;
+                }
+                catch (IOException ex)
+                {
+                    throw new CompletionException(ex);
+                }
+                finally
+                {
+                    inFlight.release();
+                }
+            }, executor);
+        }
+        catch (RuntimeException ex)
+        {
+            inFlight.release();
+            throw ex;
+        }
+    }
+
+
+    /**
+     * Records the SHA1, or the missing SHA1 file if null. A failure to write the cache only costs a request in the next run.
+     */
+    private void updateCache(String groupId, String artifactId, String version, String sha1)
+    {
+        if (cache == null)
+            return;
+        try
+        {
+            if (sha1 == null)
+                cache.putNotFound(groupId, artifactId, version);
+            else
+                cache.putSha1(groupId, artifactId, version, sha1);
+        }
+        catch (IOException ex)
+        {
+            LOG.log(Level.WARNING, String.format("Failed caching the SHA1 of %s:%s:%s: %s", groupId, artifactId, version, ex.getMessage()));
+        }
+    }
+
+    private static CompletableFuture<String> failed(IOException failure)
+    {
+        final CompletableFuture<String> future = new CompletableFuture<>();
+        future.completeExceptionally(failure);
+        return future;
+    }
+
+    private String fetch(String url) throws IOException
+    {
+        final long start = System.nanoTime();
+        boolean found = false;
+        boolean notFound = false;
+        try (CloseableHttpResponse response = client.execute(new HttpGet(url)))
+        {
+            final int status = response.getStatusLine().getStatusCode();
+            final HttpEntity entity = response.getEntity();
+            if (status != HttpStatus.SC_OK)
+            {
+                // Consume the entity so that the connection goes back to the pool.
+                EntityUtils.consume(entity);
+                notFound = status == HttpStatus.SC_NOT_FOUND;
+                if (notFound)
+                    throw new FileNotFoundException(url);
+                throw new IOException("Impossible to retrieve file from " + url + ": " + response.getStatusLine());
+            }
+            if (entity == null)
+                throw new IOException("Impossible to retrieve file from " + url + ": no content");
+
+            // the hash sha1 file should be always a 1 line text file
+            final String sha1;
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(entity.getContent(), StandardCharsets.UTF_8)))
+            {
+                sha1 = in.readLine();
+            }
+            if (!(sha1 != null && sha1.length() == 40))
+            {
+                LOG.log(Level.WARNING, String.format("SHA1 file %s has no valid hash (%s), it will be skipped", url, sha1));
+                throw new IOException("Impossible to retrieve file from " + url);
+            }
+            found = true;
+            return sha1.toLowerCase();
+        }
+        finally
+        {
+            stats.record(System.nanoTime() - start, found, notFound);
+        }
+    }
+
+
+    /**
+     * Waits for the running requests and releases the connections.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        executor.shutdown();
+        try
+        {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES))
+                executor.shutdownNow();
+        }
+        catch (InterruptedException ex)
+        {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            client.close();
+            connectionManager.shutdown();
+        }
+        LOG.info("SHA1 requests: " + stats);
+    }
+
+
+    /**
+     * Counters of the SHA1 requests, updated as they complete.
+     */
+    public static final class Stats
+    {
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong found = new AtomicLong();
+        private final AtomicLong notFound = new AtomicLong();
+        private final AtomicLong totalLatencyNanos = new AtomicLong();
+        private final AtomicLong maxLatencyNanos = new AtomicLong();
+        private final AtomicLong cacheHits = new AtomicLong();
+
+        void recordCacheHit()
+        {
+            cacheHits.incrementAndGet();
+        }
+
+        void record(long latencyNanos, boolean found, boolean notFound)
+        {
+            requests.incrementAndGet();
+            if (found)
+                this.found.incrementAndGet();
+            else if (notFound)
+                this.notFound.incrementAndGet();
+            totalLatencyNanos.addAndGet(latencyNanos);
+            long max;
+            while ((max = maxLatencyNanos.get()) < latencyNanos && !maxLatencyNanos.compareAndSet(max, latencyNanos))
+                ;
+        }
+
+        /**
+         * Artifacts answered by the {@link Sha1Cache}, without a request.
+         */
+        public long getCacheHits()
+        {
+            return cacheHits.get();
+        }
+
+        public long getRequests()
+        {
+            return requests.get();
+        }
+
+        public long getFound()
+        {
+            return found.get();
+        }
+
+        public long getNotFound()
+        {
+            return notFound.get();
+        }
+
+        /**
+         * Requests which failed for another reason than a missing SHA1 file: timeouts, server errors, invalid content...
+         */
+        public long getFailures()
+        {
+            return requests.get() - found.get() - notFound.get();
+        }
+
+        public double getAverageLatencyMillis()
+        {
+            final long count = requests.get();
+            return count == 0 ? 0 : totalLatencyNanos.get() / 1e6 / count;
+        }
+
+        public double getMaxLatencyMillis()
+        {
+            return maxLatencyNanos.get() / 1e6;
+        }
+
+        /**
+         * Completed requests per second since the resolver was created.
+         */
+        public double getThroughput()
+        {
+            final long elapsed = System.nanoTime() - startNanos;
+            return elapsed <= 0 ? 0 : requests.get() * 1e9 / elapsed;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%d cache hits, %d requests (%d found, %d not found, %d failed), latency avg %.1f ms max %.1f ms, %.1f requests/s",
+                        getCacheHits(), getRequests(), getFound(), getNotFound(), getFailures(),
+                        getAverageLatencyMillis(), getMaxLatencyMillis(), getThroughput());
+        }
+    }
+
+
+    private static final class ResolverThreadFactory implements ThreadFactory
+    {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+            final Thread thread = new Thread(runnable, "nexus-indexer-sha1-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
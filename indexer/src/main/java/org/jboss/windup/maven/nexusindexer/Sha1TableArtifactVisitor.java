@@ -0,0 +1,306 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.apache.maven.index.ArtifactInfo;
+
+/**
+ * Writes the visited artifacts to a SHA1 table, a file which answers the SHA1 to coordinates lookups without Lucene,
+ * memory mapped by the clients. The file has, all the numbers being big-endian:
+ * <ul>
+ * <li>a header of {@value #HEADER_SIZE} bytes: the magic number, the format version, the number of entries (a long),
+ *     the offset of the pool in the file and its size (longs);</li>
+ * <li>a fan-out table of 256 ints: the number of entries whose SHA1 starts with a byte lower or equal to the index;</li>
+ * <li>the entries sorted by SHA1, of {@value #ENTRY_SIZE} bytes: the SHA1 and the offset of its coordinates in the pool (an int);</li>
+ * <li>the pool: for each entry, the offsets of its group, packaging and classifier strings, followed by its artifact id and
+ *     version strings. A string is its UTF-8 length followed by its bytes. The offsets and lengths are varints: 7 bits per byte,
+ *     the low ones first, the high bit telling that another byte follows. The groups, packagings and classifiers,
+ *     repeated across the artifacts, are stored once.</li>
+ * </ul>
+ *
+ * The artifacts are sorted within a bounded memory like the lines of the text output, see {@link ExternalLineSorter}:
+ * the ones with the same SHA1 are in the order of their coordinates. The artifacts without a valid SHA1 are skipped,
+ * as well as the ones with a ':' or a line break in a coordinate, which can't be told apart from the others in the sorted lines.
+ */
+public class Sha1TableArtifactVisitor implements RepositoryIndexManager.ArtifactVisitor<Object>
+{
+    private static final Logger LOG = Logger.getLogger(Sha1TableArtifactVisitor.class.getName());
+
+    public static final String FILE_SUFFIX = ".archive-metadata.sha1.table";
+
+    public static final int MAGIC = 0x4e585354; // "NXST"
+    public static final int FORMAT_VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+    public static final int FAN_OUT_SIZE = 256 * 4;
+    public static final int ENTRY_SIZE = ArtifactRecord.SHA1_LENGTH + 4;
+
+    private final File outFile;
+    private final ExternalLineSorter lines;
+    private final ArtifactFilter filter;
+
+
+    public Sha1TableArtifactVisitor(File outFile, ArtifactFilter filter)
+    {
+        this(outFile, filter, ExternalLineSorter.getMemoryBudgetFromSystemProperties());
+    }
+
+    /**
+     * @param memoryBudget How many bytes the artifacts may occupy in memory before being sorted and spilled to temporary files.
+     */
+    public Sha1TableArtifactVisitor(File outFile, ArtifactFilter filter, long memoryBudget)
+    {
+        this.outFile = outFile;
+        this.lines = new ExternalLineSorter(memoryBudget, outFile.getAbsoluteFile().getParentFile());
+        this.filter = filter;
+    }
+
+
+    @Override
+    public void visit(ArtifactInfo artifact)
+    {
+        visit(ArtifactRecord.of(artifact));
+    }
+
+
+    @Override
+    public void visit(ArtifactRecord artifact)
+    {
+        if (!artifact.hasValidSha1() || !this.filter.accept(artifact))
+            return;
+        if (!isValidCoordinate(artifact.getGroupId()) || !isValidCoordinate(artifact.getArtifactId()) || !isValidCoordinate(artifact.getPackaging())
+                    || !isValidCoordinate(artifact.getClassifier()) || !isValidCoordinate(artifact.getVersion()))
+        {
+            LOG.warning("Skipping an artifact with a ':' or a line break in its coordinates: " + artifact.getSha1() + " "
+                        + artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getPackaging() + ":"
+                        + artifact.getClassifier() + ":" + artifact.getVersion());
+            return;
+        }
+        // The same lines as the text output, sorted the same way.
+        StringBuilder line = new StringBuilder();
+        line.append(artifact.getSha1()).append(' ');
+        line.append(nonNull(artifact.getGroupId())).append(':');
+        line.append(nonNull(artifact.getArtifactId())).append(':');
+        line.append(nonNull(artifact.getPackaging())).append(':');
+        line.append(nonNull(artifact.getClassifier())).append(':');
+        line.append(nonNull(artifact.getVersion()));
+        line.append('\n');
+        try
+        {
+            lines.add(line.toString());
+        }
+        catch (IOException ex)
+        {
+            throw new RuntimeException("Failed spilling sorted artifacts next to " + outFile.getPath() + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    private static boolean isValidCoordinate(String value)
+    {
+        return value == null || (value.indexOf(':') < 0 && value.indexOf('\n') < 0);
+    }
+
+    private static String nonNull(String value)
+    {
+        return value == null ? "" : value;
+    }
+
+
+    public Object done()
+    {
+        // Replaces the file atomically, like the Bloom filters: a reader having mapped the previous file keeps reading it.
+        final File tempFile = new File(outFile.getPath() + ".tmp");
+        final File poolFile = new File(outFile.getPath() + ".pool");
+        try
+        {
+            try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.WRITE);
+                 TableWriter writer = new TableWriter(channel, poolFile))
+            {
+                lines.writeSorted(writer);
+                writer.finish();
+                LOG.info(String.format("Wrote the SHA1 table of %d artifacts, %d KB: %s", writer.entries, channel.size() / 1024, outFile));
+            }
+            Files.move(tempFile.toPath(), outFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException ex)
+        {
+            throw new RuntimeException("Failed writing the SHA1 table " + outFile.getPath() + ": " + ex.getMessage(), ex);
+        }
+        finally
+        {
+            this.lines.close();
+            poolFile.delete();
+            tempFile.delete();
+        }
+        return null;
+    }
+
+
+    /**
+     * Receives the sorted lines and writes them as entries, directly to the table file, and as coordinates to the pool,
+     * a temporary file appended to the table by {@link #finish()}.
+     */
+    private static final class TableWriter extends Writer
+    {
+        private final FileChannel channel;
+        private final File poolFile;
+        private final DataOutputStream entryOut;
+        private final DataOutputStream poolOut;
+        private final StringBuilder pending = new StringBuilder();
+        private final int[] fanOut = new int[256];
+        private final Map<String, Integer> sharedStrings = new HashMap<>();
+        private long entries;
+        private long poolSize;
+
+        TableWriter(FileChannel channel, File poolFile) throws IOException
+        {
+            this.channel = channel;
+            this.poolFile = poolFile;
+            channel.position(HEADER_SIZE + FAN_OUT_SIZE);
+            this.entryOut = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            this.poolOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(poolFile), 1 << 16));
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException
+        {
+            for (int i = offset; i < offset + length; i++)
+            {
+                if (chars[i] != '\n')
+                {
+                    pending.append(chars[i]);
+                    continue;
+                }
+                addLine(pending.toString());
+                pending.setLength(0);
+            }
+        }
+
+        private void addLine(String line) throws IOException
+        {
+            final int space = line.indexOf(' ');
+            final String[] coordinates = line.substring(space + 1).split(":", -1);
+            final byte[] sha1 = space < 0 ? null : ArtifactRecord.parseSha1(line.substring(0, space));
+            if (sha1 == null || coordinates.length != 5)
+                throw new IOException("Unexpected sorted line: " + line);
+
+            // Coordinates G:A:P:C:V. The strings seen for the first time are written before the record.
+            final int group = shared(coordinates[0]);
+            final int packaging = shared(coordinates[2]);
+            final int classifier = shared(coordinates[3]);
+            if (poolSize > Integer.MAX_VALUE)
+                throw new IOException("The pool of the SHA1 table is over 2 GB");
+            entryOut.write(sha1);
+            entryOut.writeInt((int) poolSize);
+            fanOut[sha1[0] & 0xff]++;
+            entries++;
+
+            writeVarint(group);
+            writeVarint(packaging);
+            writeVarint(classifier);
+            writeString(coordinates[1]);
+            writeString(coordinates[4]);
+        }
+
+        /**
+         * @return The offset of the string in the pool, written there the first time.
+         */
+        private int shared(String value) throws IOException
+        {
+            Integer offset = sharedStrings.get(value);
+            if (offset == null)
+            {
+                if (poolSize > Integer.MAX_VALUE)
+                    throw new IOException("The pool of the SHA1 table is over 2 GB");
+                offset = (int) poolSize;
+                sharedStrings.put(value, offset);
+                writeString(value);
+            }
+            return offset;
+        }
+
+        private void writeString(String value) throws IOException
+        {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            poolOut.write(bytes);
+            poolSize += bytes.length;
+        }
+
+        private void writeVarint(int value) throws IOException
+        {
+            while ((value & ~0x7f) != 0)
+            {
+                poolOut.write((value & 0x7f) | 0x80);
+                value >>>= 7;
+                poolSize++;
+            }
+            poolOut.write(value);
+            poolSize++;
+        }
+
+        /**
+         * Appends the pool to the entries, then writes the header and the fan-out table.
+         */
+        void finish() throws IOException
+        {
+            if (pending.length() > 0)
+                throw new IOException("Unterminated sorted line: " + pending);
+            entryOut.flush();
+            poolOut.close();
+            final long poolOffset = channel.position();
+
+            try (FileChannel pool = FileChannel.open(poolFile.toPath(), StandardOpenOption.READ))
+            {
+                long copied = 0;
+                while (copied < poolSize)
+                    copied += pool.transferTo(copied, poolSize - copied, channel);
+            }
+
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + FAN_OUT_SIZE);
+            header.putInt(MAGIC);
+            header.putInt(FORMAT_VERSION);
+            header.putLong(entries);
+            header.putLong(poolOffset);
+            header.putLong(poolSize);
+            int total = 0;
+            for (int count : fanOut)
+            {
+                total += count;
+                header.putInt(total);
+            }
+            header.flip();
+            long position = 0;
+            while (header.hasRemaining())
+                position += channel.write(header, position);
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            entryOut.flush();
+            poolOut.flush();
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            poolOut.close();
+        }
+    }
+}
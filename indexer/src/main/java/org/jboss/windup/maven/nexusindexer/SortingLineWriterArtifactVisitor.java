@@ -5,12 +5,8 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.util.Collections;
-import java.util.List;
 import java.util.logging.Logger;
 
-import org.apache.commons.collections4.ListUtils;
-import org.apache.commons.collections4.list.TreeList;
 import org.apache.maven.index.ArtifactInfo;
 
 /**
@@ -23,16 +19,25 @@ public class SortingLineWriterArtifactVisitor implements RepositoryIndexManager.
 
     private final OutputStreamWriter writer;
     private final File outFile;
-    // Use a TreeList because it is faster to insert and sort.
-    // synchronized to support concurrent multi-threads additions from parallel streams
+    // Bounded in memory, the lines over the budget are spilled to sorted runs next to the output file.
+    // Per-thread buffers support concurrent additions from the index scan and from parallel streams without contention,
     // for managing the issue https://issues.redhat.com/browse/WINDUP-2765
-    private final List<String> lines = ListUtils.synchronizedList(new TreeList<>());
+    private final ExternalLineSorter lines;
     private final ArtifactFilter filter;
 
 
     public SortingLineWriterArtifactVisitor(File outFile, ArtifactFilter filter)
+    {
+        this(outFile, filter, ExternalLineSorter.getMemoryBudgetFromSystemProperties());
+    }
+
+    /**
+     * @param memoryBudget How many bytes the lines may occupy in memory before being sorted and spilled to temporary files.
+     */
+    public SortingLineWriterArtifactVisitor(File outFile, ArtifactFilter filter, long memoryBudget)
     {
         this.outFile = outFile;
+        this.lines = new ExternalLineSorter(memoryBudget, outFile.getAbsoluteFile().getParentFile());
         try
         {
             this.writer = new FileWriter(outFile);
@@ -47,6 +52,13 @@ public class SortingLineWriterArtifactVisitor implements RepositoryIndexManager.
 
     @Override
     public void visit(ArtifactInfo artifact)
+    {
+        visit(ArtifactRecord.of(artifact));
+    }
+
+
+    @Override
+    public void visit(ArtifactRecord artifact)
     {
         if (!this.filter.accept(artifact))
             return;
@@ -63,24 +75,32 @@ public class SortingLineWriterArtifactVisitor implements RepositoryIndexManager.
         line.append(artifact.getClassifier()).append(":");
         line.append(artifact.getVersion());
         line.append("\n");
-        lines.add(line.toString());
+        try
+        {
+            lines.add(line.toString());
+        }
+        catch (IOException ex)
+        {
+            throw new RuntimeException("Failed spilling sorted lines next to " + outFile.getPath() + ": " + ex.getMessage(), ex);
+        }
     }
 
 
     public Object done()
     {
-        Collections.sort(lines);
         try
         {
-            for (String line : lines)
-                writer.append(line);
+            lines.writeSorted(writer);
             this.writer.close();
         }
         catch (IOException ex)
         {
             throw new RuntimeException("Failed writing sorted lines to writer: " + ex.getMessage(), ex);
         }
-        this.lines.clear();
+        finally
+        {
+            this.lines.close();
+        }
         return null;
     }
 
@@ -3,6 +3,9 @@ package org.jboss.windup.maven.nexusindexer;
 import org.jboss.windup.maven.nexusindexer.ArtifactFilter;
 import org.jboss.windup.maven.nexusindexer.DefinitionArtifactFilter;
 import org.jboss.windup.maven.nexusindexer.BomBasedArtifactFilterFactory;
+import java.util.Collections;
+import java.util.Set;
+
 import org.apache.maven.index.ArtifactInfo;
 import static org.jboss.windup.maven.nexusindexer.DefinitionArtifactFilter.ANY_MATCHES;
 import org.junit.Test;
@@ -39,6 +42,57 @@ public class ArtifactFiltersTest
         assertTrue(filter.accept(new ArtifactInfo(null, "cz.zizka.ondra", "whatever", "1", "", "")));
     }
 
+    /**
+     * The combined filters get the artifacts with the attributes loaded for them, not only the coordinates.
+     */
+    @Test
+    public void testAndFilterPassesTheAttributes()
+    {
+        ArtifactFilter bundles = new ArtifactFilter()
+        {
+            @Override
+            public boolean accept(String sha1, String group, String artifactId, String version, String packaging, String classifier)
+            {
+                throw new AssertionError("The attributes must be checked");
+            }
+
+            @Override
+            public boolean accept(ArtifactInfo artifact)
+            {
+                return artifact.getBundleSymbolicName() != null;
+            }
+
+            @Override
+            public boolean accept(ArtifactRecord artifact)
+            {
+                return artifact.getAttributes().containsKey(ArtifactInfo.BUNDLE_SYMBOLIC_NAME);
+            }
+
+            @Override
+            public Set<String> getRequiredIndexFields()
+            {
+                return Collections.singleton(ArtifactInfo.BUNDLE_SYMBOLIC_NAME);
+            }
+        };
+        ArtifactFilter and = new ArtifactFilter.AndFilter(ArtifactFilter.LIBRARIES, bundles);
+        ArtifactFilter or = new ArtifactFilter.AndFilter(true, new DefinitionArtifactFilter(), bundles);
+        assertEquals(Collections.singleton(ArtifactInfo.BUNDLE_SYMBOLIC_NAME), and.getRequiredIndexFields());
+
+        String sha1 = "0123456789abcdef0123456789abcdef01234567";
+        ArtifactRecord bundle = new ArtifactRecord(sha1, "org.example", "bundle", "1.0", "jar", "",
+                    Collections.singletonMap(ArtifactInfo.BUNDLE_SYMBOLIC_NAME, "org.example.bundle"));
+        ArtifactRecord jar = new ArtifactRecord(sha1, "org.example", "jar", "1.0", "jar", "");
+        assertTrue(and.accept(bundle));
+        assertFalse(and.accept(jar));
+        assertTrue(or.accept(bundle));
+        assertFalse(or.accept(jar));
+
+        ArtifactInfo bundleInfo = bundle.toArtifactInfo();
+        bundleInfo.setBundleSymbolicName("org.example.bundle");
+        assertTrue(and.accept(bundleInfo));
+        assertFalse(and.accept(jar.toArtifactInfo()));
+    }
+
     @Test
     public void testBomBasedFilterFactory()
     {
@@ -0,0 +1,83 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.store.Directory;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.context.IndexCreator;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class ArtifactInfoProjectionTest
+{
+    @Test
+    public void testProjectionMatchesIndexCreators() throws Exception
+    {
+        final List<IndexCreator> creators = SyntheticNexusIndex.creators();
+        final ArtifactInfoProjection projection = new ArtifactInfoProjection(null);
+        final AtomicInteger artifacts = new AtomicInteger();
+
+        try (Directory directory = SyntheticNexusIndex.create(3000, 1000);
+             IndexReader reader = DirectoryReader.open(directory))
+        {
+            new IndexScanner(1).scan(reader, (leafReader, docId) -> {
+                final Document doc = leafReader.document(docId);
+                final ArtifactInfo projected = projection.load(leafReader, docId);
+                if (doc.get(ArtifactInfo.UINFO) == null)
+                {
+                    assertNull(projected);
+                    return;
+                }
+
+                final ArtifactInfo expected = new ArtifactInfo();
+                for (IndexCreator creator : creators)
+                    creator.updateArtifactInfo(doc, expected);
+
+                assertNotNull(projected);
+                assertEquals(expected.getGroupId(), projected.getGroupId());
+                assertEquals(expected.getArtifactId(), projected.getArtifactId());
+                assertEquals(expected.getVersion(), projected.getVersion());
+                assertEquals(expected.getClassifier(), projected.getClassifier());
+                assertEquals(expected.getPackaging(), projected.getPackaging());
+                assertEquals(expected.getSha1(), projected.getSha1());
+                assertEquals(expected.getUinfo(), projected.getUinfo());
+                assertTrue(projected.getAttributes().isEmpty());
+
+                final ArtifactRecord record = projection.loadRecord(leafReader, docId);
+                assertEquals(StringUtils.lowerCase(expected.getSha1()), record.getSha1());
+                assertEquals(expected.getSha1() != null, record.hasValidSha1());
+                assertEquals(expected.getGroupId(), record.getGroupId());
+                assertEquals(expected.getArtifactId(), record.getArtifactId());
+                assertEquals(expected.getVersion(), record.getVersion());
+                assertEquals(StringUtils.defaultString(expected.getPackaging()), record.getPackaging());
+                assertEquals(StringUtils.defaultString(expected.getClassifier()), record.getClassifier());
+                artifacts.incrementAndGet();
+            });
+        }
+        assertTrue(artifacts.get() > 2000);
+    }
+
+    @Test
+    public void testRequiredIndexFieldsAreLoaded() throws Exception
+    {
+        final ArtifactInfoProjection projection = new ArtifactInfoProjection(Collections.singleton(ArtifactInfo.NAME));
+        try (Directory directory = SyntheticNexusIndex.create(10, 10);
+             IndexReader reader = DirectoryReader.open(directory))
+        {
+            final ArtifactInfo artifact = projection.load(reader.leaves().get(0).reader(), 2);
+            assertEquals("Artifact number 2", artifact.getAttributes().get(ArtifactInfo.NAME));
+            assertEquals("pom", artifact.getPackaging());
+
+            final ArtifactRecord record = projection.loadRecord(reader.leaves().get(0).reader(), 2);
+            assertEquals("Artifact number 2", record.getAttributes().get(ArtifactInfo.NAME));
+        }
+    }
+}
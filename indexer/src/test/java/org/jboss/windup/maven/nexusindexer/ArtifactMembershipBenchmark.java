@@ -0,0 +1,128 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.maven.index.ArtifactInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of checking whether an artifact is already indexed: a Lucene search per artifact, like
+ * {@link ArtifactUtil#isArtifactAlreadyIndexed}, versus a lookup in the {@link ArtifactMembershipSet} built by the scan.
+ * Half of the checked artifacts are in the index.
+ *
+ * <pre>
+ * mvn -f indexer/pom.xml test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main ArtifactMembershipBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class ArtifactMembershipBenchmark
+{
+    private static final int CHECKED = 1024;
+
+    @Param({"200000"})
+    public int documents;
+
+    private Directory directory;
+    private IndexReader reader;
+    private IndexSearcher searcher;
+    private ArtifactMembershipSet set;
+    private ArtifactInfo[] artifacts;
+    private String[] sha1s;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        directory = SyntheticNexusIndex.create(documents, 20_000);
+        reader = DirectoryReader.open(directory);
+        searcher = new IndexSearcher(reader);
+
+        final ArtifactInfoProjection projection = new ArtifactInfoProjection(null);
+        final ArtifactMembershipSet.Builder builder = new ArtifactMembershipSet.Builder();
+        new IndexScanner(1).scan(reader, (leafReader, docId) -> {
+            final ArtifactRecord artifact = projection.loadRecord(leafReader, docId);
+            if (artifact != null)
+                builder.add(artifact);
+        });
+        set = builder.build();
+
+        // Jars without classifier with a lower-case SHA1, half of them checked with another SHA1
+        artifacts = new ArtifactInfo[CHECKED];
+        sha1s = new String[CHECKED];
+        for (int i = 0, doc = 0; i < CHECKED; doc++)
+        {
+            final ArtifactInfo artifact = SyntheticNexusIndex.artifact(doc);
+            if (SyntheticNexusIndex.isNonArtifact(doc) || SyntheticNexusIndex.isDeleted(doc) || artifact.getClassifier() != null
+                        || !"jar".equals(artifact.getPackaging()) || artifact.getSha1() == null || doc % 3 == 0)
+                continue;
+            artifacts[i] = artifact;
+            sha1s[i] = i % 2 == 0 ? artifact.getSha1() : SyntheticNexusIndex.sha1(doc + documents);
+            i++;
+        }
+        if (search(0) != set.contains(sha1s[0], artifacts[0].getGroupId(), artifacts[0].getArtifactId(), artifacts[0].getVersion()))
+            throw new IllegalStateException("The search and the set disagree about " + artifacts[0]);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        reader.close();
+        directory.close();
+    }
+
+
+    private boolean search(int i) throws IOException
+    {
+        final ArtifactInfo artifact = artifacts[i];
+        final BooleanQuery query = new BooleanQuery();
+        query.add(new TermQuery(new Term(ArtifactInfo.SHA1, sha1s[i])), BooleanClause.Occur.MUST);
+        query.add(new TermQuery(new Term(ArtifactInfo.GROUP_ID, artifact.getGroupId())), BooleanClause.Occur.MUST);
+        query.add(new TermQuery(new Term(ArtifactInfo.ARTIFACT_ID, artifact.getArtifactId())), BooleanClause.Occur.MUST);
+        query.add(new TermQuery(new Term(ArtifactInfo.VERSION, artifact.getVersion())), BooleanClause.Occur.MUST);
+        query.add(new WildcardQuery(new Term(ArtifactInfo.CLASSIFIER, "*")), BooleanClause.Occur.MUST_NOT);
+        final TopDocs hits = searcher.search(query, 1);
+        return hits.totalHits > 0;
+    }
+
+    @Benchmark
+    public boolean luceneSearch() throws IOException
+    {
+        return search(next++ & (CHECKED - 1));
+    }
+
+    @Benchmark
+    public boolean membershipSet()
+    {
+        final int i = next++ & (CHECKED - 1);
+        final ArtifactInfo artifact = artifacts[i];
+        return set.contains(sha1s[i], artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion());
+    }
+}
@@ -0,0 +1,90 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.util.Random;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.store.Directory;
+import org.apache.maven.index.ArtifactInfo;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class ArtifactMembershipSetTest
+{
+    @Test
+    public void testContainsMainArtifactsOfIndex() throws Exception
+    {
+        final int documents = 5000;
+        final ArtifactMembershipSet.Builder builder = new ArtifactMembershipSet.Builder();
+        final ArtifactInfoProjection projection = new ArtifactInfoProjection(null);
+        try (Directory directory = SyntheticNexusIndex.create(documents, 500);
+             IndexReader reader = DirectoryReader.open(directory))
+        {
+            new IndexScanner(4, 100).scan(reader, (leafReader, docId) -> {
+                final ArtifactRecord artifact = projection.loadRecord(leafReader, docId);
+                if (artifact != null)
+                    builder.add(artifact);
+            });
+        }
+        final ArtifactMembershipSet set = builder.build();
+
+        int expected = 0;
+        for (int i = 0; i < documents; i++)
+        {
+            if (SyntheticNexusIndex.isNonArtifact(i))
+                continue;
+            final ArtifactInfo artifact = SyntheticNexusIndex.artifact(i);
+            final String sha1 = SyntheticNexusIndex.sha1(i);
+            final boolean indexed = !SyntheticNexusIndex.isDeleted(i) && artifact.getClassifier() == null && artifact.getSha1() != null;
+            if (indexed)
+                expected++;
+            assertEquals(artifact.getUinfo(), indexed, set.contains(sha1, artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion()));
+            assertEquals(indexed, set.contains(sha1.toUpperCase(), artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion()));
+            assertFalse(set.contains(sha1, artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion() + ".1"));
+            assertFalse(set.contains(SyntheticNexusIndex.sha1(i + documents), artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion()));
+        }
+        assertEquals(expected, set.size());
+        assertFalse(set.contains(null, "org.example.group1", "artifact-1", "1.0.1"));
+        assertFalse(set.contains("not a sha1", "org.example.group1", "artifact-1", "1.0.1"));
+    }
+
+    @Test
+    public void testLongHashSet()
+    {
+        final LongHashSet set = new LongHashSet(4);
+        final Random random = new Random(42);
+        final long[] values = new long[10_000];
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = i < 10 ? i : random.nextLong();
+            assertTrue(set.add(values[i]));
+        }
+        assertFalse(set.add(0));
+        assertFalse(set.add(values[5000]));
+        assertEquals(values.length, set.size());
+        for (long value : values)
+            assertTrue(set.contains(value));
+        for (int i = 0; i < 10_000; i++)
+            assertFalse(set.contains(random.nextLong()));
+    }
+
+    @Test
+    public void testBloomFilterFalsePositiveRate()
+    {
+        final BloomFilter filter = new BloomFilter(100_000, 0.01);
+        final Random random = new Random(42);
+        final long[] keys = new long[100_000];
+        for (int i = 0; i < keys.length; i++)
+            filter.add(keys[i] = random.nextLong());
+        for (long key : keys)
+            assertTrue(filter.mightContain(key));
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++)
+            if (filter.mightContain(random.nextLong()))
+                falsePositives++;
+        assertTrue("False positives: " + falsePositives, falsePositives < 1500);
+    }
+}
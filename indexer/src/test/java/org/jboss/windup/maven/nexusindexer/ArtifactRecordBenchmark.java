@@ -0,0 +1,101 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.store.Directory;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.context.IndexCreator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Allocation profile of reading the artifacts of the index: the whole document through all the IndexCreators into
+ * a mutated {@link ArtifactInfo}, versus the stored fields projection into {@link ArtifactRecord}s.
+ * Both scans are single-threaded so that the allocation rates are comparable.
+ *
+ * Run with the GC profiler to get the allocated bytes per scan ("gc.alloc.rate.norm"):
+ * <pre>
+ * mvn -f indexer/pom.xml test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main ArtifactRecordBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class ArtifactRecordBenchmark
+{
+    @Param({"1000000"})
+    public int documents;
+
+    private Directory directory;
+    private IndexReader reader;
+    private IndexScanner scanner;
+    private List<IndexCreator> creators;
+    private ArtifactFilter filter;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        directory = SyntheticNexusIndex.create(documents, 100_000);
+        reader = DirectoryReader.open(directory);
+        scanner = new IndexScanner(1);
+        creators = SyntheticNexusIndex.creators();
+        filter = ArtifactFilter.LIBRARIES;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        reader.close();
+        directory.close();
+    }
+
+    @Benchmark
+    public long artifactInfo(Blackhole blackhole) throws IOException
+    {
+        return scanner.scan(reader, (leafReader, docId) -> {
+            final Document doc = leafReader.document(docId);
+            if (doc.get(ArtifactInfo.UINFO) == null)
+                return;
+            final ArtifactInfo artifact = new ArtifactInfo();
+            for (IndexCreator creator : creators)
+                creator.updateArtifactInfo(doc, artifact);
+            artifact.setSha1(StringUtils.lowerCase(artifact.getSha1()));
+            artifact.setPackaging(StringUtils.defaultString(artifact.getPackaging()));
+            artifact.setClassifier(StringUtils.defaultString(artifact.getClassifier()));
+            blackhole.consume(filter.accept(artifact));
+        });
+    }
+
+    @Benchmark
+    public long artifactRecord(Blackhole blackhole) throws IOException
+    {
+        final ArtifactInfoProjection projection = new ArtifactInfoProjection(filter.getRequiredIndexFields());
+        return scanner.scan(reader, (leafReader, docId) -> {
+            final ArtifactRecord artifact = projection.loadRecord(leafReader, docId);
+            if (artifact == null)
+                return;
+            blackhole.consume(filter.accept(artifact));
+        });
+    }
+}
@@ -0,0 +1,71 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import org.apache.maven.index.ArtifactInfo;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class ArtifactRecordTest
+{
+    private static final String SHA1 = "85f79121fdaabcbcac085d0d4aad34af9f8dbba2";
+
+    @Test
+    public void testSha1IsHeldAsBytes()
+    {
+        ArtifactRecord record = new ArtifactRecord(SHA1, "org.springframework.boot", "spring-boot-starter-web", "2.3.2.RELEASE", "jar", "");
+        assertTrue(record.hasValidSha1());
+        assertEquals(ArtifactRecord.SHA1_LENGTH, record.getSha1Bytes().length);
+        assertEquals((byte) 0x85, record.getSha1Bytes()[0]);
+        assertEquals(0x85f79121fdaabcbcL, record.getSha1Prefix());
+        assertEquals(record.getSha1Prefix(), ArtifactRecord.sha1Prefix(ArtifactRecord.parseSha1(SHA1)));
+        assertEquals(SHA1, record.getSha1());
+        assertEquals(SHA1 + " org.springframework.boot:spring-boot-starter-web:jar::2.3.2.RELEASE", record.toString());
+    }
+
+    @Test
+    public void testInvalidSha1IsKeptAsGiven()
+    {
+        assertFalse(new ArtifactRecord(null, "g", "a", "1", "jar", "").hasValidSha1());
+        assertNull(new ArtifactRecord(null, "g", "a", "1", "jar", "").getSha1());
+        assertEquals(SHA1.toUpperCase(), new ArtifactRecord(SHA1.toUpperCase(), "g", "a", "1", "jar", "").getSha1());
+        assertEquals("abc", new ArtifactRecord("abc", "g", "a", "1", "jar", "").getSha1());
+    }
+
+    @Test
+    public void testArtifactInfoRoundTrip()
+    {
+        ArtifactInfo info = new ArtifactInfo("central", "g", "a", "1.0", "tests", "jar");
+        info.setSha1(SHA1);
+        info.setPackaging("bundle");
+        info.getAttributes().put("n", "name");
+
+        ArtifactRecord record = ArtifactRecord.of(info);
+        assertEquals("name", record.getAttributes().get("n"));
+        ArtifactInfo copy = record.toArtifactInfo();
+        assertEquals(info.getSha1(), copy.getSha1());
+        assertEquals(info.getGroupId(), copy.getGroupId());
+        assertEquals(info.getArtifactId(), copy.getArtifactId());
+        assertEquals(info.getVersion(), copy.getVersion());
+        assertEquals(info.getPackaging(), copy.getPackaging());
+        assertEquals(info.getClassifier(), copy.getClassifier());
+        assertEquals(record, ArtifactRecord.of(copy));
+    }
+
+    @Test
+    public void testAttributesAreCopied()
+    {
+        ArtifactInfo info = new ArtifactInfo("central", "g", "a", "1.0", "", "jar");
+        info.setSha1(SHA1);
+        info.getAttributes().put("n", "name");
+        ArtifactRecord record = ArtifactRecord.of(info);
+        int hashCode = record.hashCode();
+
+        info.getAttributes().put("n", "other");
+        info.getAttributes().put("d", "description");
+        assertEquals("name", record.getAttributes().get("n"));
+        assertEquals(1, record.getAttributes().size());
+        assertEquals(hashCode, record.hashCode());
+        assertNotEquals(record, ArtifactRecord.of(info));
+    }
+}
@@ -0,0 +1,191 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.maven.index.ArtifactContext;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.DefaultIndexerEngine;
+import org.apache.maven.index.IndexerEngine;
+import org.apache.maven.index.context.DefaultIndexingContext;
+import org.apache.maven.index.context.IndexCreator;
+import org.apache.maven.index.context.IndexingContext;
+import org.apache.maven.index.creator.MinimalArtifactInfoIndexCreator;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+
+public class IndexFixWriterTest
+{
+    private static final int ARTIFACTS = 2500;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testFixesAreWrittenInBatches() throws Exception
+    {
+        final List<IndexCreator> creators = Collections.<IndexCreator>singletonList(new MinimalArtifactInfoIndexCreator());
+        final IndexingContext context = new DefaultIndexingContext("test", "test", null, temp.newFolder("index"), null, null, creators, true);
+        final IndexerEngine engine = new DefaultIndexerEngine();
+        try
+        {
+            for (int i = 0; i < ARTIFACTS; i++)
+                engine.index(context, new ArtifactContext(null, null, null, broken(i), null));
+            context.commit();
+
+            final IndexFixWriter writer = new IndexFixWriter(context, engine, 100, 1000);
+            final ExecutorService executor = Executors.newFixedThreadPool(4);
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++)
+            {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = thread; i < ARTIFACTS; i += 4)
+                        writer.submit(broken(i), fixed(i));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+            executor.shutdown();
+            writer.close();
+
+            assertEquals(ARTIFACTS, writer.getWritten());
+            assertEquals(3, writer.getCommits());
+
+            final IndexSearcher searcher = context.acquireIndexSearcher();
+            try
+            {
+                for (int i = 0; i < ARTIFACTS; i++)
+                {
+                    assertEquals(0, search(searcher, broken(i).getUinfo()).totalHits);
+                    final TopDocs hits = search(searcher, fixed(i).getUinfo());
+                    assertEquals(1, hits.totalHits);
+                    final Document doc = searcher.doc(hits.scoreDocs[0].doc);
+                    assertEquals(SyntheticNexusIndex.sha1(i), doc.get(ArtifactInfo.SHA1));
+                }
+            }
+            finally
+            {
+                context.releaseIndexSearcher(searcher);
+            }
+        }
+        finally
+        {
+            context.close(false);
+        }
+    }
+
+    /**
+     * Once the writer thread has failed, the submits fail at once, and so does the close.
+     */
+    @Test(timeout = 60_000)
+    public void testSubmitsFailAfterTheWriterFailed() throws Exception
+    {
+        final List<IndexCreator> creators = Collections.<IndexCreator>singletonList(new MinimalArtifactInfoIndexCreator());
+        final IndexingContext context = new DefaultIndexingContext("test", "test", null, temp.newFolder("index"), null, null, creators, true);
+        final IndexerEngine engine = new DefaultIndexerEngine()
+        {
+            @Override
+            public void remove(IndexingContext context, ArtifactContext ac) throws IOException
+            {
+                throw new IOException("Disk full");
+            }
+        };
+        // Released once the writer thread has recorded its failure.
+        final CountDownLatch failed = new CountDownLatch(1);
+        final Handler handler = new Handler()
+        {
+            @Override
+            public void publish(LogRecord record)
+            {
+                if (record.getLevel() == Level.SEVERE)
+                    failed.countDown();
+            }
+
+            @Override
+            public void flush()
+            {
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        };
+        final Logger logger = Logger.getLogger(IndexFixWriter.class.getName());
+        logger.addHandler(handler);
+        try
+        {
+            final IndexFixWriter writer = new IndexFixWriter(context, engine, 10, 1000);
+            writer.submit(broken(0), fixed(0));
+            failed.await();
+
+            // The queue is empty, yet the fix is not accepted.
+            try
+            {
+                writer.submit(broken(1), fixed(1));
+                fail("The writer thread has failed");
+            }
+            catch (IOException ex)
+            {
+                assertEquals("Failed writing the fixed artifacts to the index: Disk full", ex.getMessage());
+            }
+            try
+            {
+                writer.close();
+                fail("The writer thread has failed");
+            }
+            catch (IOException ex)
+            {
+                assertEquals("Disk full", ex.getCause().getMessage());
+            }
+            assertEquals(0, writer.getWritten());
+            assertEquals(0, writer.getCommits());
+        }
+        finally
+        {
+            logger.removeHandler(handler);
+            context.close(false);
+        }
+    }
+
+    private static TopDocs search(IndexSearcher searcher, String uinfo) throws Exception
+    {
+        return searcher.search(new TermQuery(new Term(ArtifactInfo.UINFO, uinfo)), 2);
+    }
+
+    private static ArtifactInfo broken(int i)
+    {
+        final ArtifactInfo artifact = new ArtifactInfo("test", "org.example", "artifact-" + i, "1.0", null, "module");
+        artifact.setPackaging("module");
+        return artifact;
+    }
+
+    private static ArtifactInfo fixed(int i)
+    {
+        final ArtifactInfo artifact = new ArtifactInfo("test", "org.example", "artifact-" + i, "1.0", null, "jar");
+        artifact.setPackaging("jar");
+        artifact.setSha1(SyntheticNexusIndex.sha1(i));
+        return artifact;
+    }
+}
@@ -0,0 +1,86 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.store.Directory;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.context.IndexCreator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of the main index scan, as done by {@link RepositoryIndexManager}, depending on the number of scanning threads.
+ * The score is a full scan of a synthetic index per second; multiply by the documents count for documents per second.
+ *
+ * Run with:
+ * <pre>
+ * mvn -f indexer/pom.xml test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main IndexScannerBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IndexScannerBenchmark
+{
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"200000"})
+    public int documents;
+
+    private Directory directory;
+    private IndexReader reader;
+    private IndexScanner scanner;
+    private List<IndexCreator> creators;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        directory = SyntheticNexusIndex.create(documents, 20_000);
+        reader = DirectoryReader.open(directory);
+        scanner = new IndexScanner(threads);
+        creators = SyntheticNexusIndex.creators();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        reader.close();
+        directory.close();
+    }
+
+    @Benchmark
+    public long scan(Blackhole blackhole) throws IOException
+    {
+        return scanner.scan(reader, (leafReader, docId) -> {
+            // Same work as IndexUtils.constructArtifactInfo(), without the need of an IndexingContext.
+            final Document doc = leafReader.document(docId);
+            if (doc.get(ArtifactInfo.UINFO) == null)
+                return;
+            final ArtifactInfo artifact = new ArtifactInfo();
+            for (IndexCreator creator : creators)
+                creator.updateArtifactInfo(doc, artifact);
+            blackhole.consume(artifact);
+        });
+    }
+}
@@ -0,0 +1,63 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.store.Directory;
+import org.apache.maven.index.ArtifactInfo;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class IndexScannerTest
+{
+    private static final int DOCUMENTS = 5000;
+
+    @Test
+    public void testSingleThreadVisitsAllLiveDocuments() throws Exception
+    {
+        assertVisitsAllLiveDocuments(new IndexScanner(1));
+    }
+
+    @Test
+    public void testMultipleThreadsVisitAllLiveDocuments() throws Exception
+    {
+        assertVisitsAllLiveDocuments(new IndexScanner(4, 100));
+    }
+
+    private void assertVisitsAllLiveDocuments(IndexScanner scanner) throws Exception
+    {
+        try (Directory directory = SyntheticNexusIndex.create(DOCUMENTS, 700);
+             IndexReader reader = DirectoryReader.open(directory))
+        {
+            assertTrue("Several segments", reader.leaves().size() > 1);
+
+            final BitSet visited = new BitSet();
+            final AtomicLong duplicates = new AtomicLong();
+            long count = scanner.scan(reader, (leafReader, docId) -> {
+                final String name = leafReader.document(docId).get(ArtifactInfo.NAME);
+                if (name == null)
+                    return; // Non-artifact document.
+                final int i = Integer.parseInt(name.substring("Artifact number ".length()));
+                synchronized (visited)
+                {
+                    if (visited.get(i))
+                        duplicates.incrementAndGet();
+                    visited.set(i);
+                }
+            });
+
+            assertEquals(SyntheticNexusIndex.liveDocuments(DOCUMENTS), count);
+            assertEquals(0, duplicates.get());
+            for (int i = 0; i < DOCUMENTS; i++)
+            {
+                if (SyntheticNexusIndex.isNonArtifact(i))
+                    continue;
+                assertEquals("Document " + i, !SyntheticNexusIndex.isDeleted(i), visited.get(i));
+            }
+        }
+    }
+}
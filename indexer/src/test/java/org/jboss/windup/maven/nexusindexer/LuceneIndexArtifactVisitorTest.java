@@ -0,0 +1,97 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+
+public class LuceneIndexArtifactVisitorTest
+{
+    private static final int DOCUMENTS = 10_000;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testBulkLoadWritesSameDocuments() throws Exception
+    {
+        final Set<String> expected = write("default", null);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, write("bulk", new LuceneIndexArtifactVisitor.BulkLoad(16, 10, 1, 1)));
+        assertEquals(expected, write("parts", new LuceneIndexArtifactVisitor.BulkLoad(16, 10, 2, 3)));
+        assertArrayEquals("No sub-index left", new String[]{"bulk", "default", "parts"}, new TreeSet<>(Arrays.asList(temp.getRoot().list())).toArray());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testArtifactInfoDocumentsAreTheRecordOnes() throws Exception
+    {
+        final LuceneIndexArtifactVisitor visitor = new LuceneIndexArtifactVisitor(new File(temp.getRoot(), "info"), ArtifactFilter.LIBRARIES);
+        try
+        {
+            final ArtifactRecord record = new ArtifactRecord("0123456789abcdef0123456789abcdef01234567", "org.example", "artifact", "1.0", "jar", "");
+            final Document expected = visitor.artifactToDocs(record).iterator().next();
+            final String fields = expected.toString();
+            final Document doc = visitor.artifactToDocs(record.toArtifactInfo()).iterator().next();
+            assertEquals(fields, doc.toString());
+            assertEquals("org.example", doc.get(LuceneIndexArtifactVisitor.GROUP_ID));
+        }
+        finally
+        {
+            visitor.done();
+        }
+    }
+
+    /**
+     * Visits the artifacts of a synthetic index from several threads, and reads back the written documents.
+     */
+    private Set<String> write(String name, LuceneIndexArtifactVisitor.BulkLoad bulkLoad) throws Exception
+    {
+        final File indexDir = new File(temp.getRoot(), name);
+        final LuceneIndexArtifactVisitor visitor = new LuceneIndexArtifactVisitor(indexDir, ArtifactFilter.LIBRARIES, bulkLoad);
+        final ArtifactInfoProjection projection = new ArtifactInfoProjection(ArtifactFilter.LIBRARIES.getRequiredIndexFields());
+        try (Directory directory = SyntheticNexusIndex.create(DOCUMENTS, 2000);
+             IndexReader reader = DirectoryReader.open(directory))
+        {
+            new IndexScanner(4, 500).scan(reader, (leafReader, docId) -> {
+                final ArtifactRecord artifact = projection.loadRecord(leafReader, docId);
+                if (artifact != null)
+                    visitor.visit(artifact);
+            });
+        }
+        visitor.done();
+
+        final Set<String> documents = new TreeSet<>();
+        try (Directory directory = FSDirectory.open(indexDir);
+             DirectoryReader reader = DirectoryReader.open(directory))
+        {
+            // Committed with the identity of its SHA1 filter.
+            assertEquals(Sha1BloomFilter.map(indexDir).getIdentity(), reader.getIndexCommit().getUserData().get(Sha1BloomFilter.COMMIT_DATA_KEY));
+            final Bits liveDocs = MultiFields.getLiveDocs(reader);
+            for (int i = 0; i < reader.maxDoc(); i++)
+            {
+                if (liveDocs != null && !liveDocs.get(i))
+                    continue;
+                final Document doc = reader.document(i);
+                assertTrue(documents.add(String.join(" ", doc.get(LuceneIndexArtifactVisitor.SHA1), doc.get(LuceneIndexArtifactVisitor.GROUP_ID),
+                            doc.get(LuceneIndexArtifactVisitor.ARTIFACT_ID), doc.get(LuceneIndexArtifactVisitor.VERSION),
+                            doc.get(LuceneIndexArtifactVisitor.PACKAGING), doc.get(LuceneIndexArtifactVisitor.CLASSIFIER))));
+            }
+        }
+        return documents;
+    }
+}
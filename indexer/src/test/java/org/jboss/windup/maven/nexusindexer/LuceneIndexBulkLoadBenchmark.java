@@ -0,0 +1,116 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.index.ArtifactInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Documents per second written by {@link LuceneIndexArtifactVisitor}, from the first visit to the end of done(),
+ * with the default IndexWriterConfig or in bulk-load mode, the artifacts being visited by 1 or 4 threads as by the
+ * parallel index scan. In bulk-load mode, each thread gets its own writer and sub-index.
+ *
+ * <pre>
+ * mvn -f indexer/pom.xml test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main LuceneIndexBulkLoadBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class LuceneIndexBulkLoadBenchmark
+{
+    private static final int ARTIFACTS = 200_000;
+
+    @Param({"default", "bulk"})
+    public String mode;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private ArtifactRecord[] artifacts;
+    private ExecutorService executor;
+    private File indexDir;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        artifacts = new ArtifactRecord[ARTIFACTS];
+        for (int i = 0; i < ARTIFACTS; i++)
+        {
+            // Normalized as loaded by the scan, see ArtifactInfoProjection.
+            final ArtifactInfo artifact = SyntheticNexusIndex.artifact(i * 10 + 9);
+            artifacts[i] = new ArtifactRecord(artifact.getSha1().toLowerCase(), artifact.getGroupId(), artifact.getArtifactId(),
+                        artifact.getVersion(), artifact.getPackaging(), StringUtils.defaultString(artifact.getClassifier()));
+        }
+        executor = Executors.newFixedThreadPool(threads);
+    }
+
+    @Setup(Level.Invocation)
+    public void createIndexDir() throws IOException
+    {
+        indexDir = Files.createTempDirectory("lucene-bulk-load-").toFile();
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteIndexDir() throws IOException
+    {
+        FileUtils.deleteDirectory(indexDir);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        executor.shutdown();
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(ARTIFACTS)
+    public void write() throws Exception
+    {
+        final LuceneIndexArtifactVisitor.BulkLoad bulkLoad = "bulk".equals(mode)
+                    ? new LuceneIndexArtifactVisitor.BulkLoad(LuceneIndexArtifactVisitor.BulkLoad.DEFAULT_RAM_BUFFER_MB,
+                                LuceneIndexArtifactVisitor.BulkLoad.DEFAULT_SEGMENTS_PER_TIER, 2, threads)
+                    : null;
+        final LuceneIndexArtifactVisitor visitor = new LuceneIndexArtifactVisitor(new File(indexDir, "index"), ArtifactFilter.LIBRARIES, bulkLoad);
+        final List<Future<?>> futures = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++)
+        {
+            final int first = t;
+            futures.add(executor.submit(() -> {
+                for (int i = first; i < ARTIFACTS; i += threads)
+                    visitor.visit(artifacts[i]);
+            }));
+        }
+        for (Future<?> future : futures)
+            future.get();
+        visitor.done();
+    }
+}
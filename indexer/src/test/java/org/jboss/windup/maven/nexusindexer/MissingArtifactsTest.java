@@ -0,0 +1,75 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.maven.index.ArtifactInfo;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class MissingArtifactsTest
+{
+    /**
+     * The artifacts recognized during the scan must be the ones found by the Lucene query used before.
+     */
+    @Test
+    public void testSameArtifactsAsTheQuery() throws Exception
+    {
+        final ArtifactInfoProjection projection = new ArtifactInfoProjection(MissingArtifacts.getRequiredIndexFields());
+        final Set<String> scanned = ConcurrentHashMap.newKeySet();
+        final Set<String> searched = new HashSet<>();
+        try (Directory directory = SyntheticNexusIndex.create(5000, 500);
+             IndexReader reader = DirectoryReader.open(directory))
+        {
+            new IndexScanner(4, 100).scan(reader, (leafReader, docId) -> {
+                final ArtifactRecord artifact = projection.loadRecord(leafReader, docId);
+                if (artifact != null && MissingArtifacts.isMissing(artifact))
+                    scanned.add(leafReader.document(docId).get(ArtifactInfo.UINFO));
+            });
+
+            final IndexSearcher searcher = new IndexSearcher(reader);
+            for (ScoreDoc doc : searcher.search(missingArtifactsQuery(), reader.maxDoc()).scoreDocs)
+                searched.add(searcher.doc(doc.doc).get(ArtifactInfo.UINFO));
+        }
+
+        assertFalse(searched.isEmpty());
+        assertEquals(searched, scanned);
+    }
+
+    @Test
+    public void testNoPackaging()
+    {
+        assertFalse(MissingArtifacts.isMissing(new ArtifactRecord(null, "org.example", "artifact", "1.0", null, null)));
+    }
+
+    private static BooleanQuery missingArtifactsQuery()
+    {
+        final BooleanQuery query = new BooleanQuery();
+        query.add(new TermQuery(new Term(ArtifactInfo.PACKAGING, "module")), BooleanClause.Occur.SHOULD);
+        query.add(new TermQuery(new Term(ArtifactInfo.PACKAGING, "pom.sha512")), BooleanClause.Occur.SHOULD);
+
+        final BooleanQuery bundles = new BooleanQuery();
+        bundles.add(new TermQuery(new Term(ArtifactInfo.PACKAGING, "bundle")), BooleanClause.Occur.MUST);
+        bundles.add(TermRangeQuery.newStringRange(ArtifactInfo.BUNDLE_SYMBOLIC_NAME, null, null, true, true), BooleanClause.Occur.MUST_NOT);
+        query.add(bundles, BooleanClause.Occur.SHOULD);
+
+        final BooleanQuery hashlessJars = new BooleanQuery();
+        hashlessJars.add(new TermQuery(new Term(ArtifactInfo.PACKAGING, "jar")), BooleanClause.Occur.MUST);
+        hashlessJars.add(TermRangeQuery.newStringRange(ArtifactInfo.SHA1, null, null, true, true), BooleanClause.Occur.MUST_NOT);
+        query.add(hashlessJars, BooleanClause.Occur.SHOULD);
+        return query;
+    }
+}
@@ -0,0 +1,80 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class PendingTasksTest
+{
+    /**
+     * More missing artifacts than the 65535 parties of a Phaser are pending until the whole index is scanned.
+     */
+    @Test(timeout = 60_000)
+    public void testMoreTasksThanPhaserParties() throws Exception
+    {
+        final int tasks = 100_000;
+        final PendingTasks pending = new PendingTasks();
+        for (int i = 0; i < tasks; i++)
+            pending.register();
+        assertEquals(tasks + 1, pending.getPending());
+
+        final AtomicInteger finished = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            for (int i = 0; i < tasks; i++)
+                executor.execute(() -> {
+                    finished.incrementAndGet();
+                    pending.arrive();
+                });
+            pending.awaitAll();
+            assertEquals(tasks, finished.get());
+            assertEquals(0, pending.getPending());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void testWaitsForTheLastTask() throws Exception
+    {
+        final PendingTasks pending = new PendingTasks();
+        pending.register();
+        pending.register();
+        pending.arrive();
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            final Future<?> waiting = executor.submit(() -> {
+                pending.awaitAll();
+                return null;
+            });
+            Thread.sleep(200);
+            assertFalse("Still a pending task", waiting.isDone());
+            pending.arrive();
+            waiting.get(10, TimeUnit.SECONDS);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testNoTasks() throws Exception
+    {
+        final PendingTasks pending = new PendingTasks();
+        pending.awaitAll();
+        assertEquals(0, pending.getPending());
+    }
+}
@@ -0,0 +1,92 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+
+public class Sha1BloomFilterTest
+{
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testWrittenFilterContainsAllSha1s() throws Exception
+    {
+        final Random random = new Random(42);
+        final List<String> sha1s = new ArrayList<>();
+        final Sha1BloomFilter.Builder builder = new Sha1BloomFilter.Builder();
+        for (int i = 0; i < 10_000; i++)
+        {
+            final String sha1 = randomSha1(random);
+            sha1s.add(sha1);
+            builder.add(sha1);
+        }
+        final File indexDir = temp.newFolder();
+        final String identity = builder.write(indexDir);
+
+        final Sha1BloomFilter filter = Sha1BloomFilter.map(indexDir);
+        assertNotNull(filter);
+        assertEquals(identity, filter.getIdentity());
+        assertTrue(identity, identity.startsWith("10000:"));
+        for (String sha1 : sha1s)
+            assertTrue(sha1, filter.mightContain(sha1));
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++)
+        {
+            if (filter.mightContain(randomSha1(random)))
+                falsePositives++;
+        }
+        assertTrue("False positives: " + falsePositives, falsePositives < 300);
+        assertFalse(filter.mightContain("not a sha1"));
+    }
+
+    /**
+     * The identity tells the filters of the same number of SHA1s apart.
+     */
+    @Test
+    public void testIdentity() throws Exception
+    {
+        final Random random = new Random(42);
+        final File indexDir = temp.newFolder();
+        final Sha1BloomFilter.Builder first = new Sha1BloomFilter.Builder();
+        final Sha1BloomFilter.Builder second = new Sha1BloomFilter.Builder();
+        for (int i = 0; i < 1000; i++)
+        {
+            first.add(randomSha1(random));
+            second.add(randomSha1(random));
+        }
+        final String firstIdentity = first.write(indexDir);
+        final String secondIdentity = second.write(indexDir);
+        assertNotEquals(firstIdentity, secondIdentity);
+        assertEquals(secondIdentity, Sha1BloomFilter.map(indexDir).getIdentity());
+        assertEquals(firstIdentity, first.write(indexDir));
+    }
+
+    @Test
+    public void testNoFilterWithInvalidSha1s() throws Exception
+    {
+        final Sha1BloomFilter.Builder builder = new Sha1BloomFilter.Builder();
+        builder.add(randomSha1(new Random(42)));
+        builder.add("E0D7D5E1C6F3B1E1B1E1B1E1B1E1B1E1B1E1B1E1");
+        final File indexDir = temp.newFolder();
+        assertNull(builder.write(indexDir));
+        assertNull(Sha1BloomFilter.map(indexDir));
+    }
+
+    private static String randomSha1(Random random)
+    {
+        final StringBuilder sha1 = new StringBuilder(40);
+        for (int i = 0; i < 40; i++)
+            sha1.append(Character.forDigit(random.nextInt(16), 16));
+        return sha1.toString();
+    }
+}
@@ -0,0 +1,110 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+
+public class Sha1CacheTest
+{
+    private static final String SHA1 = "85f79121fdaabcbcac085d0d4aad34af9f8dbba2";
+    private static final long TTL = 1000;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    @Test
+    public void testEntriesArePersisted() throws Exception
+    {
+        final File file = new File(temp.getRoot(), "central-sha1-cache.txt");
+        try (Sha1Cache cache = open(file))
+        {
+            assertNull(cache.get("org.example", "found", "1.0"));
+            cache.putSha1("org.example", "found", "1.0", SHA1);
+            cache.putNotFound("org.example", "missing", "1.0");
+        }
+
+        try (Sha1Cache cache = open(file))
+        {
+            assertEquals(2, cache.size());
+            assertEquals(SHA1, cache.get("org.example", "found", "1.0").getSha1());
+            assertFalse(cache.get("org.example", "found", "1.0").isNotFound());
+            assertTrue(cache.get("org.example", "missing", "1.0").isNotFound());
+            assertNull(cache.get("org.example", "found", "2.0"));
+        }
+    }
+
+    @Test
+    public void testNotFoundEntriesExpire() throws Exception
+    {
+        final File file = new File(temp.getRoot(), "central-sha1-cache.txt");
+        try (Sha1Cache cache = open(file))
+        {
+            cache.putNotFound("org.example", "missing", "1.0");
+            now.addAndGet(TTL);
+            assertNotNull(cache.get("org.example", "missing", "1.0"));
+            now.addAndGet(1);
+            assertNull(cache.get("org.example", "missing", "1.0"));
+
+            // Published since
+            cache.putSha1("org.example", "missing", "1.0", SHA1);
+        }
+        try (Sha1Cache cache = open(file))
+        {
+            assertEquals(SHA1, cache.get("org.example", "missing", "1.0").getSha1());
+        }
+    }
+
+    @Test
+    public void testIncompleteLineIsIgnored() throws Exception
+    {
+        final File file = new File(temp.getRoot(), "central-sha1-cache.txt");
+        try (FileOutputStream out = new FileOutputStream(file))
+        {
+            out.write(("org.example:found:1.0 " + SHA1 + "\norg.example:torn:1.0 85f7").getBytes(StandardCharsets.UTF_8));
+        }
+        try (Sha1Cache cache = open(file))
+        {
+            assertEquals(1, cache.size());
+            assertNull(cache.get("org.example", "torn", "1.0"));
+            cache.putSha1("org.example", "next", "1.0", SHA1);
+        }
+        try (Sha1Cache cache = open(file))
+        {
+            assertEquals(2, cache.size());
+            assertEquals(SHA1, cache.get("org.example", "next", "1.0").getSha1());
+        }
+    }
+
+    @Test
+    public void testLogIsCompacted() throws Exception
+    {
+        final File file = new File(temp.getRoot(), "central-sha1-cache.txt");
+        try (Sha1Cache cache = open(file))
+        {
+            for (int i = 0; i < 3000; i++)
+                cache.putNotFound("org.example", "missing", "1.0");
+        }
+        try (Sha1Cache cache = open(file))
+        {
+            assertEquals(1, cache.size());
+        }
+        assertEquals(1, Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).size());
+    }
+
+    private Sha1Cache open(File file) throws IOException
+    {
+        return new Sha1Cache(file, TTL, now::get);
+    }
+}
@@ -0,0 +1,160 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+
+public class Sha1ResolverTest
+{
+    private static final String SHA1 = "85F79121FDAABCBCAC085D0D4AAD34AF9F8DBBA2";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private HttpServer server;
+    private String repositoryUrl;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        repositoryUrl = "http://localhost:" + server.getAddress().getPort() + "/maven2";
+    }
+
+    @After
+    public void tearDown()
+    {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException
+    {
+        requests.incrementAndGet();
+        maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+        try
+        {
+            Thread.sleep(20);
+            final String path = exchange.getRequestURI().getPath();
+            if (path.equals("/maven2/org/example/found/1.0/found-1.0.jar.sha1") || path.startsWith("/maven2/org/example/many/"))
+                respond(exchange, 200, SHA1 + "\n");
+            else if (path.startsWith("/maven2/org/example/invalid/"))
+                respond(exchange, 200, "not a hash\n");
+            else if (path.startsWith("/maven2/org/example/error/"))
+                respond(exchange, 500, "Oops");
+            else
+                respond(exchange, 404, "Not Found");
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            concurrent.decrementAndGet();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException
+    {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody())
+        {
+            out.write(bytes);
+        }
+    }
+
+
+    @Test
+    public void testResolve() throws Exception
+    {
+        try (Sha1Resolver resolver = new Sha1Resolver(repositoryUrl, 4, 5000))
+        {
+            assertEquals(SHA1.toLowerCase(), resolver.resolve("org.example", "found", "1.0").get());
+            assertFailure(FileNotFoundException.class, resolver.resolve("org.example", "missing", "1.0"));
+            assertFailure(IOException.class, resolver.resolve("org.example", "invalid", "1.0"));
+            assertFailure(IOException.class, resolver.resolve("org.example", "error", "1.0"));
+
+            final Sha1Resolver.Stats stats = resolver.getStats();
+            assertEquals(4, stats.getRequests());
+            assertEquals(1, stats.getFound());
+            assertEquals(1, stats.getNotFound());
+            assertEquals(2, stats.getFailures());
+            assertTrue(stats.getAverageLatencyMillis() > 0);
+            assertTrue(stats.getMaxLatencyMillis() >= stats.getAverageLatencyMillis());
+        }
+    }
+
+    @Test
+    public void testCachedResultsAreNotRequested() throws Exception
+    {
+        final File cacheFile = temp.newFile("sha1-cache.txt");
+        for (int run = 0; run < 2; run++)
+        {
+            try (Sha1Cache cache = new Sha1Cache(cacheFile, TimeUnit.HOURS.toMillis(1));
+                 Sha1Resolver resolver = new Sha1Resolver(repositoryUrl, 4, 5000, cache))
+            {
+                assertEquals(SHA1.toLowerCase(), resolver.resolve("org.example", "found", "1.0").get());
+                assertFailure(FileNotFoundException.class, resolver.resolve("org.example", "missing", "1.0"));
+                assertFailure(IOException.class, resolver.resolve("org.example", "error", "1.0"));
+                assertEquals(run == 0 ? 0 : 2, resolver.getStats().getCacheHits());
+            }
+        }
+        // The server error is not cached
+        assertEquals(4, requests.get());
+    }
+
+    @Test
+    public void testInFlightLimit() throws Exception
+    {
+        final List<CompletableFuture<String>> futures = new ArrayList<>();
+        try (Sha1Resolver resolver = new Sha1Resolver(repositoryUrl, 3, 5000))
+        {
+            for (int i = 0; i < 30; i++)
+                futures.add(resolver.resolve("org.example", "many", "1." + i));
+            for (CompletableFuture<String> future : futures)
+                assertEquals(SHA1.toLowerCase(), future.get());
+            assertEquals(30, resolver.getStats().getFound());
+        }
+        assertTrue("At most 3 requests in flight: " + maxConcurrent.get(), maxConcurrent.get() <= 3);
+    }
+
+    private static void assertFailure(Class<? extends Throwable> expected, CompletableFuture<String> future) throws InterruptedException
+    {
+        try
+        {
+            fail("Expected " + expected.getSimpleName() + ", got " + future.get());
+        }
+        catch (ExecutionException ex)
+        {
+            assertTrue(ex.getCause().toString(), expected.isInstance(ex.getCause()));
+        }
+    }
+}
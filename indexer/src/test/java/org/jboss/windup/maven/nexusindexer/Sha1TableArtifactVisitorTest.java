@@ -0,0 +1,117 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+
+public class Sha1TableArtifactVisitorTest
+{
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testTableHasSortedEntriesWithTheirCoordinates() throws Exception
+    {
+        final Random random = new Random(42);
+        final List<String> expected = new ArrayList<>();
+        final File table = new File(temp.getRoot(), "test" + Sha1TableArtifactVisitor.FILE_SUFFIX);
+        // A small budget, so that the artifacts are spilled to sorted runs.
+        final Sha1TableArtifactVisitor visitor = new Sha1TableArtifactVisitor(table, ArtifactFilter.LIBRARIES, 64 * 1024);
+        for (int i = 0; i < 5000; i++)
+        {
+            final String sha1 = randomSha1(random);
+            final String classifier = i % 3 == 0 ? "jdk8" : "";
+            visitor.visit(new ArtifactRecord(sha1, "org.example.group" + (i % 50), "artifact-" + i, "1." + i, "jar", classifier));
+            expected.add(sha1 + " org.example.group" + (i % 50) + ":artifact-" + i + ":jar:" + classifier + ":1." + i);
+            if (i % 100 == 0)
+            {
+                // The same SHA1 with other coordinates.
+                visitor.visit(new ArtifactRecord(sha1, "org.example.other", "artifact-" + i, "2." + i, "jar", ""));
+                expected.add(sha1 + " org.example.other:artifact-" + i + ":jar::2." + i);
+            }
+        }
+        visitor.visit(new ArtifactRecord("not a sha1", "org.example.group", "invalid", "1.0", "jar", ""));
+        // Coordinates which can't be written in the sorted lines.
+        visitor.visit(new ArtifactRecord(randomSha1(random), "org.example:group", "invalid", "1.0", "jar", ""));
+        visitor.visit(new ArtifactRecord(randomSha1(random), "org.example.group", "invalid", "1.0", "jar", "a:b"));
+        visitor.visit(new ArtifactRecord(randomSha1(random), "org.example.group", "invalid\n", "1.0", "jar", ""));
+        visitor.done();
+        Collections.sort(expected);
+
+        final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(table.toPath()));
+        assertEquals(Sha1TableArtifactVisitor.MAGIC, buffer.getInt(0));
+        assertEquals(Sha1TableArtifactVisitor.FORMAT_VERSION, buffer.getInt(4));
+        final int entries = (int) buffer.getLong(8);
+        final int poolOffset = (int) buffer.getLong(16);
+        assertEquals(expected.size(), entries);
+        assertEquals(Sha1TableArtifactVisitor.HEADER_SIZE + Sha1TableArtifactVisitor.FAN_OUT_SIZE + entries * Sha1TableArtifactVisitor.ENTRY_SIZE, poolOffset);
+        assertEquals(poolOffset + buffer.getLong(24), buffer.capacity());
+
+        final List<String> lines = new ArrayList<>();
+        for (int i = 0; i < entries; i++)
+        {
+            final int entry = Sha1TableArtifactVisitor.HEADER_SIZE + Sha1TableArtifactVisitor.FAN_OUT_SIZE + i * Sha1TableArtifactVisitor.ENTRY_SIZE;
+            final byte[] sha1 = new byte[ArtifactRecord.SHA1_LENGTH];
+            buffer.position(entry);
+            buffer.get(sha1);
+            final int firstByte = sha1[0] & 0xff;
+            assertTrue("Fan-out of " + firstByte, i < buffer.getInt(Sha1TableArtifactVisitor.HEADER_SIZE + 4 * firstByte));
+            assertTrue("Fan-out of " + firstByte, firstByte == 0 || i >= buffer.getInt(Sha1TableArtifactVisitor.HEADER_SIZE + 4 * (firstByte - 1)));
+
+            buffer.position(poolOffset + buffer.getInt(entry + ArtifactRecord.SHA1_LENGTH));
+            final String group = readString(buffer, poolOffset + readVarint(buffer));
+            final String packaging = readString(buffer, poolOffset + readVarint(buffer));
+            final String classifier = readString(buffer, poolOffset + readVarint(buffer));
+            final String artifactId = readString(buffer, buffer.position());
+            final String version = readString(buffer, buffer.position());
+            lines.add(ArtifactRecord.toHex(sha1) + " " + String.join(":", group, artifactId, packaging, classifier, version));
+        }
+        assertEquals(expected, lines);
+        assertArrayEquals("No temporary files left", new String[]{table.getName()}, temp.getRoot().list());
+    }
+
+    /**
+     * Reads the string at the given position; moves past it if it is at the current position.
+     */
+    private static String readString(ByteBuffer buffer, int position)
+    {
+        final int current = buffer.position();
+        buffer.position(position);
+        final byte[] bytes = new byte[readVarint(buffer)];
+        buffer.get(bytes);
+        if (position != current)
+            buffer.position(current);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readVarint(ByteBuffer buffer)
+    {
+        int value = 0;
+        for (int shift = 0; ; shift += 7)
+        {
+            final byte b = buffer.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0)
+                return value;
+        }
+    }
+
+    private static String randomSha1(Random random)
+    {
+        final byte[] bytes = new byte[ArtifactRecord.SHA1_LENGTH];
+        random.nextBytes(bytes);
+        return ArtifactRecord.toHex(bytes);
+    }
+}
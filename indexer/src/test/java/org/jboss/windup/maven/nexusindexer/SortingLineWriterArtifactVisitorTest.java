@@ -0,0 +1,120 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+
+public class SortingLineWriterArtifactVisitorTest
+{
+    private static final int ARTIFACTS = 20_000;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testSpilledOutputIsSameAsInMemory() throws Exception
+    {
+        final File inMemory = write(Long.MAX_VALUE);
+        final File spilled = write(64 * 1024);
+
+        final byte[] expected = Files.readAllBytes(inMemory.toPath());
+        assertTrue(expected.length > 0);
+        assertArrayEquals(expected, Files.readAllBytes(spilled.toPath()));
+        assertArrayEquals("No temporary runs left", new String[]{"in-memory.txt", "spilled.txt"}, sortedNames(temp.getRoot()));
+    }
+
+    @Test
+    public void testOutputIsSorted() throws Exception
+    {
+        final File output = write(16 * 1024);
+        final String[] lines = new String(Files.readAllBytes(output.toPath()), "UTF-8").split("\n");
+        final String[] sorted = lines.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(sorted, lines);
+    }
+
+    @Test
+    public void testSorterSpillsRuns() throws Exception
+    {
+        try (ExternalLineSorter sorter = new ExternalLineSorter(1024, temp.getRoot()))
+        {
+            for (int i = 0; i < 1000; i++)
+                sorter.add("line " + (i * 7919 % 1000) + "\n");
+            assertEquals(1000, sorter.getCount());
+            assertTrue(sorter.getRunCount() > 1);
+        }
+        assertEquals(0, temp.getRoot().list().length);
+    }
+
+    @Test
+    public void testConcurrentAddsAreSortedAsStrings() throws Exception
+    {
+        // Supplementary characters sort differently in UTF-8 and in UTF-16, the order must be the one of String.
+        final String[] prefixes = {"a", "\uD83D\uDE00", "\uFFFD", "\u00E9", "z"};
+        final String[] expected = new String[8 * 2000];
+        final StringWriter output = new StringWriter();
+        try (ExternalLineSorter sorter = new ExternalLineSorter(32 * 1024, temp.getRoot()))
+        {
+            final ExecutorService executor = Executors.newFixedThreadPool(8);
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++)
+            {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 2000; i++)
+                    {
+                        final String line = prefixes[i % prefixes.length] + (i * 7919 % 2000) + "-" + thread + "\n";
+                        expected[thread * 2000 + i] = line;
+                        sorter.add(line);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+            executor.shutdown();
+
+            assertEquals(expected.length, sorter.getCount());
+            assertTrue(sorter.getRunCount() > 1);
+            sorter.writeSorted(output);
+        }
+        Arrays.sort(expected);
+        assertEquals(String.join("", expected), output.toString());
+        assertEquals(0, temp.getRoot().list().length);
+    }
+
+    private File write(long memoryBudget) throws IOException
+    {
+        final File output = new File(temp.getRoot(), memoryBudget == Long.MAX_VALUE ? "in-memory.txt" : "spilled.txt");
+        final SortingLineWriterArtifactVisitor visitor = new SortingLineWriterArtifactVisitor(output, ArtifactFilter.LIBRARIES, memoryBudget);
+        for (int i = 0; i < ARTIFACTS; i++)
+        {
+            // Duplicates and non-ASCII characters must survive the spilling.
+            final int n = i % 15_000;
+            visitor.visit(new ArtifactRecord(SyntheticNexusIndex.sha1(n % 7_000), "org.example.grüppe" + (n % 300), "artifact-" + n, "1." + n, "jar", n % 5 == 0 ? "" : "jdk" + (n % 3)));
+        }
+        visitor.done();
+        return output;
+    }
+
+    private static String[] sortedNames(File dir)
+    {
+        final String[] names = dir.list();
+        Arrays.sort(names);
+        return names;
+    }
+}
@@ -0,0 +1,110 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of concurrent {@link SortingLineWriterArtifactVisitor#visit(ArtifactRecord)} calls, as done by the parallel
+ * index scan, at 1 to 8 threads sharing one visitor. The sorting and writing in done() is not measured.
+ *
+ * <pre>
+ * mvn -f indexer/pom.xml test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main SortingLineWriterBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class SortingLineWriterBenchmark
+{
+    private static final int ARTIFACTS = 1 << 16;
+
+    private ArtifactRecord[] artifacts;
+    private File outFile;
+    private SortingLineWriterArtifactVisitor visitor;
+
+    @State(Scope.Thread)
+    public static class Cursor
+    {
+        int next;
+    }
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        artifacts = new ArtifactRecord[ARTIFACTS];
+        for (int i = 0; i < ARTIFACTS; i++)
+            artifacts[i] = ArtifactRecord.of(SyntheticNexusIndex.artifact(i * 10 + 9));
+        outFile = File.createTempFile("sorting-line-writer-", ".txt");
+    }
+
+    @Setup(Level.Iteration)
+    public void createVisitor()
+    {
+        visitor = new SortingLineWriterArtifactVisitor(outFile, ArtifactFilter.LIBRARIES, 256L * 1024 * 1024);
+    }
+
+    @TearDown(Level.Iteration)
+    public void finishVisitor()
+    {
+        visitor.done();
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        outFile.delete();
+    }
+
+
+    private void visit(Cursor cursor)
+    {
+        visitor.visit(artifacts[cursor.next++ & (ARTIFACTS - 1)]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void threads1(Cursor cursor)
+    {
+        visit(cursor);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public void threads2(Cursor cursor)
+    {
+        visit(cursor);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void threads4(Cursor cursor)
+    {
+        visit(cursor);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void threads8(Cursor cursor)
+    {
+        visit(cursor);
+    }
+}
@@ -0,0 +1,169 @@
+package org.jboss.windup.maven.nexusindexer;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.context.IndexCreator;
+import org.apache.maven.index.creator.JarFileContentsIndexCreator;
+import org.apache.maven.index.creator.MavenArchetypeArtifactInfoIndexCreator;
+import org.apache.maven.index.creator.MavenPluginArtifactInfoIndexCreator;
+import org.apache.maven.index.creator.MinimalArtifactInfoIndexCreator;
+import org.apache.maven.index.creator.OsgiArtifactIndexCreator;
+
+/**
+ * Builds an in-memory Lucene index with documents in the format of the Maven Central Nexus index,
+ * for tests and benchmarks which must not download the real index.
+ *
+ * The documents are generated deterministically from their number, see {@link #artifact(int)}.
+ * Every 97th document is deleted, and every 1000th document is a non-artifact document without UINFO.
+ */
+public class SyntheticNexusIndex
+{
+    public static final int DELETED_EVERY = 97;
+    public static final int NON_ARTIFACT_EVERY = 1000;
+
+    private static final String CLASS_NAMES = "/org/example/Foo\n/org/example/Bar\n/org/example/impl/FooImpl\n/org/example/impl/BarImpl";
+
+    /**
+     * The index creators used by the Windup indexer, created without the Plexus container.
+     */
+    public static List<IndexCreator> creators()
+    {
+        return Arrays.<IndexCreator>asList(
+            new MinimalArtifactInfoIndexCreator(),
+            new OsgiArtifactIndexCreator(),
+            new MavenPluginArtifactInfoIndexCreator(),
+            new MavenArchetypeArtifactInfoIndexCreator(),
+            new JarFileContentsIndexCreator());
+    }
+
+    /**
+     * Creates an index of the given number of documents, flushing a new segment every docsPerSegment documents.
+     */
+    public static Directory create(int documents, int docsPerSegment) throws IOException
+    {
+        final Directory directory = new RAMDirectory();
+        final IndexWriterConfig config = new IndexWriterConfig(Version.LUCENE_48, new KeywordAnalyzer());
+        config.setMaxBufferedDocs(Math.max(2, docsPerSegment));
+        config.setMergePolicy(NoMergePolicy.NO_COMPOUND_FILES);
+        final List<IndexCreator> creators = creators();
+        try (IndexWriter writer = new IndexWriter(directory, config))
+        {
+            for (int i = 0; i < documents; i++)
+                writer.addDocument(document(i, creators));
+            for (int i = 0; i < documents; i += DELETED_EVERY)
+                writer.deleteDocuments(new Term(ArtifactInfo.UINFO, artifact(i).getUinfo()));
+        }
+        return directory;
+    }
+
+    public static boolean isDeleted(int i)
+    {
+        return i % DELETED_EVERY == 0 && !isNonArtifact(i);
+    }
+
+    public static boolean isNonArtifact(int i)
+    {
+        return i % NON_ARTIFACT_EVERY == 1;
+    }
+
+    /**
+     * Number of live documents, including the non-artifact ones, of an index created with the given size.
+     */
+    public static int liveDocuments(int documents)
+    {
+        int live = 0;
+        for (int i = 0; i < documents; i++)
+            if (!isDeleted(i))
+                live++;
+        return live;
+    }
+
+    /**
+     * The artifact stored in the i-th document.
+     */
+    public static ArtifactInfo artifact(int i)
+    {
+        final String classifier = i % 7 == 3 ? "sources" : null;
+        final ArtifactInfo ai = new ArtifactInfo("central", "org.example.group" + (i % 500), "artifact-" + (i % 5000),
+                    "1." + (i / 5000) + "." + i, classifier, "jar");
+        switch (i % 10)
+        {
+            case 1:
+                ai.setPackaging("bundle");
+                if (i % 20 == 1)
+                    ai.setBundleSymbolicName("org.example.bundle" + i);
+                break;
+            case 2:
+                ai.setPackaging("pom");
+                ai.setFileExtension("pom");
+                break;
+            case 5:
+                ai.setPackaging(i % 20 == 5 ? "module" : "pom.sha512");
+                break;
+            default:
+                ai.setPackaging("jar");
+        }
+        // Some jars are missing their hash, some are stored in upper case.
+        if (i % 50 != 4)
+        {
+            final String sha1 = sha1(i);
+            ai.setSha1(i % 3 == 0 ? sha1.toUpperCase() : sha1);
+        }
+        ai.setLastModified(1_500_000_000_000L + i);
+        ai.setSize(1024 + i);
+        ai.setName("Artifact number " + i);
+        ai.setClassNames(CLASS_NAMES);
+        return ai;
+    }
+
+    private static Document document(int i, List<IndexCreator> creators)
+    {
+        final Document doc = new Document();
+        if (isNonArtifact(i))
+        {
+            // Like the index descriptor or the group list documents.
+            doc.add(new StringField("DESCRIPTOR", "NexusIndex", Field.Store.YES));
+            doc.add(new StoredField("IDXINFO", "1.0|central"));
+            return doc;
+        }
+
+        final ArtifactInfo ai = artifact(i);
+        doc.add(new StringField(ArtifactInfo.UINFO, ai.getUinfo(), Field.Store.YES));
+        for (IndexCreator creator : creators)
+            creator.updateDocument(ai, doc);
+        return doc;
+    }
+
+    public static String sha1(int i)
+    {
+        try
+        {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(Integer.toString(i).getBytes("UTF-8"));
+            final StringBuilder sb = new StringBuilder(40);
+            for (byte b : digest)
+                sb.append(String.format("%02x", b & 0xff));
+            return sb.toString();
+        }
+        catch (NoSuchAlgorithmException | IOException ex)
+        {
+            throw new IllegalStateException(ex);
+        }
+    }
+}